@@ -0,0 +1,52 @@
+#!/usr/bin/env python3
+"""Confronta due risultati JMH (-rf json) e segnala le regressioni oltre soglia."""
+import argparse
+import json
+import sys
+
+
+def load(path):
+    with open(path) as f:
+        results = {}
+        for run in json.load(f):
+            params = ",".join(f"{k}={v}" for k, v in sorted(run.get("params", {}).items()))
+            key = run["benchmark"] + (f"[{params}]" if params else "")
+            metric = run["primaryMetric"]
+            results[key] = (run["mode"], metric["score"], metric["scoreUnit"])
+        return results
+
+
+def main():
+    parser = argparse.ArgumentParser()
+    parser.add_argument("baseline")
+    parser.add_argument("current")
+    parser.add_argument("--threshold", type=float, default=10.0, help="soglia di regressione in %%")
+    args = parser.parse_args()
+
+    baseline = load(args.baseline)
+    current = load(args.current)
+    regressions = 0
+
+    for key in sorted(current):
+        mode, score, unit = current[key]
+        if key not in baseline:
+            print(f"  NEW   {key}: {score:.3f} {unit}")
+            continue
+        _, base, _ = baseline[key]
+        if base == 0:
+            continue
+        # thrpt: più alto è meglio; avgt/sample/ss: più basso è meglio
+        delta = (score - base) / base * 100
+        worse = -delta if mode == "thrpt" else delta
+        flag = "REGR " if worse > args.threshold else "  ok "
+        regressions += worse > args.threshold
+        print(f"{flag} {key}: {base:.3f} -> {score:.3f} {unit} ({delta:+.1f}%)")
+
+    for key in sorted(set(baseline) - set(current)):
+        print(f"  GONE  {key}")
+
+    sys.exit(1 if regressions else 0)
+
+
+if __name__ == "__main__":
+    main()
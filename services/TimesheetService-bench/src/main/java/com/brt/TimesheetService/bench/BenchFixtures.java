@@ -0,0 +1,107 @@
+package com.brt.TimesheetService.bench;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.brt.TimesheetService.modules.commessa.domain.Commessa;
+import com.brt.TimesheetService.modules.commessa.infrastructure.CommessaRepository;
+import com.brt.TimesheetService.modules.timesheet.domain.AbsenceType;
+import com.brt.TimesheetService.modules.timesheet.domain.TimesheetDay;
+import com.brt.TimesheetService.modules.timesheet.domain.TimesheetItem;
+import com.brt.TimesheetService.modules.user.domain.Employee;
+import com.brt.TimesheetService.shared.dto.TimesheetDayDTO;
+import com.brt.TimesheetService.shared.dto.TimesheetItemDTO;
+
+/**
+ * Dati di prova in memoria condivisi dai benchmark (nessun database).
+ */
+final class BenchFixtures {
+
+    static final LocalDate BASE_DATE = LocalDate.of(2025, 1, 1);
+
+    private BenchFixtures() {
+    }
+
+    static Employee employee(long id) {
+        return Employee.builder().id(id).name("Dipendente " + id).build();
+    }
+
+    static List<Commessa> commesse(int count) {
+        return IntStream.rangeClosed(1, count)
+                .mapToObj(i -> Commessa.builder().id((long) i).code("COMM-" + i).build())
+                .toList();
+    }
+
+    /**
+     * Giorno con un item per ognuna delle commesse indicate, id item 1..n.
+     */
+    static TimesheetDay day(Employee employee, LocalDate date, List<Commessa> commesse) {
+        TimesheetDay day = TimesheetDay.builder()
+                .id(date.toEpochDay())
+                .employee(employee)
+                .date(date)
+                .absenceType(AbsenceType.NONE)
+                .version(0L)
+                .build();
+        long itemId = 1;
+        for (Commessa commessa : commesse) {
+            day.addItem(TimesheetItem.builder()
+                    .id(itemId++)
+                    .commessa(commessa)
+                    .description("Attività " + commessa.getCode())
+                    .hours(new BigDecimal("0.25"))
+                    .build());
+        }
+        return day;
+    }
+
+    /**
+     * DTO che riscrive tutti gli item del giorno (stessi id e commesse).
+     */
+    static TimesheetDayDTO updateDto(TimesheetDay day) {
+        List<TimesheetItemDTO> items = new ArrayList<>();
+        for (TimesheetItem item : day.getItems()) {
+            items.add(TimesheetItemDTO.builder()
+                    .id(item.getId())
+                    .CommessaCode(item.getCommessa().getCode())
+                    .description(item.getDescription())
+                    .hours(new BigDecimal("0.50"))
+                    .build());
+        }
+        return TimesheetDayDTO.builder().date(day.getDate()).items(items).build();
+    }
+
+    /**
+     * CommessaRepository in memoria: risponde solo a findByCode, quello che
+     * usa il domain service.
+     */
+    static CommessaRepository commessaRepository(List<Commessa> commesse) {
+        Map<String, Commessa> byCode = commesse.stream()
+                .collect(Collectors.toMap(Commessa::getCode, Function.identity()));
+        return (CommessaRepository) Proxy.newProxyInstance(
+                CommessaRepository.class.getClassLoader(),
+                new Class<?>[]{CommessaRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findByCode")) {
+                        return Optional.ofNullable(byCode.get((String) args[0]));
+                    }
+                    if (method.getName().equals("findByCodeIn")) {
+                        return ((Collection<?>) args[0]).stream()
+                                .map(byCode::get)
+                                .filter(Objects::nonNull)
+                                .toList();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,76 @@
+package com.brt.TimesheetService.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.brt.TimesheetService.modules.commessa.application.CommessaResolver;
+import com.brt.TimesheetService.modules.commessa.domain.Commessa;
+import com.brt.TimesheetService.modules.timesheet.domain.TimesheetDay;
+import com.brt.TimesheetService.modules.timesheet.domain.service.TimesheetDomainService;
+import com.brt.TimesheetService.modules.user.domain.Employee;
+import com.brt.TimesheetService.shared.dto.TimesheetDayDTO;
+import com.brt.TimesheetService.shared.projection.TimesheetDayProjection;
+
+/**
+ * Hot path CPU del dominio su giorni con molti item: updateTimesheet (merge
+ * DTO -> entity + ricalcolo status) e TimesheetDayProjection.fromEntity.
+ * Il CommessaRepository è in memoria, quindi si misura solo il codice Java
+ * (dalla prima invocazione i codici sono nella mappa del CommessaResolver).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DomainBenchmark {
+
+    @Param({"50"})
+    int items;
+
+    private List<Commessa> commesse;
+    private Employee employee;
+    private TimesheetDomainService domainService;
+    private TimesheetDay projectionDay;
+
+    // ricreati a ogni invocazione: updateTimesheet modifica il giorno
+    private TimesheetDay day;
+    private TimesheetDayDTO dto;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        commesse = BenchFixtures.commesse(items);
+        employee = BenchFixtures.employee(1L);
+        domainService = new TimesheetDomainService(new CommessaResolver(BenchFixtures.commessaRepository(commesse), false, 600));
+        projectionDay = BenchFixtures.day(employee, BenchFixtures.BASE_DATE, commesse);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        day = BenchFixtures.day(employee, BenchFixtures.BASE_DATE, commesse);
+        dto = BenchFixtures.updateDto(day);
+    }
+
+    @Benchmark
+    public TimesheetDay updateTimesheet() {
+        return domainService.updateTimesheet(day, dto);
+    }
+
+    @Benchmark
+    public TimesheetDayProjection fromEntity() {
+        return TimesheetDayProjection.fromEntity(projectionDay);
+    }
+}
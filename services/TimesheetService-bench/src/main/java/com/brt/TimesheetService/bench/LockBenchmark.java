@@ -0,0 +1,59 @@
+package com.brt.TimesheetService.bench;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.brt.TimesheetService.modules.timesheet.application.locking.TimesheetLockManager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Throughput di acquisizione/rilascio del lock per giorno
+ * (BaseTimesheetService.withLock delega a TimesheetLockManager.withLock).
+ *
+ * keys = 1 misura la contesa massima (tutti i thread sullo stesso giorno),
+ * keys = 10000 il caso tipico di richieste su dipendenti e giorni diversi.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class LockBenchmark {
+
+    private static final int BASE_EPOCH_DAY = (int) BenchFixtures.BASE_DATE.toEpochDay();
+
+    @Param({"1", "10000"})
+    int keys;
+
+    private TimesheetLockManager lockManager;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        lockManager = new TimesheetLockManager(10_000, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public long withLock() {
+        int k = keys == 1 ? 0 : ThreadLocalRandom.current().nextInt(keys);
+        long employeeId = k / 100;
+        int epochDay = BASE_EPOCH_DAY + k % 100;
+        return lockManager.withLock(employeeId, epochDay, () -> employeeId + epochDay);
+    }
+}
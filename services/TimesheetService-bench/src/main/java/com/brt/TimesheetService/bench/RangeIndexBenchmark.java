@@ -0,0 +1,96 @@
+package com.brt.TimesheetService.bench;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.brt.TimesheetService.modules.timesheet.application.caching.RangeIndex;
+import com.brt.TimesheetService.modules.timesheet.application.caching.RangeKey;
+
+/**
+ * Ricerca dei range in cache che contengono una data (la query dietro
+ * TimesheetCacheManager.findRangesContaining) con migliaia di range
+ * indicizzati per pochi dipendenti, e dei range che intersecano un mese
+ * (invalidazione delle scritture multi-giorno). linearScan è il confronto con
+ * la scansione di tutte le chiavi del dipendente.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RangeIndexBenchmark {
+
+    private static final int EMPLOYEES = 10;
+    private static final int DAYS = 365;
+
+    @Param({"1000", "10000"})
+    int ranges;
+
+    private RangeIndex index;
+    private List<List<RangeKey>> keysByEmployee;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        index = new RangeIndex();
+        keysByEmployee = new ArrayList<>();
+        for (int e = 0; e < EMPLOYEES; e++) {
+            keysByEmployee.add(new ArrayList<>());
+        }
+        for (int i = 0; i < ranges; i++) {
+            long employeeId = i % EMPLOYEES;
+            LocalDate start = BenchFixtures.BASE_DATE.plusDays(random.nextInt(DAYS));
+            LocalDate end = start.plusDays(random.nextInt(31));
+            RangeKey key = new RangeKey(employeeId, start, end, random.nextInt(5), 20, "UNSORTED");
+            index.add(key);
+            keysByEmployee.get((int) employeeId).add(key);
+        }
+    }
+
+    @Benchmark
+    public Set<RangeKey> findContaining() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return index.findContaining((long) random.nextInt(EMPLOYEES),
+                BenchFixtures.BASE_DATE.plusDays(random.nextInt(DAYS)));
+    }
+
+    @Benchmark
+    public Set<RangeKey> findOverlappingMonth() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate from = BenchFixtures.BASE_DATE.plusDays(random.nextInt(DAYS));
+        return index.findOverlapping((long) random.nextInt(EMPLOYEES), from, from.plusDays(30));
+    }
+
+    @Benchmark
+    public Set<RangeKey> linearScan() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate date = BenchFixtures.BASE_DATE.plusDays(random.nextInt(DAYS));
+        Set<RangeKey> result = new HashSet<>();
+        for (RangeKey key : keysByEmployee.get(random.nextInt(EMPLOYEES))) {
+            if (!date.isBefore(key.start()) && !date.isAfter(key.end())) {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+}
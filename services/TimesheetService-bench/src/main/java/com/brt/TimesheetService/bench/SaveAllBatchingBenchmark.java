@@ -0,0 +1,131 @@
+package com.brt.TimesheetService.bench;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.brt.TimesheetService.TimesheetServiceApplication;
+import com.brt.TimesheetService.modules.commessa.domain.Commessa;
+import com.brt.TimesheetService.modules.commessa.infrastructure.CommessaRepository;
+import com.brt.TimesheetService.modules.timesheet.domain.AbsenceType;
+import com.brt.TimesheetService.modules.timesheet.domain.TimesheetDay;
+import com.brt.TimesheetService.modules.timesheet.domain.TimesheetItem;
+import com.brt.TimesheetService.modules.timesheet.infrastructure.TimesheetDayRepository;
+import com.brt.TimesheetService.modules.user.domain.Employee;
+import com.brt.TimesheetService.modules.user.infrastructure.EmployeeRepository;
+
+/**
+ * saveAll di giorni con item senza batching JDBC (un round-trip per INSERT)
+ * e con la configurazione di prod (hibernate.jdbc.batch_size=50,
+ * order_inserts, reWriteBatchedInserts). In entrambi i casi gli id vengono
+ * da sequence pooled-lo: "row" fa da riferimento per il vecchio IDENTITY, che
+ * forzava comunque un INSERT per round-trip.
+ *
+ * Richiede un PostgreSQL DEDICATO: lo schema viene ricreato (create-drop) a
+ * ogni trial. Connessione da system property:
+ * -Dbench.db.url, -Dbench.db.user, -Dbench.db.password.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SaveAllBatchingBenchmark {
+
+    private static final int ITEMS_PER_DAY = 2;
+
+    @Param({"row", "batched"})
+    String mode;
+
+    @Param({"500"})
+    int days;
+
+    private ConfigurableApplicationContext context;
+    private TimesheetDayRepository dayRepository;
+    private EmployeeRepository employeeRepository;
+    private TransactionTemplate tx;
+    private JdbcTemplate jdbc;
+    private List<Commessa> commesse;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        boolean batched = mode.equals("batched");
+        String url = System.getProperty("bench.db.url", "jdbc:postgresql://localhost:5432/timesheet_bench");
+        context = new SpringApplicationBuilder(TimesheetServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=" + url + (batched ? (url.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true" : ""),
+                        "spring.datasource.username=" + System.getProperty("bench.db.user", "timesheet_user"),
+                        "spring.datasource.password=" + System.getProperty("bench.db.password", "secret"),
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.sql.init.mode=never",
+                        "spring.jpa.show-sql=false",
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=" + (batched ? 50 : 1),
+                        "spring.jpa.properties.hibernate.order_inserts=" + batched,
+                        "logging.level.root=WARN")
+                .run();
+
+        dayRepository = context.getBean(TimesheetDayRepository.class);
+        employeeRepository = context.getBean(EmployeeRepository.class);
+        tx = context.getBean(TransactionTemplate.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+        commesse = context.getBean(CommessaRepository.class).saveAll(BenchFixtures.commesse(ITEMS_PER_DAY).stream()
+                .map(c -> Commessa.builder().code(c.getCode()).build())
+                .toList());
+    }
+
+    @TearDown(Level.Iteration)
+    public void truncate() {
+        jdbc.execute("TRUNCATE public.timesheet_items, public.timesheet_days, public.employees");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int saveAll() {
+        return tx.execute(status -> {
+            // un dipendente nuovo per invocazione: nessun conflitto su (employee_id, date)
+            Employee employee = employeeRepository.save(Employee.builder().name("bench").build());
+            List<TimesheetDay> batch = new ArrayList<>(days);
+            for (int d = 0; d < days; d++) {
+                TimesheetDay day = TimesheetDay.builder()
+                        .employee(employee)
+                        .date(BenchFixtures.BASE_DATE.plusDays(d))
+                        .absenceType(AbsenceType.NONE)
+                        .build();
+                for (Commessa commessa : commesse) {
+                    day.addItem(TimesheetItem.builder()
+                            .commessa(commessa)
+                            .hours(new BigDecimal("4.00"))
+                            .build());
+                }
+                batch.add(day);
+            }
+            return dayRepository.saveAll(batch).size();
+        });
+    }
+}
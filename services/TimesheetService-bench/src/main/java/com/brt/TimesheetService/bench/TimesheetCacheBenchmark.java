@@ -0,0 +1,136 @@
+package com.brt.TimesheetService.bench;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.brt.TimesheetService.modules.commessa.domain.Commessa;
+import com.brt.TimesheetService.modules.timesheet.application.caching.CacheMaintenanceExecutor;
+import com.brt.TimesheetService.modules.timesheet.application.caching.CacheRetryQueue;
+import com.brt.TimesheetService.modules.timesheet.application.caching.TimesheetCacheManager;
+import com.brt.TimesheetService.modules.timesheet.application.caching.invalidation.NoOpCacheInvalidationBus;
+import com.brt.TimesheetService.modules.timesheet.domain.TimesheetDay;
+import com.brt.TimesheetService.modules.user.domain.Employee;
+import com.brt.TimesheetService.shared.projection.TimesheetDayProjection;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * getDay / putDay / invalidateDay della day cache con 8 thread sullo stesso
+ * working set. Il gruppo "mixed" simula il traffico reale: letture
+ * prevalenti con scritture e invalidazioni concorrenti sulle stesse chiavi.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimesheetCacheBenchmark {
+
+    @Param({"50"})
+    int employees;
+
+    @Param({"20"})
+    int daysPerEmployee;
+
+    private CacheMaintenanceExecutor executor;
+    private TimesheetCacheManager cache;
+    private TimesheetDay[] days;
+    private TimesheetDayProjection[] views;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        executor = new CacheMaintenanceExecutor(2, 1000, false, registry);
+        cache = new TimesheetCacheManager(executor, registry, 64, new NoOpCacheInvalidationBus(),
+                new CacheRetryQueue(registry, 1000, 5, 100, 5000), false, 20, 10);
+        List<Commessa> commesse = BenchFixtures.commesse(5);
+        days = new TimesheetDay[employees * daysPerEmployee];
+        views = new TimesheetDayProjection[days.length];
+        int i = 0;
+        for (long emp = 1; emp <= employees; emp++) {
+            Employee employee = BenchFixtures.employee(emp);
+            for (int d = 0; d < daysPerEmployee; d++) {
+                TimesheetDay day = BenchFixtures.day(employee, BenchFixtures.BASE_DATE.plusDays(d), commesse);
+                days[i] = day;
+                views[i] = TimesheetDayProjection.fromEntity(day);
+                cache.putDay(emp, day.getDate(), views[i++]);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    private int randomIndex() {
+        return ThreadLocalRandom.current().nextInt(days.length);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object getDay() {
+        TimesheetDay day = days[randomIndex()];
+        return cache.getDay(day.getEmployee().getId(), day.getDate());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void putDay() {
+        int i = randomIndex();
+        TimesheetDay day = days[i];
+        cache.putDay(day.getEmployee().getId(), day.getDate(), views[i]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void invalidateDay() {
+        TimesheetDay day = days[randomIndex()];
+        cache.invalidateDay(day.getEmployee().getId(), day.getDate());
+    }
+
+    // ============================================================
+    // MIX CONCORRENTE: 6 letture, 1 scrittura, 1 invalidazione
+    // ============================================================
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public Object mixedGet() {
+        return getDay();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void mixedPut() {
+        putDay();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void mixedInvalidate() {
+        LocalDate date = BenchFixtures.BASE_DATE.plusDays(ThreadLocalRandom.current().nextInt(daysPerEmployee));
+        cache.invalidateDay(1L + ThreadLocalRandom.current().nextInt(employees), date);
+    }
+}
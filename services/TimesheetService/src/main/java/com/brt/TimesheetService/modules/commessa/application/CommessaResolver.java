@@ -0,0 +1,164 @@
+package com.brt.TimesheetService.modules.commessa.application;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.brt.TimesheetService.modules.commessa.domain.Commessa;
+import com.brt.TimesheetService.modules.commessa.infrastructure.CommessaRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Risolve i codici commessa per il dominio timesheet con una mappa in
+ * memoria codice -> id, caricata all'avvio. I codici non ancora noti vengono
+ * risolti tutti insieme con una sola findByCodeIn.
+ *
+ * Restituisce riferimenti detached (solo id e codice): Hibernate scrive la FK
+ * dall'id senza SELECT sulla commessa, e il codice resta leggibile per le
+ * projection senza inizializzare un proxy. Ogni chiamata riceve istanze
+ * nuove, mai condivise tra sessioni.
+ *
+ * La mappa va svuotata (evictAll) quando una commessa cambia codice o viene
+ * cancellata: lo fa CommessaService, e lo svuotamento avviene dopo il commit.
+ * Le entry scadono comunque dopo ttl-seconds: sulle altre repliche, che non
+ * ricevono l'evict, un codice rinominato o cancellato resta al più per il TTL.
+ */
+@Component
+public class CommessaResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(CommessaResolver.class);
+
+    private final CommessaRepository commessaRepository;
+    private final boolean warmUp;
+    private final ConcurrentMap<String, Long> idsByCode;
+    // Incrementata a ogni evict: una lettura dal DB iniziata prima non ripopola la mappa
+    private final AtomicLong generation = new AtomicLong();
+
+    public CommessaResolver(
+            CommessaRepository commessaRepository,
+            @Value("${timesheet.commessa-resolver.warm-up:true}") boolean warmUp,
+            @Value("${timesheet.commessa-resolver.ttl-seconds:600}") long ttlSeconds
+    ) {
+        this.commessaRepository = commessaRepository;
+        this.warmUp = warmUp;
+        Cache<String, Long> cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build();
+        this.idsByCode = cache.asMap();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!warmUp) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long observed = generation.get();
+        Map<String, Long> loaded = new HashMap<>();
+        commessaRepository.findAll().forEach(c -> loaded.put(c.getCode(), c.getId()));
+        publish(loaded, observed);
+        log.info("CommessaResolver: {} commesse caricate in {} ms", idsByCode.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Risolve tutti i codici: una query per i soli codici non in mappa. I
+     * codici inesistenti non compaiono nel risultato.
+     */
+    public Map<String, Commessa> resolveAll(Collection<String> codes) {
+        Map<String, Commessa> resolved = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String code : codes) {
+            if (code == null || resolved.containsKey(code)) {
+                continue;
+            }
+            Long id = idsByCode.get(code);
+            if (id != null) {
+                resolved.put(code, reference(id, code));
+            } else {
+                missing.add(code);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long observed = generation.get();
+            Map<String, Long> loaded = new HashMap<>();
+            for (Commessa commessa : commessaRepository.findByCodeIn(missing)) {
+                loaded.put(commessa.getCode(), commessa.getId());
+                resolved.put(commessa.getCode(), reference(commessa.getId(), commessa.getCode()));
+            }
+            publish(loaded, observed);
+            log.debug("CommessaResolver: {} codici risolti da DB", missing.size());
+        }
+        return resolved;
+    }
+
+    public Optional<Commessa> resolve(String code) {
+        if (code == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(resolveAll(List.of(code)).get(code));
+    }
+
+    /**
+     * Svuota la mappa dopo il commit della transazione corrente (subito se
+     * non ce n'è una): svuotata prima, una resolveAll concorrente la
+     * ricaricherebbe con la coppia codice -> id non ancora modificata.
+     */
+    public void evictAll() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            clear();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                clear();
+            }
+        });
+    }
+
+    private void clear() {
+        generation.incrementAndGet();
+        idsByCode.clear();
+        log.debug("CommessaResolver: mappa codici svuotata");
+    }
+
+    // Le coppie lette dal DB entrano in mappa solo se nessun evict è avvenuto nel frattempo
+    private void publish(Map<String, Long> loaded, long observed) {
+        if (generation.get() != observed) {
+            return;
+        }
+        idsByCode.putAll(loaded);
+        if (generation.get() != observed) {
+            // Evict concorrente alla putAll: meglio rileggere che tenere coppie vecchie
+            idsByCode.keySet().removeAll(loaded.keySet());
+        }
+    }
+
+    public int size() {
+        return idsByCode.size();
+    }
+
+    private static Commessa reference(Long id, String code) {
+        return Commessa.builder()
+                .id(Objects.requireNonNull(id))
+                .code(code)
+                .build();
+    }
+}
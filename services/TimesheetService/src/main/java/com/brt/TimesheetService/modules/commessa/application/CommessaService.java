@@ -30,6 +30,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import com.brt.TimesheetService.modules.commessa.domain.Commessa;
 import com.brt.TimesheetService.modules.commessa.infrastructure.CommessaRepository;
+import com.brt.TimesheetService.modules.timesheet.application.caching.ReportCacheManager;
 import com.brt.TimesheetService.shared.dto.CommessaDTO;
 import com.brt.TimesheetService.shared.exception.CommessaServiceException;
 import com.brt.TimesheetService.shared.exception.ResourceNotFoundException;
@@ -47,9 +48,13 @@ public class CommessaService {
     *   in futuro si può sostituire la repo con un provider REST + Redis cache 
      */
     private final CommessaRepository commessaRepository;
+    private final CommessaResolver commessaResolver;
+    private final ReportCacheManager reportCache;
 
-    public CommessaService(CommessaRepository commessaRepository) {
+    public CommessaService(CommessaRepository commessaRepository, CommessaResolver commessaResolver, ReportCacheManager reportCache) {
         this.commessaRepository = commessaRepository;
+        this.commessaResolver = commessaResolver;
+        this.reportCache = reportCache;
     }
 
     // ============================================================
@@ -111,7 +116,12 @@ public class CommessaService {
             if (commessa == null) {
                 throw new IllegalArgumentException("La commessa non può essere null");
             }
-            return commessaRepository.save(commessa);
+            Commessa saved = commessaRepository.save(commessa);
+            // il codice può essere cambiato: la mappa del resolver si ricarica su richiesta
+            commessaResolver.evictAll();
+            // le righe dei report riportano il codice commessa
+            reportCache.clearAllAfterCommit();
+            return saved;
         });
     }
 
@@ -141,6 +151,8 @@ public class CommessaService {
                 throw new ResourceNotFoundException("Commessa non trovata con id: " + id);
             }
             commessaRepository.deleteById(id);
+            commessaResolver.evictAll();
+            reportCache.clearAllAfterCommit();
             log.info("[deleteById] Commessa {} eliminata con successo", id);
             return null;
         });
@@ -1,5 +1,7 @@
 package com.brt.TimesheetService.modules.commessa.infrastructure;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -11,4 +13,6 @@ import com.brt.TimesheetService.modules.commessa.domain.Commessa;
 public interface CommessaRepository extends JpaRepository<Commessa, Long> {
 
     Optional<Commessa> findByCode(String code);
+
+    List<Commessa> findByCodeIn(Collection<String> codes);
 }
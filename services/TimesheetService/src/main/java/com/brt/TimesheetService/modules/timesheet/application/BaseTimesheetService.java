@@ -2,21 +2,26 @@ package com.brt.TimesheetService.modules.timesheet.application;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
 import com.brt.TimesheetService.modules.timesheet.application.caching.TimesheetCacheManager;
+import com.brt.TimesheetService.modules.timesheet.application.coalescing.WriteCoalescer;
+import com.brt.TimesheetService.modules.timesheet.application.locking.TimesheetLockManager;
+import com.brt.TimesheetService.modules.timesheet.application.rollup.HoursRollupService;
 import com.brt.TimesheetService.modules.timesheet.application.validator.OperationContext;
 import com.brt.TimesheetService.modules.timesheet.application.validator.TimesheetValidator;
 import com.brt.TimesheetService.modules.timesheet.domain.TimesheetDay;
@@ -28,48 +33,53 @@ import com.brt.TimesheetService.shared.dto.TimesheetItemDTO;
 import com.brt.TimesheetService.shared.exception.ResourceNotFoundException;
 import com.brt.TimesheetService.shared.exception.TimesheetValidationException;
 import com.brt.TimesheetService.shared.projection.TimesheetDayProjection;
+import com.brt.TimesheetService.shared.projection.TimesheetDayRowProjection;
+import com.brt.TimesheetService.shared.util.CursorSlice;
+import com.brt.TimesheetService.shared.util.KeysetCursor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 public abstract class BaseTimesheetService {
 
-    // Lock map per sincronizzazione granulare
-    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
     private static final Logger log = LoggerFactory.getLogger(TimesheetApplicationService.class);
 
     protected final TimesheetDayRepository timesheetDayRepository;
     protected final EmployeeRepository employeeRepository;
     protected final TimesheetValidator validator;
     protected final TimesheetCacheManager cacheManager;
+    protected final TimesheetLockManager lockManager;
+    protected final HoursRollupService rollupService;
+    protected final MeterRegistry meterRegistry;
 
     protected BaseTimesheetService(
             TimesheetDayRepository timesheetDayRepository,
             TimesheetValidator validator,
             TimesheetCacheManager cacheManager, // Inject invece di new
-            EmployeeRepository employeeRepository
+            EmployeeRepository employeeRepository,
+            TimesheetLockManager lockManager,
+            HoursRollupService rollupService,
+            MeterRegistry meterRegistry
     ) {
         this.timesheetDayRepository = timesheetDayRepository;
         this.employeeRepository = employeeRepository;
         this.validator = validator;
         this.cacheManager = cacheManager;
+        this.lockManager = lockManager;
+        this.rollupService = rollupService;
+        this.meterRegistry = meterRegistry;
     }
 
     // ============================================================
     // MECCANISMO DI LOCKING
     // ============================================================
     /**
-     * Esegue un'operazione dentro un lock specifico per la chiave. Il lock
-     * viene rimosso automaticamente dopo l'uso per evitare memory leak.
+     * Esegue un'operazione dentro il lock del giorno (employeeId, date). Il
+     * lock è rientrante: un template può richiamarne un altro sullo stesso
+     * giorno senza bloccarsi.
      */
-    protected <R> R withLock(String key, Supplier<R> supplier) {
-        Object lock = locks.computeIfAbsent(key, k -> new Object());
-        synchronized (lock) {
-            try {
-                log.trace("Lock acquisito: {}", key);
-                return supplier.get();
-            } finally {
-                locks.remove(key, lock);
-                log.trace("Lock rilasciato: {}", key);
-            }
-        }
+    protected <R> R withLock(Long employeeId, LocalDate date, Supplier<R> supplier) {
+        return lockManager.withLock(employeeId, date, supplier);
     }
 
     // ============================================================
@@ -101,7 +111,8 @@ public abstract class BaseTimesheetService {
     }
 
     /**
-     * Carica un TimesheetDay dalla cache o dal DB con gestione cache stampede.
+     * Carica la projection di un giorno dalla cache o dal read model con
+     * gestione cache stampede.
      *
      * PATTERN: Double-checked locking 1. Check cache (fast path, no lock) 2.
      * Acquire lock 3. Re-check cache (altro thread potrebbe averla popolata) 4.
@@ -110,19 +121,17 @@ public abstract class BaseTimesheetService {
      * GARANTISCE: Nessun cache stampede, single DB call per cache miss
      * concorrenti
      */
-    protected TimesheetDay getOrLoadTimesheetDay(Employee employee, LocalDate date) {
-        Long employeeId = employee.getId();
+    protected TimesheetDayProjection getOrLoadTimesheetView(Long employeeId, LocalDate date) {
         // Prima verifica senza lock (fast path per cache hit)
-        Optional<TimesheetDay> cached = cacheManager.getDay(employeeId, date);
+        Optional<TimesheetDayProjection> cached = cacheManager.getDay(employeeId, date);
         if (cached.isPresent()) {
             log.trace("Cache HIT per employeeId={}, date={}", employeeId, date);
             return cached.get();
         }
         // Cache miss: acquisisce lock per evitare cache stampede
-        String lockKey = employeeId + "_" + date;
-        return withLock(lockKey, () -> {
+        return withLock(employeeId, date, () -> {
             // Seconda verifica con lock (double-checked locking)
-            Optional<TimesheetDay> recheckCache = cacheManager.getDay(employeeId, date);
+            Optional<TimesheetDayProjection> recheckCache = cacheManager.getDay(employeeId, date);
             if (recheckCache.isPresent()) {
                 log.trace("Cache HIT su second check per employeeId={}, date={}",
                         employeeId, date);
@@ -130,36 +139,85 @@ public abstract class BaseTimesheetService {
             }
             // Carica dal DB
             log.debug("Cache MISS definitivo, loading da DB per employeeId={}, date={}", employeeId, date);
-            TimesheetDay day = getTimesheetDayOrThrow(employee, date);
+            TimesheetDayProjection view = loadTimesheetView(employeeId, date);
             // Popola la cache DENTRO il lock (atomico)
-            cacheManager.safePopulateCache(employeeId, date, day);
-            return day;
+            cacheManager.safePopulateCache(employeeId, date, view);
+            return view;
         });
     }
 
+    /**
+     * Legge il giorno con una sola query (day + employee + items + commesse)
+     * senza idratare entity. Se non ci sono righe, la lookup del dipendente
+     * serve solo a restituire il 404 corretto. È anche il loader del
+     * refresh-ahead della day cache.
+     */
+    protected TimesheetDayProjection loadTimesheetView(Long employeeId, LocalDate date) {
+        List<TimesheetDayRowProjection> rows = timesheetDayRepository.findDayRows(employeeId, date);
+        if (rows.isEmpty()) {
+            if (!employeeRepository.existsById(employeeId)) {
+                throw new ResourceNotFoundException("Dipendente non trovato (ID: " + employeeId + ")");
+            }
+            throw new ResourceNotFoundException(
+                    "Timesheet non trovato per employeeId=" + employeeId + " il giorno " + date);
+        }
+        return TimesheetDayProjection.fromRows(rows);
+    }
+
     // ============================================================
     // TEMPLATE METHODS
     // ============================================================
     /**
-     * Template per esecuzione sicura con logging e error handling.
+     * Template per esecuzione sicura con logging e error handling. La durata
+     * viene registrata nel timer timesheet.operation (tag op, outcome).
      */
     protected <R> R executeSafely(String opName, Supplier<R> operation) {
         log.info("[{}] START", opName);
-        long start = System.currentTimeMillis();
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
             R result = operation.get();
-            long duration = System.currentTimeMillis() - start;
+            long duration = stopTimer(sample, "timesheet.operation", opName, "success");
             log.info("[{}] SUCCESS in {} ms", opName, duration);
             return result;
         } catch (Exception e) {
-            long duration = System.currentTimeMillis() - start;
+            long duration = stopTimer(sample, "timesheet.operation", opName, "error");
             log.error("[{}] FAILED after {} ms: {}", opName, duration, e.getMessage(), e);
             throw new TimesheetValidationException("Errore in " + opName + ": " + e.getMessage(), e);
         }
     }
 
     /**
-     * Template per operazioni READ-ONLY con caching.
+     * Esegue l'operazione registrandone la durata nel timer indicato.
+     */
+    protected <R> R timed(String metricName, String opName, Supplier<R> operation) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            R result = operation.get();
+            outcome = "success";
+            return result;
+        } finally {
+            stopTimer(sample, metricName, opName, outcome);
+        }
+    }
+
+    /**
+     * Ferma il sample sul timer (metricName, op, outcome) e restituisce la
+     * durata in ms. opName diventa il tag op: deve essere una costante del
+     * chiamante, mai con id o codici (ogni valore è una serie, moltiplicata
+     * dagli istogrammi dei percentili). Gli id vanno solo nei log.
+     */
+    private long stopTimer(Timer.Sample sample, String metricName, String opName, String outcome) {
+        long nanos = sample.stop(Timer.builder(metricName)
+                .tag("op", opName)
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * Template per operazioni READ-ONLY con caching. Non carica entity: in
+     * cache e in risposta c'è solo la projection immutabile.
      *
      * PATTERN: Try cache -> Lock -> Fresh read -> Validate -> Populate cache
      */
@@ -170,12 +228,11 @@ public abstract class BaseTimesheetService {
             String opName
     ) {
         return executeSafely(opName, () -> {
-            Employee employee = getEmployeeOrThrow(employeeId);
-            // Usa getOrLoadTimesheetDay che implementa double-checked locking
-            TimesheetDay day = getOrLoadTimesheetDay(employee, date);
+            // Usa getOrLoadTimesheetView che implementa double-checked locking
+            TimesheetDayProjection view = getOrLoadTimesheetView(employeeId, date);
             // Validazione (non modifica stato, safe anche fuori dal lock)
-            validator.validateRules(day, context, employee);
-            return TimesheetDayProjection.fromEntity(day);
+            validator.validateRules(view, employeeId, context);
+            return view;
         });
     }
 
@@ -197,8 +254,7 @@ public abstract class BaseTimesheetService {
     ) {
         return executeSafely(opName, () -> {
             Employee employee = getEmployeeOrThrow(employeeId);
-            String lockKey = employeeId + "_" + date;
-            return withLock(lockKey, () -> {
+            return withLock(employeeId, date, () -> {
                 // CRITICAL: Fresh read dal DB DENTRO il lock
                 TimesheetDay day = getTimesheetDayOrThrow(employee, date);
                 // Validazione con stato fresco
@@ -211,19 +267,14 @@ public abstract class BaseTimesheetService {
                 // Salva nel DB
                 TimesheetDay savedDay = timesheetDayRepository.save(modifiedDay);
                 log.debug("[{}] Day salvato su DB per employeeId={}, date={}", opName, employeeId, date);
+                // Aggiorna il rollup ore nella stessa transazione
+                rollupService.refreshDay(employeeId, date);
                 // Ripopola cache con dati salvati (dentro lock)
-                cacheManager.safePopulateCache(employeeId, date, savedDay);
-                // Invalida range cache FUORI dal critica path per performance
-                CompletableFuture.runAsync(() -> {
-                    try {
-                        cacheManager.invalidateRangeCachesContaining(employeeId, date);
-                        log.trace("[{}] Range cache invalidate per date={}", opName, date);
-                    } catch (Exception e) {
-                        log.warn("[{}] Fallita invalidazione range cache: {}",
-                                opName, e.getMessage());
-                    }
-                });
-                return TimesheetDayProjection.fromEntity(savedDay);
+                TimesheetDayProjection view = TimesheetDayProjection.fromEntity(savedDay);
+                cacheManager.safePopulateCache(employeeId, date, view);
+                // Invalida range cache FUORI dal critical path (executor di manutenzione)
+                cacheManager.invalidateRangeCachesContainingAsync(employeeId, date, opName);
+                return view;
             });
         });
     }
@@ -243,8 +294,7 @@ public abstract class BaseTimesheetService {
     ) {
         return executeSafely(opName, () -> {
             Employee employee = getEmployeeOrThrow(employeeId);
-            String lockKey = employeeId + "_" + date;
-            return withLock(lockKey, () -> {
+            return withLock(employeeId, date, () -> {
                 // Re-check existence dentro il lock (double-check)
                 if (isTimesheetDayExists(employee, date)) {
                     throw new IllegalStateException(
@@ -263,56 +313,82 @@ public abstract class BaseTimesheetService {
                 // Salva
                 TimesheetDay savedDay = timesheetDayRepository.save(modifiedDay);
                 log.debug("[{}] Nuovo day creato per employeeId={}, date={}", opName, employeeId, date);
+                rollupService.refreshDay(employeeId, date);
                 // Popola cache
-                cacheManager.safePopulateCache(employeeId, date, savedDay);
-                // Invalida range cache in modo asincrono
-                CompletableFuture.runAsync(() -> {
-                    try {
-                        cacheManager.invalidateRangeCachesContaining(employeeId, date);
-                    } catch (Exception e) {
-                        log.warn("[{}] Fallita invalidazione range cache: {}",
-                                opName, e.getMessage());
-                    }
-                });
-                return TimesheetDayProjection.fromEntity(savedDay);
+                TimesheetDayProjection view = TimesheetDayProjection.fromEntity(savedDay);
+                cacheManager.safePopulateCache(employeeId, date, view);
+                // Invalida range cache FUORI dal critical path (executor di manutenzione)
+                cacheManager.invalidateRangeCachesContainingAsync(employeeId, date, opName);
+                return view;
             });
         });
     }
 
     /**
-     * Template per query paginate con range caching.
+     * Template per query paginate con range caching. idQuery restituisce la
+     * pagina di id (fase 1), loadDayViews carica i giorni (fase 2): al più
+     * id + count + fetch, indipendentemente dal numero di giorni e item.
      */
-    protected <R> Page<R> executeOnTimesheetPaged(
+    protected Page<TimesheetDayProjection> executeOnTimesheetPaged(
             Long employeeId,
             Pageable pageable,
-            Function<TimesheetDay, R> mapper,
-            BiFunction<Employee, Pageable, Page<TimesheetDay>> queryFn,
+            Function<Pageable, Page<Long>> idQuery,
             LocalDate startDate,
             LocalDate endDate,
             String opName
     ) {
-        return executeSafely(opName, () -> {
-            Employee employee = getEmployeeOrThrow(employeeId);
+        return executeSafely(opName, () -> cacheManager
+                .getRange(employeeId, startDate, endDate, pageable)
+                .orElseGet(() -> {
+                    // Cache miss: recupera dal repository. Lo stesso caricamento
+                    // resta in cache per il refresh-ahead della pagina
+                    Supplier<Page<TimesheetDayProjection>> loader = pagedLoader(employeeId, pageable, idQuery);
+                    Page<TimesheetDayProjection> newPage = loader.get();
+                    // Salva nella cache (best-effort, non blocca su errore)
+                    try {
+                        cacheManager.putRange(employeeId, startDate, endDate, pageable, newPage, loader);
+                    } catch (Exception e) {
+                        log.warn("[{}] Fallita scrittura range cache: {}",
+                                opName, e.getMessage());
+                    }
+                    return newPage;
+                }));
+    }
 
-            // Prova a recuperare dalla cache
-            return cacheManager
-                    .getRange(employeeId, startDate, endDate,
-                            pageable.getPageNumber(), pageable.getPageSize())
-                    .map(page -> page.map(mapper))
-                    .orElseGet(() -> {
-                        // Cache miss: recupera dal repository
-                        Page<TimesheetDay> newPage = queryFn.apply(employee, pageable);
-                        // Salva nella cache (best-effort, non blocca su errore)
-                        try {
-                            cacheManager.putRange(employeeId, startDate, endDate,
-                                    pageable.getPageNumber(), pageable.getPageSize(), newPage);
-                        } catch (Exception e) {
-                            log.warn("[{}] Fallita scrittura range cache: {}",
-                                    opName, e.getMessage());
-                        }
-                        return newPage.map(mapper);
-                    });
-        });
+    /**
+     * Caricamento a due fasi di una pagina di range, senza cache.
+     */
+    protected Supplier<Page<TimesheetDayProjection>> pagedLoader(
+            Long employeeId,
+            Pageable pageable,
+            Function<Pageable, Page<Long>> idQuery
+    ) {
+        return () -> {
+            Page<Long> ids = idQuery.apply(pageable);
+            if (ids.isEmpty()) {
+                // Pagina vuota: il dipendente si verifica solo qui, per il 404
+                getEmployeeOrThrow(employeeId);
+            }
+            return new PageImpl<>(loadDayViews(ids.getContent()), pageable, ids.getTotalElements());
+        };
+    }
+
+    /**
+     * Fase 2 del caricamento di un range: una query fetch-join porta
+     * employee, item e commesse dei giorni indicati. Le projection seguono
+     * l'ordine degli id; un giorno cancellato tra le due fasi viene saltato.
+     */
+    protected List<TimesheetDayProjection> loadDayViews(List<Long> dayIds) {
+        if (dayIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, TimesheetDay> byId = timesheetDayRepository.findAllWithItemsByIdIn(dayIds).stream()
+                .collect(Collectors.toMap(TimesheetDay::getId, Function.identity()));
+        return dayIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(TimesheetDayProjection::fromEntity)
+                .toList();
     }
 
     /**
@@ -334,59 +410,120 @@ public abstract class BaseTimesheetService {
         return executeSafely(opName, () -> {
             Employee employee = getEmployeeOrThrow(employeeId);
 
-            String lockKey = employeeId + "_" + date;
-            return withLock(lockKey, () -> {
+            return withLock(employeeId, date, () -> {
                 // Fresh read dal DB
                 TimesheetDay day = getTimesheetDayOrThrow(employee, date);
-                // Validazione globale
-                validator.validateRules(day, context, employee);
-                // Recupera e valida l'item specifico
-                TimesheetItem item;
-                if (itemId != null) {
-                    item = day.getItems().stream()
-                            .filter(i -> i.getId().equals(itemId))
-                            .findFirst()
-                            .orElseThrow(() -> new ResourceNotFoundException(
-                            "TimesheetItem non trovato: " + itemId));
-                    // SECURITY: Verifica ownership esplicita
-                    if (item.getTimesheetDay() != null && !item.getTimesheetDay().getId().equals(day.getId())) {
-                        throw new TimesheetValidationException(
-                                "SECURITY VIOLATION: Item " + itemId
-                                + " non appartiene al day " + day.getId());
-                    }
-                    log.debug("[{}] Ownership validation OK per item {}", opName, itemId);
-                } else {
-                    // Crea nuovo item con ownership immediata
-                    item = new TimesheetItem();
-                    item.setTimesheetDay(day);
-                }
+                applyItemEdit(day, employee, new ItemEdit(itemId, context, operation, opName), () -> cacheManager.invalidateDay(employeeId, date));
+                return saveItemEdits(employeeId, date, day, opName);
+            });
+        });
+    }
 
-                // Invalida cache
-                cacheManager.invalidateDay(employeeId, date);
-                // Esegue l'operazione
-                TimesheetItem resultItem = operation.apply(day, item);
-                // Assicura che l'item sia nel day
-                if (!day.getItems().contains(resultItem)) {
-                    day.addItem(resultItem);
+    /**
+     * Template per un batch di modifiche item sullo stesso giorno, raccolte
+     * dal WriteCoalescer: un solo lock, una fresh read, un save, un refresh
+     * del rollup e una ripopolazione della cache per tutto il batch.
+     *
+     * Ogni modifica passa dalle stesse validazioni del percorso singolo; se
+     * fallisce viene scartata con il proprio errore (le operazioni di dominio
+     * validano prima di modificare il day) e le altre proseguono. Il chiamante
+     * esegue il template in una transazione e pubblica gli esiti dopo il commit.
+     */
+    protected void executeOnTimesheetItemBatch(
+            Long employeeId,
+            LocalDate date,
+            List<WriteCoalescer.Pending<ItemEdit, TimesheetDayProjection>> batch
+    ) {
+        Employee employee = getEmployeeOrThrow(employeeId);
+
+        withLock(employeeId, date, () -> {
+            TimesheetDay day = getTimesheetDayOrThrow(employee, date);
+            // Una sola invalidazione per tutto il batch, prima della prima modifica
+            cacheManager.invalidateDay(employeeId, date);
+            int applied = 0;
+            for (WriteCoalescer.Pending<ItemEdit, TimesheetDayProjection> pending : batch) {
+                try {
+                    applyItemEdit(day, employee, pending.edit(), () -> {
+                    });
+                    applied++;
+                } catch (RuntimeException e) {
+                    log.debug("[{}] Modifica scartata dal batch: {}", pending.edit().opName(), e.getMessage());
+                    pending.fail(e);
                 }
-                // Salva
-                TimesheetDay savedDay = timesheetDayRepository.save(day);
-                log.debug("[{}] Item operation salvata: itemId={}", opName, resultItem.getId());
-                // Ripopola cache
-                cacheManager.safePopulateCache(employeeId, date, savedDay);
-                // Invalida range asincrono
-                CompletableFuture.runAsync(() -> {
-                    try {
-                        cacheManager.invalidateRangeCachesContaining(employeeId, date);
-                    } catch (Exception e) {
-                        log.warn("[{}] Fallita invalidazione range: {}", opName, e.getMessage());
-                    }
-                });
-                return TimesheetDayProjection.fromEntity(savedDay);
-            });
+            }
+            if (applied == 0) {
+                return null;
+            }
+            TimesheetDayProjection view = saveItemEdits(employeeId, date, day, "itemBatch");
+            batch.stream().filter(p -> !p.failed()).forEach(p -> p.succeed(view));
+            log.debug("[itemBatch] {} modifiche su {} salvate per employee {} data {}", applied, batch.size(), employeeId, date);
+            return null;
         });
     }
 
+    /**
+     * Una modifica a un item: stessa forma per il percorso singolo e per i
+     * batch del coalescer.
+     */
+    protected record ItemEdit(
+            Long itemId,
+            OperationContext context,
+            BiFunction<TimesheetDay, TimesheetItem, TimesheetItem> operation,
+            String opName
+    ) {
+    }
+
+    /**
+     * Validate + Ownership -> Invalidate -> Modify su un day già letto sotto
+     * lock. Non salva.
+     */
+    private void applyItemEdit(TimesheetDay day, Employee employee, ItemEdit edit, Runnable invalidate) {
+        // Validazione globale
+        validator.validateRules(day, edit.context(), employee);
+        // Recupera e valida l'item specifico
+        TimesheetItem item;
+        if (edit.itemId() != null) {
+            item = day.getItems().stream()
+                    .filter(i -> i.getId().equals(edit.itemId()))
+                    .findFirst()
+                    .orElseThrow(() -> new ResourceNotFoundException(
+                    "TimesheetItem non trovato: " + edit.itemId()));
+            // SECURITY: Verifica ownership esplicita
+            if (item.getTimesheetDay() != null && !item.getTimesheetDay().getId().equals(day.getId())) {
+                throw new TimesheetValidationException(
+                        "SECURITY VIOLATION: Item " + edit.itemId()
+                        + " non appartiene al day " + day.getId());
+            }
+            log.debug("[{}] Ownership validation OK per item {}", edit.opName(), edit.itemId());
+        } else {
+            // Crea nuovo item con ownership immediata
+            item = new TimesheetItem();
+            item.setTimesheetDay(day);
+        }
+
+        // Invalida cache
+        invalidate.run();
+        // Esegue l'operazione
+        TimesheetItem resultItem = edit.operation().apply(day, item);
+        // Assicura che l'item sia nel day (la delete non restituisce item)
+        if (resultItem != null && !day.getItems().contains(resultItem)) {
+            day.addItem(resultItem);
+        }
+    }
+
+    private TimesheetDayProjection saveItemEdits(Long employeeId, LocalDate date, TimesheetDay day, String opName) {
+        // Salva
+        TimesheetDay savedDay = timesheetDayRepository.save(day);
+        log.debug("[{}] Item operation salvata: day={}", opName, savedDay.getId());
+        rollupService.refreshDay(employeeId, date);
+        // Ripopola cache
+        TimesheetDayProjection view = TimesheetDayProjection.fromEntity(savedDay);
+        cacheManager.safePopulateCache(employeeId, date, view);
+        // Invalida range cache FUORI dal critical path (executor di manutenzione)
+        cacheManager.invalidateRangeCachesContainingAsync(employeeId, date, opName);
+        return view;
+    }
+
     @FunctionalInterface
     protected interface ReportQueryExecutor<T> {
 
@@ -404,15 +541,70 @@ public abstract class BaseTimesheetService {
             Function<T, R> transformer,
             String operationName
     ) {
-        return executeSafely(operationName, () -> {
+        return executeReportQueryBatched(
+                startDate,
+                endDate,
+                pageable,
+                executor,
+                rows -> rows.stream().map(transformer).toList(),
+                operationName
+        );
+    }
+
+    /**
+     * Come executeReportQuery ma il transformer riceve l'intera pagina: i
+     * dati collegati alle righe si caricano con una query per pagina invece
+     * che una per riga. Query e trasformazione sono misurate dal timer
+     * timesheet.report.query.
+     */
+    protected <T, R> Page<R> executeReportQueryBatched(
+            LocalDate startDate,
+            LocalDate endDate,
+            Pageable pageable,
+            ReportQueryExecutor<T> executor,
+            Function<List<T>, List<R>> pageTransformer,
+            String operationName
+    ) {
+        return executeSafely(operationName, () -> timed("timesheet.report.query", operationName, () -> {
             // Parsing sicuro del range date
             LocalDate[] safeDate = validator.parseDateRange(startDate, endDate);
             LocalDate safeStart = safeDate[0];
             LocalDate safeEnd = safeDate[1];
             // Esecuzione query report
             Page<T> rawPage = executor.execute(safeStart, safeEnd, pageable);
-            List<R> content = rawPage.getContent().stream().map(transformer).toList();
+            List<R> content = pageTransformer.apply(rawPage.getContent());
             return new PageImpl<>(content, pageable, rawPage.getTotalElements());
+        }));
+    }
+
+    // =============================================================
+    // Paginazione keyset (seek): nessun OFFSET e nessuna query di count
+    // =============================================================
+    @FunctionalInterface
+    protected interface KeysetQueryExecutor<T> {
+
+        List<T> execute(LocalDate start, LocalDate end, KeysetCursor after, Pageable limit);
+    }
+
+    /**
+     * Esegue la query chiedendo size + 1 righe dopo il cursore: la riga in
+     * più indica se esiste una pagina successiva. keyOf estrae dalla riga la
+     * chiave di ordinamento da cui ripartire.
+     */
+    protected <T, R> CursorSlice<R> executeKeysetQuery(
+            LocalDate startDate,
+            LocalDate endDate,
+            KeysetCursor after,
+            int size,
+            KeysetQueryExecutor<T> executor,
+            Function<T, KeysetCursor> keyOf,
+            Function<List<T>, List<R>> pageTransformer,
+            String operationName
+    ) {
+        return executeSafely(operationName, () -> {
+            LocalDate[] safeDate = validator.parseDateRange(startDate, endDate);
+            List<T> rows = executor.execute(safeDate[0], safeDate[1], after, PageRequest.of(0, size + 1));
+            return CursorSlice.fromLookahead(rows, size, keyOf, pageTransformer);
         });
     }
 }
@@ -1,60 +1,178 @@
 package com.brt.TimesheetService.modules.timesheet.application;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import com.brt.TimesheetService.modules.timesheet.application.caching.ReportCacheManager;
+import com.brt.TimesheetService.modules.timesheet.application.caching.ReportCacheManager.ReportCacheKey;
+import com.brt.TimesheetService.modules.timesheet.application.rollup.HoursRollupService;
 import com.brt.TimesheetService.modules.timesheet.application.validator.TimesheetValidator;
-import com.brt.TimesheetService.modules.timesheet.infrastructure.TimesheetItemRepository;
+import com.brt.TimesheetService.modules.timesheet.infrastructure.HoursRollupDailyRepository;
+import com.brt.TimesheetService.modules.timesheet.infrastructure.HoursRollupMonthlyRepository;
 import com.brt.TimesheetService.shared.dto.CommessaHoursDTO;
+import com.brt.TimesheetService.shared.projection.CommessaEmployeeNameProjection;
+import com.brt.TimesheetService.shared.projection.CommessaHoursProjection;
 import com.brt.TimesheetService.shared.projection.DailyHoursReportProjection;
 import com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection;
 import com.brt.TimesheetService.shared.projection.EmployeeTotalHoursProjection;
+import com.brt.TimesheetService.shared.util.CursorSlice;
+import com.brt.TimesheetService.shared.util.KeysetCursor;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Report ore. Tutte le aggregazioni leggono le tabelle di rollup mantenute da
+ * HoursRollupService invece di sommare timesheet_items a ogni richiesta. I
+ * risultati passano dalla ReportCacheManager, invalidata dal write path.
+ */
 @Service
 public class ReportService extends BaseTimesheetService {
 
-    private final TimesheetItemRepository timesheetItemRepository;
+    private static final Logger log = LoggerFactory.getLogger(ReportService.class);
+
+    // Id per singola query IN nel caricamento dei nomi dipendenti
+    private static final int NAMES_BATCH_SIZE = 1000;
+
+    private final HoursRollupDailyRepository dailyRollup;
+    private final HoursRollupMonthlyRepository monthlyRollup;
+    private final ReportCacheManager reportCache;
 
     public ReportService(
             TimesheetValidator validator,
-            TimesheetItemRepository timesheetItemRepository
+            HoursRollupDailyRepository dailyRollup,
+            HoursRollupMonthlyRepository monthlyRollup,
+            ReportCacheManager reportCache,
+            MeterRegistry meterRegistry
+    ) {
+        super(null, validator, null, null, null, null, meterRegistry);
+        this.dailyRollup = dailyRollup;
+        this.monthlyRollup = monthlyRollup;
+        this.reportCache = reportCache;
+    }
+
+    // =============================================================
+    // SCELTA DEL ROLLUP
+    // =============================================================
+    /**
+     * Range allineati a mesi interi leggono il rollup mensile (parametri =
+     * primo giorno del mese), tutti gli altri il rollup giornaliero.
+     */
+    private static <T> ReportQueryExecutor<T> fromRollup(
+            ReportQueryExecutor<T> monthly,
+            ReportQueryExecutor<T> daily
+    ) {
+        return (s, e, p) -> HoursRollupService.isMonthAligned(s, e)
+                ? monthly.execute(s, e.withDayOfMonth(1), p)
+                : daily.execute(s, e, p);
+    }
+
+    /**
+     * Nomi dei dipendenti per ogni commessa indicata, a blocchi di
+     * NAMES_BATCH_SIZE id per query.
+     */
+    private Map<Long, List<String>> findEmployeeNamesByCommesse(List<Long> commessaIds, LocalDate startDate, LocalDate endDate) {
+        boolean monthly = HoursRollupService.isMonthAligned(startDate, endDate);
+        Map<Long, List<String>> namesByCommessa = new HashMap<>();
+        for (int from = 0; from < commessaIds.size(); from += NAMES_BATCH_SIZE) {
+            List<Long> chunk = commessaIds.subList(from, Math.min(from + NAMES_BATCH_SIZE, commessaIds.size()));
+            List<CommessaEmployeeNameProjection> rows = monthly
+                    ? monthlyRollup.findDistinctEmployeeNamesByCommesse(chunk, startDate, endDate.withDayOfMonth(1))
+                    : dailyRollup.findDistinctEmployeeNamesByCommesse(chunk, startDate, endDate);
+            for (CommessaEmployeeNameProjection row : rows) {
+                namesByCommessa.computeIfAbsent(row.commessaId(), id -> new ArrayList<>()).add(row.employeeName());
+            }
+        }
+        return namesByCommessa;
+    }
+
+    private static <T> KeysetQueryExecutor<T> fromRollupKeyset(
+            KeysetQueryExecutor<T> monthly,
+            KeysetQueryExecutor<T> daily
+    ) {
+        return (s, e, after, limit) -> HoursRollupService.isMonthAligned(s, e)
+                ? monthly.execute(s, e.withDayOfMonth(1), after, limit)
+                : daily.execute(s, e, after, limit);
+    }
+
+    // Una sola query per i nomi di tutte le commesse della pagina
+    private List<CommessaHoursDTO> withEmployeeNames(List<CommessaHoursProjection> rows, LocalDate startDate, LocalDate endDate) {
+        List<Long> commessaIds = rows.stream().map(CommessaHoursProjection::commessaId).toList();
+        Map<Long, List<String>> names = findEmployeeNamesByCommesse(commessaIds, startDate, endDate);
+        return rows.stream()
+                .map(proj -> new CommessaHoursDTO(
+                        proj.commessaId(),
+                        proj.commessaCode(),
+                        proj.totalHours(),
+                        names.getOrDefault(proj.commessaId(), List.of())
+                ))
+                .toList();
+    }
+
+    // =============================================================
+    // REPORT CACHE
+    // =============================================================
+    /**
+     * Risultato dalla report cache. La chiave usa il range già normalizzato
+     * dal validator, così richieste equivalenti condividono l'entry.
+     */
+    private <R> R cached(
+            String type,
+            Long employeeId,
+            String commessaCode,
+            LocalDate startDate,
+            LocalDate endDate,
+            String page,
+            Supplier<R> loader
     ) {
-        super(null, validator, null, null);
-        this.timesheetItemRepository = timesheetItemRepository;
+        LocalDate[] range = validator.parseDateRange(startDate, endDate);
+        // Gli id restano nei log: i nomi operazione sono tag delle metriche, quindi costanti
+        log.debug("[{}] employeeId={}, commessa={}, range={} - {}, page={}",
+                type, employeeId, commessaCode, range[0], range[1], page);
+        return reportCache.get(new ReportCacheKey(type, employeeId, commessaCode, range[0], range[1], page), loader);
+    }
+
+    private static String offsetPage(Pageable pageable) {
+        return pageable.isPaged()
+                ? pageable.getPageNumber() + ":" + pageable.getPageSize() + ":" + pageable.getSort()
+                : "all:" + pageable.getSort();
+    }
+
+    private static String keysetPage(KeysetCursor after, int size) {
+        return "after=" + (after == null ? "" : after.encode()) + ":" + size;
     }
 
     // =============================================================
     // METODI PUBBLICI DI BUSINESS
     // =============================================================
     /**
-     * Ore totali per commessa con lista di dipendenti
+     * Ore totali per commessa con lista di dipendenti. Con
+     * Pageable.unpaged() restituisce tutte le commesse del range.
      */
     public Page<CommessaHoursDTO> getTotalHoursByCommessa(
             LocalDate startDate,
             LocalDate endDate,
             Pageable pageable
     ) {
-        return executeReportQuery(
-                startDate,
-                endDate,
-                pageable,
-                (s, e, p) -> timesheetItemRepository.aggregateHoursByCommessa(s, e, p),
-                proj -> {
-                    List<String> employeeNames = timesheetItemRepository.findDistinctEmployeeNamesByCommessaAndDate(proj.commessaId(), startDate, endDate);
-                    return new CommessaHoursDTO(
-                            proj.commessaId(),
-                            proj.commessaCode(),
-                            proj.totalHours(),
-                            employeeNames
-                    );
-                },
-                "getTotalHoursByCommessa"
-        );
+        return cached("getTotalHoursByCommessa", null, null, startDate, endDate, offsetPage(pageable),
+                () -> executeReportQueryBatched(
+                        startDate,
+                        endDate,
+                        pageable,
+                        fromRollup(monthlyRollup::aggregateHoursByCommessa, dailyRollup::aggregateHoursByCommessa),
+                        rows -> withEmployeeNames(rows, startDate, endDate),
+                        "getTotalHoursByCommessa"
+                ));
     }
 
     /**
@@ -66,14 +184,17 @@ public class ReportService extends BaseTimesheetService {
             LocalDate endDate,
             Pageable pageable
     ) {
-        return executeReportQuery(
-                startDate,
-                endDate,
-                pageable,
-                (s, e, p) -> timesheetItemRepository.getTotalHoursPerEmployeeForCommessa(commessaCode, s, e, p),
-                Function.identity(),
-                "getTotalHoursPerEmployeeForCommessa[" + commessaCode + "]"
-        );
+        return cached("getTotalHoursPerEmployeeForCommessa", null, commessaCode, startDate, endDate, offsetPage(pageable),
+                () -> executeReportQuery(
+                        startDate,
+                        endDate,
+                        pageable,
+                        fromRollup(
+                                (s, e, p) -> monthlyRollup.getTotalHoursPerEmployeeForCommessa(commessaCode, s, e, p),
+                                (s, e, p) -> dailyRollup.getTotalHoursPerEmployeeForCommessa(commessaCode, s, e, p)),
+                        Function.identity(),
+                        "getTotalHoursPerEmployeeForCommessa"
+                ));
     }
 
     /**
@@ -84,14 +205,15 @@ public class ReportService extends BaseTimesheetService {
             LocalDate endDate,
             Pageable pageable
     ) {
-        return executeReportQuery(
-                startDate,
-                endDate,
-                pageable,
-                (s, e, p) -> timesheetItemRepository.aggregateHoursByEmployee(s, e, p),
-                Function.identity(),
-                "getTotalHoursByEmployee"
-        );
+        return cached("getTotalHoursByEmployee", null, null, startDate, endDate, offsetPage(pageable),
+                () -> executeReportQuery(
+                        startDate,
+                        endDate,
+                        pageable,
+                        fromRollup(monthlyRollup::aggregateHoursByEmployee, dailyRollup::aggregateHoursByEmployee),
+                        Function.identity(),
+                        "getTotalHoursByEmployee"
+                ));
     }
 
     /**
@@ -103,14 +225,15 @@ public class ReportService extends BaseTimesheetService {
             LocalDate endDate,
             Pageable pageable
     ) {
-        return executeReportQuery(
-                startDate,
-                endDate,
-                pageable,
-                (s, e, p) -> timesheetItemRepository.aggregateDailyHoursByCommessaAndDate(commessaCode, s, e, p),
-                Function.identity(),
-                "getReportForSingleCommessa[" + commessaCode + "]"
-        );
+        return cached("getReportForSingleCommessa", null, commessaCode, startDate, endDate, offsetPage(pageable),
+                () -> executeReportQuery(
+                        startDate,
+                        endDate,
+                        pageable,
+                        (s, e, p) -> dailyRollup.aggregateDailyHoursByCommessaAndDate(commessaCode, s, e, p),
+                        Function.identity(),
+                        "getReportForSingleCommessa"
+                ));
     }
 
     /**
@@ -121,14 +244,15 @@ public class ReportService extends BaseTimesheetService {
             LocalDate endDate,
             Pageable pageable
     ) {
-        return executeReportQuery(
-                startDate,
-                endDate,
-                pageable,
-                (s, e, p) -> timesheetItemRepository.aggregateDailyHoursAllCommesseByDate(s, e, p),
-                Function.identity(),
-                "getReportForAllCommessa"
-        );
+        return cached("getReportForAllCommessa", null, null, startDate, endDate, offsetPage(pageable),
+                () -> executeReportQuery(
+                        startDate,
+                        endDate,
+                        pageable,
+                        (s, e, p) -> dailyRollup.aggregateDailyHoursAllCommesseByDate(s, e, p),
+                        Function.identity(),
+                        "getReportForAllCommessa"
+                ));
     }
 
     /**
@@ -141,14 +265,17 @@ public class ReportService extends BaseTimesheetService {
             LocalDate endDate,
             Pageable pageable
     ) {
-        return executeReportQuery(
-                startDate,
-                endDate,
-                pageable,
-                (s, e, p) -> timesheetItemRepository.getHoursByEmployeeAndCommessa(employeeId, commessaCode, s, e, p),
-                Function.identity(),
-                "getEmployeeHoursForCommessa[emp=" + employeeId + ", comm=" + commessaCode + "]"
-        );
+        return cached("getEmployeeHoursForCommessa", employeeId, commessaCode, startDate, endDate, offsetPage(pageable),
+                () -> executeReportQuery(
+                        startDate,
+                        endDate,
+                        pageable,
+                        fromRollup(
+                                (s, e, p) -> monthlyRollup.getHoursByEmployeeAndCommessa(employeeId, commessaCode, s, e, p),
+                                (s, e, p) -> dailyRollup.getHoursByEmployeeAndCommessa(employeeId, commessaCode, s, e, p)),
+                        Function.identity(),
+                        "getEmployeeHoursForCommessa"
+                ));
     }
 
     /**
@@ -160,13 +287,186 @@ public class ReportService extends BaseTimesheetService {
             LocalDate endDate,
             Pageable pageable
     ) {
-        return executeReportQuery(
-                startDate,
-                endDate,
-                pageable,
-                (s, e, p) -> timesheetItemRepository.getHoursByEmployeeAllCommesse(employeeId, s, e, p),
-                Function.identity(),
-                "getEmployeeHoursAllCommesse[emp=" + employeeId + "]"
-        );
+        return cached("getEmployeeHoursAllCommesse", employeeId, null, startDate, endDate, offsetPage(pageable),
+                () -> executeReportQuery(
+                        startDate,
+                        endDate,
+                        pageable,
+                        fromRollup(
+                                (s, e, p) -> monthlyRollup.getHoursByEmployeeAllCommesse(employeeId, s, e, p),
+                                (s, e, p) -> dailyRollup.getHoursByEmployeeAllCommesse(employeeId, s, e, p)),
+                        Function.identity(),
+                        "getEmployeeHoursAllCommesse"
+                ));
+    }
+
+    // =============================================================
+    // VARIANTI KEYSET (parametro "after", nessuna query di count)
+    // =============================================================
+    public CursorSlice<CommessaHoursDTO> getTotalHoursByCommessa(
+            LocalDate startDate,
+            LocalDate endDate,
+            KeysetCursor after,
+            int size
+    ) {
+        return cached("getTotalHoursByCommessa[keyset]", null, null, startDate, endDate, keysetPage(after, size),
+                () -> executeKeysetQuery(
+                        startDate,
+                        endDate,
+                        after,
+                        size,
+                        fromRollupKeyset(
+                                (s, e, a, l) -> monthlyRollup.aggregateHoursByCommessaAfter(s, e, commessaOf(a), l),
+                                (s, e, a, l) -> dailyRollup.aggregateHoursByCommessaAfter(s, e, commessaOf(a), l)),
+                        row -> KeysetCursor.ofCommessa(row.commessaId()),
+                        rows -> withEmployeeNames(rows, startDate, endDate),
+                        "getTotalHoursByCommessa[keyset]"
+                ));
+    }
+
+    public CursorSlice<EmployeeCommessaHoursProjection> getTotalHoursPerEmployeeForCommessa(
+            String commessaCode,
+            LocalDate startDate,
+            LocalDate endDate,
+            KeysetCursor after,
+            int size
+    ) {
+        return cached("getTotalHoursPerEmployeeForCommessa[keyset]", null, commessaCode, startDate, endDate, keysetPage(after, size),
+                () -> executeKeysetQuery(
+                        startDate,
+                        endDate,
+                        after,
+                        size,
+                        fromRollupKeyset(
+                                (s, e, a, l) -> monthlyRollup.getTotalHoursPerEmployeeForCommessaAfter(commessaCode, s, e, employeeOf(a), l),
+                                (s, e, a, l) -> dailyRollup.getTotalHoursPerEmployeeForCommessaAfter(commessaCode, s, e, employeeOf(a), l)),
+                        row -> KeysetCursor.ofEmployee(row.employeeId()),
+                        Function.identity(),
+                        "getTotalHoursPerEmployeeForCommessa[keyset]"
+                ));
+    }
+
+    public CursorSlice<EmployeeTotalHoursProjection> getTotalHoursByEmployee(
+            LocalDate startDate,
+            LocalDate endDate,
+            KeysetCursor after,
+            int size
+    ) {
+        return cached("getTotalHoursByEmployee[keyset]", null, null, startDate, endDate, keysetPage(after, size),
+                () -> executeKeysetQuery(
+                        startDate,
+                        endDate,
+                        after,
+                        size,
+                        fromRollupKeyset(
+                                (s, e, a, l) -> monthlyRollup.aggregateHoursByEmployeeAfter(s, e, employeeOf(a), l),
+                                (s, e, a, l) -> dailyRollup.aggregateHoursByEmployeeAfter(s, e, employeeOf(a), l)),
+                        row -> KeysetCursor.ofEmployee(row.employeeId()),
+                        Function.identity(),
+                        "getTotalHoursByEmployee[keyset]"
+                ));
+    }
+
+    public CursorSlice<DailyHoursReportProjection> getReportForSingleCommessa(
+            String commessaCode,
+            LocalDate startDate,
+            LocalDate endDate,
+            KeysetCursor after,
+            int size
+    ) {
+        return cached("getReportForSingleCommessa[keyset]", null, commessaCode, startDate, endDate, keysetPage(after, size),
+                () -> executeKeysetQuery(
+                        startDate,
+                        endDate,
+                        after,
+                        size,
+                        (s, e, a, l) -> dailyRollup.aggregateDailyHoursByCommessaAndDateAfter(
+                                commessaCode, s, e, dateOf(a), employeeOf(a), commessaOf(a), l),
+                        ReportService::dailyKey,
+                        Function.identity(),
+                        "getReportForSingleCommessa[keyset]"
+                ));
+    }
+
+    public CursorSlice<DailyHoursReportProjection> getReportForAllCommessa(
+            LocalDate startDate,
+            LocalDate endDate,
+            KeysetCursor after,
+            int size
+    ) {
+        return cached("getReportForAllCommessa[keyset]", null, null, startDate, endDate, keysetPage(after, size),
+                () -> executeKeysetQuery(
+                        startDate,
+                        endDate,
+                        after,
+                        size,
+                        (s, e, a, l) -> dailyRollup.aggregateDailyHoursAllCommesseByDateAfter(
+                                s, e, dateOf(a), employeeOf(a), commessaOf(a), l),
+                        ReportService::dailyKey,
+                        Function.identity(),
+                        "getReportForAllCommessa[keyset]"
+                ));
+    }
+
+    public CursorSlice<EmployeeCommessaHoursProjection> getEmployeeHoursForCommessa(
+            Long employeeId,
+            String commessaCode,
+            LocalDate startDate,
+            LocalDate endDate,
+            KeysetCursor after,
+            int size
+    ) {
+        return cached("getEmployeeHoursForCommessa[keyset]", employeeId, commessaCode, startDate, endDate, keysetPage(after, size),
+                () -> executeKeysetQuery(
+                        startDate,
+                        endDate,
+                        after,
+                        size,
+                        fromRollupKeyset(
+                                (s, e, a, l) -> monthlyRollup.getHoursByEmployeeAndCommessaAfter(employeeId, commessaCode, s, e, commessaOf(a), l),
+                                (s, e, a, l) -> dailyRollup.getHoursByEmployeeAndCommessaAfter(employeeId, commessaCode, s, e, commessaOf(a), l)),
+                        row -> KeysetCursor.ofCommessa(row.commessaId()),
+                        Function.identity(),
+                        "getEmployeeHoursForCommessa[keyset]"
+                ));
+    }
+
+    public CursorSlice<EmployeeCommessaHoursProjection> getEmployeeHoursAllCommesse(
+            Long employeeId,
+            LocalDate startDate,
+            LocalDate endDate,
+            KeysetCursor after,
+            int size
+    ) {
+        return cached("getEmployeeHoursAllCommesse[keyset]", employeeId, null, startDate, endDate, keysetPage(after, size),
+                () -> executeKeysetQuery(
+                        startDate,
+                        endDate,
+                        after,
+                        size,
+                        fromRollupKeyset(
+                                (s, e, a, l) -> monthlyRollup.getHoursByEmployeeAllCommesseAfter(employeeId, s, e, commessaOf(a), l),
+                                (s, e, a, l) -> dailyRollup.getHoursByEmployeeAllCommesseAfter(employeeId, s, e, commessaOf(a), l)),
+                        row -> KeysetCursor.ofCommessa(row.commessaId()),
+                        Function.identity(),
+                        "getEmployeeHoursAllCommesse[keyset]"
+                ));
+    }
+
+    private static KeysetCursor dailyKey(DailyHoursReportProjection row) {
+        return new KeysetCursor(row.date(), row.employeeId(), row.commessaId());
+    }
+
+    // Componenti del cursore, null sulla prima pagina
+    private static LocalDate dateOf(KeysetCursor after) {
+        return after == null ? null : after.date();
+    }
+
+    private static Long employeeOf(KeysetCursor after) {
+        return after == null ? null : after.employeeId();
+    }
+
+    private static Long commessaOf(KeysetCursor after) {
+        return after == null ? null : after.commessaId();
     }
 }
@@ -2,29 +2,60 @@ package com.brt.TimesheetService.modules.timesheet.application;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.brt.TimesheetService.modules.commessa.application.CommessaResolver;
+import com.brt.TimesheetService.modules.commessa.domain.Commessa;
 import com.brt.TimesheetService.modules.timesheet.application.caching.TimesheetCacheManager;
+import com.brt.TimesheetService.modules.timesheet.application.coalescing.WriteCoalescer;
+import com.brt.TimesheetService.modules.timesheet.application.locking.TimesheetLockManager;
+import com.brt.TimesheetService.modules.timesheet.application.rollup.HoursRollupService;
 import com.brt.TimesheetService.modules.timesheet.application.validator.OperationContext;
 import com.brt.TimesheetService.modules.timesheet.application.validator.TimesheetValidator;
 import com.brt.TimesheetService.modules.timesheet.domain.AbsenceType;
 import com.brt.TimesheetService.modules.timesheet.domain.TimesheetDay;
+import com.brt.TimesheetService.modules.timesheet.domain.TimesheetItem;
 import com.brt.TimesheetService.modules.timesheet.domain.service.TimesheetDomainService;
 import com.brt.TimesheetService.modules.timesheet.infrastructure.TimesheetDayRepository;
 import com.brt.TimesheetService.modules.user.domain.Employee;
 import com.brt.TimesheetService.modules.user.infrastructure.EmployeeRepository;
 import com.brt.TimesheetService.shared.dto.TimesheetDayDTO;
 import com.brt.TimesheetService.shared.dto.TimesheetItemDTO;
+import com.brt.TimesheetService.shared.exception.ResourceNotFoundException;
 import com.brt.TimesheetService.shared.exception.TimesheetValidationException;
+import com.brt.TimesheetService.shared.projection.BulkAbsenceProjection;
 import com.brt.TimesheetService.shared.projection.TimesheetDayProjection;
+import com.brt.TimesheetService.shared.projection.TimesheetDaySaveResult;
+import com.brt.TimesheetService.shared.util.CursorSlice;
+import com.brt.TimesheetService.shared.util.DayKey;
+import com.brt.TimesheetService.shared.util.KeysetCursor;
+import com.brt.TimesheetService.shared.util.PageableUtils;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * Application Service per la gestione dei timesheet.
@@ -47,17 +78,40 @@ public class TimesheetApplicationService extends BaseTimesheetService {
 
     private static final Logger log = LoggerFactory.getLogger(TimesheetApplicationService.class);
 
+    // Dipendenti per singola istruzione di upsert assenze (limita la dimensione dei parametri IN)
+    private static final int ABSENCE_BATCH_EMPLOYEES = 500;
+    // Giorni per singolo salvataggio bulk (una griglia mensile)
+    private static final int MAX_BULK_DAYS = 31;
+
     private final TimesheetDomainService domainService;
+    private final CommessaResolver commessaResolver;
+    private final WriteCoalescer writeCoalescer;
+    // Transazione propria per i batch del coalescer: il rollback della richiesta leader non deve annullare le modifiche altrui
+    private final TransactionTemplate batchTransaction;
+    // Transazione delle modifiche item senza coalescing (i metodi item sono NOT_SUPPORTED)
+    private final TransactionTemplate itemTransaction;
 
     public TimesheetApplicationService(
             TimesheetDayRepository timesheetDayRepository,
             EmployeeRepository employeeRepository,
             TimesheetDomainService domainService,
+            CommessaResolver commessaResolver,
             TimesheetValidator validator,
-            TimesheetCacheManager cacheManager
+            TimesheetCacheManager cacheManager,
+            TimesheetLockManager lockManager,
+            HoursRollupService rollupService,
+            WriteCoalescer writeCoalescer,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
     ) {
-        super(timesheetDayRepository, validator, cacheManager, employeeRepository);
+        super(timesheetDayRepository, validator, cacheManager, employeeRepository, lockManager, rollupService, meterRegistry);
         this.domainService = domainService;
+        this.commessaResolver = commessaResolver;
+        this.writeCoalescer = writeCoalescer;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.itemTransaction = new TransactionTemplate(transactionManager);
+        cacheManager.registerDayLoader(this::loadTimesheetView);
     }
 
     // ============================================================
@@ -83,17 +137,48 @@ public class TimesheetApplicationService extends BaseTimesheetService {
 
     public Page<TimesheetDayProjection> getTimesheets(Long employeeId, LocalDate startDate, LocalDate endDate, Pageable pageable) {
         LocalDate[] range = validator.parseDateRange(startDate, endDate);
+        // Senza sort esplicito le pagine seguono la data: l'ordine deve essere stabile tra una pagina e l'altra
+        Pageable sorted = pageable.getSort().isSorted()
+                ? pageable
+                : PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("date"));
         return executeOnTimesheetPaged(
                 employeeId,
-                pageable,
-                TimesheetDayProjection::fromEntity,
-                (emp, pg) -> timesheetDayRepository.findByEmployeeAndDateBetween(emp, range[0], range[1], pg),
+                sorted,
+                rangeIdQuery(employeeId, range[0], range[1]),
                 range[0],
                 range[1],
                 "getTimesheets[range]"
         );
     }
 
+    private Function<Pageable, Page<Long>> rangeIdQuery(Long employeeId, LocalDate start, LocalDate end) {
+        return pg -> timesheetDayRepository.findIdsByEmployeeAndDateBetween(employeeId, start, end, pg);
+    }
+
+    /**
+     * Variante keyset di getTimesheets: ordina per data e riparte dopo la
+     * data del cursore, senza cache range e senza query di count.
+     */
+    public CursorSlice<TimesheetDayProjection> getTimesheets(Long employeeId, LocalDate startDate, LocalDate endDate, KeysetCursor after, int size) {
+        return executeKeysetQuery(
+                startDate,
+                endDate,
+                after,
+                size,
+                (s, e, a, limit) -> {
+                    List<Long> ids = timesheetDayRepository.findIdsByEmployeeAndDateBetweenAfter(
+                            employeeId, s, e, a == null ? null : a.date(), limit);
+                    if (ids.isEmpty()) {
+                        getEmployeeOrThrow(employeeId);
+                    }
+                    return loadDayViews(ids);
+                },
+                view -> KeysetCursor.ofDate(view.date()),
+                Function.identity(),
+                "getTimesheets[keyset]"
+        );
+    }
+
     public TimesheetDayProjection saveTimesheetUser(Long employeeId, LocalDate date, TimesheetDayDTO dto) {
         return saveTimesheet(employeeId, date, dto, OperationContext.USER);
     }
@@ -113,8 +198,7 @@ public class TimesheetApplicationService extends BaseTimesheetService {
             OperationContext context
     ) {
         Employee employee = getEmployeeOrThrow(employeeId);
-        String lockKey = employeeId + "_" + date;
-        return withLock(lockKey, () -> {
+        return withLock(employeeId, date, () -> {
             // Check existence dentro il lock
             boolean exists = isTimesheetDayExists(employee, date);
             if (exists) {
@@ -139,6 +223,88 @@ public class TimesheetApplicationService extends BaseTimesheetService {
         });
     }
 
+    /**
+     * Salva più giorni dello stesso dipendente (es. griglia settimanale) in
+     * una transazione. Ogni giorno segue le regole del salvataggio singolo
+     * (create se non esiste, update altrimenti); un giorno non valido viene
+     * scartato con il suo errore senza bloccare gli altri.
+     *
+     * Pattern: lock del range -> una query per i giorni esistenti -> una
+     * risoluzione per tutte le commesse -> validate/modify per giorno -> saveAll
+     * (batch JDBC) -> rollup e cache -> una invalidazione dei range.
+     */
+    public List<TimesheetDaySaveResult> saveTimesheetsUser(Long employeeId, List<TimesheetDayDTO> dtos) {
+        return executeSafely("saveTimesheets[bulk]", () -> {
+            if (dtos == null || dtos.isEmpty()) {
+                throw new TimesheetValidationException("Lista giorni vuota");
+            }
+            if (dtos.size() > MAX_BULK_DAYS) {
+                throw new TimesheetValidationException("Massimo " + MAX_BULK_DAYS + " giorni per richiesta");
+            }
+            TreeMap<LocalDate, TimesheetDayDTO> byDate = new TreeMap<>();
+            for (TimesheetDayDTO dto : dtos) {
+                if (dto == null || dto.getDate() == null) {
+                    throw new TimesheetValidationException("Ogni giorno deve avere una data");
+                }
+                if (byDate.putIfAbsent(dto.getDate(), dto) != null) {
+                    throw new TimesheetValidationException("Data duplicata: " + dto.getDate());
+                }
+            }
+            Employee employee = getEmployeeOrThrow(employeeId);
+            LocalDate first = byDate.firstKey();
+            LocalDate last = byDate.lastKey();
+
+            return lockManager.withRangeLock(employeeId, first, last, () -> {
+                // Fresh read dentro il lock: tutti i giorni esistenti in una query
+                Map<LocalDate, TimesheetDay> existing = timesheetDayRepository
+                        .findAllWithItemsByEmployeeAndDateIn(employee, byDate.keySet()).stream()
+                        .collect(Collectors.toMap(TimesheetDay::getDate, Function.identity()));
+                Map<String, Commessa> commesse = commessaResolver.resolveAll(TimesheetDomainService.commessaCodes(byDate.values()));
+
+                cacheManager.invalidateDays(employeeId, first, last);
+
+                Map<LocalDate, TimesheetDaySaveResult> results = new LinkedHashMap<>();
+                List<TimesheetDay> toSave = new ArrayList<>(byDate.size());
+                for (TimesheetDayDTO dto : byDate.values()) {
+                    LocalDate date = dto.getDate();
+                    TimesheetDay day = existing.get(date);
+                    boolean create = day == null;
+                    try {
+                        if (create) {
+                            day = TimesheetDay.builder().employee(employee).date(date).build();
+                        }
+                        validator.validateRules(day, OperationContext.USER, employee);
+                        // Il DTO viene validato per intero prima di toccare il day gestito
+                        domainService.validateTimesheetDTO(dto, commesse);
+                        toSave.add(create
+                                ? domainService.createTimesheet(day, dto, commesse)
+                                : domainService.updateTimesheet(day, dto, commesse));
+                        results.put(date, TimesheetDaySaveResult.saved(date, create, null));
+                    } catch (RuntimeException e) {
+                        log.debug("[saveTimesheets[bulk]] Giorno {} scartato: {}", date, e.getMessage());
+                        results.put(date, TimesheetDaySaveResult.failed(date, e.getMessage()));
+                    }
+                }
+
+                List<TimesheetDay> saved = timesheetDayRepository.saveAll(toSave);
+                if (!saved.isEmpty()) {
+                    rollupService.refresh(employeeId, first, last);
+                }
+                for (TimesheetDay day : saved) {
+                    TimesheetDayProjection view = TimesheetDayProjection.fromEntity(day);
+                    cacheManager.safePopulateCache(employeeId, day.getDate(), view);
+                    TimesheetDaySaveResult pending = results.get(day.getDate());
+                    results.put(day.getDate(), TimesheetDaySaveResult.saved(
+                            day.getDate(), pending.outcome() == TimesheetDaySaveResult.Outcome.CREATED, view));
+                }
+                cacheManager.invalidateRangesOverlappingAsync(employeeId, first, last, "saveTimesheets[bulk]");
+                log.info("Salvataggio bulk per employee {}: {} giorni salvati, {} scartati",
+                        employeeId, saved.size(), byDate.size() - saved.size());
+                return List.copyOf(results.values());
+            });
+        });
+    }
+
     public void deleteTimesheetUser(Long employeeId, LocalDate date) {
         deleteTimesheet(employeeId, date, OperationContext.USER);
     }
@@ -148,8 +314,7 @@ public class TimesheetApplicationService extends BaseTimesheetService {
     }
 
     private void deleteTimesheet(long employeeId, LocalDate date, OperationContext context) {
-        String lockKey = employeeId + "_" + date;
-        withLock(lockKey, () -> {
+        withLock(employeeId, date, () -> {
             Employee employee = getEmployeeOrThrow(employeeId);
             // CRITICAL: Fresh read dal DB DENTRO il lock
             TimesheetDay day = getTimesheetDayOrThrow(employee, date);
@@ -160,15 +325,9 @@ public class TimesheetApplicationService extends BaseTimesheetService {
             log.trace("[{}] Cache invalidata per employeeId={}, date={}", "deleteTimesheetUser", employeeId, date);
             // Esegue la modifica
             timesheetDayRepository.delete(day);
-            // Invalida range cache FUORI dal critica path per performance
-            CompletableFuture.runAsync(() -> {
-                try {
-                    cacheManager.invalidateRangeCachesContaining(employeeId, date);
-                    log.trace("[{}] Range cache invalidate per date={}", "deleteTimesheetUser", date);
-                } catch (Exception e) {
-                    log.warn("[{}] Fallita invalidazione range cache: {}", "deleteTimesheetUser", e.getMessage());
-                }
-            });
+            rollupService.refreshDay(employeeId, date);
+            // Invalida range cache FUORI dal critical path (executor di manutenzione)
+            cacheManager.invalidateRangeCachesContainingAsync(employeeId, date, "deleteTimesheetUser");
             return null;
         });
     }
@@ -176,34 +335,35 @@ public class TimesheetApplicationService extends BaseTimesheetService {
     // ============================================================
     // METODI item
     // ============================================================
+    // Senza transazione esterna: editItem apre la propria (vedi sotto)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public TimesheetDayProjection addOrCreateItem(Long employeeId, LocalDate date, TimesheetItemDTO dto) {
-        return executeOnTimesheetItem(
+        return editItem(
                 employeeId,
                 date,
                 dto.getId() != null ? dto.getId() : null,
-                OperationContext.USER,
                 (day, item) -> domainService.addItem(day, dto), // aggiorna day con il nuovo item
                 "addItem"
         );
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public TimesheetDayProjection putItem(Long employeeId, LocalDate date, TimesheetItemDTO dto) {
-        return executeOnTimesheetItem(
+        return editItem(
                 employeeId,
                 date,
                 getTimesheetItemIdOrThrow(dto),
-                OperationContext.USER,
                 (day, item) -> domainService.putItem(day, dto),
                 "updateItem"
         );
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void deleteItem(Long employeeId, LocalDate date, Long itemId) {
-        executeOnTimesheetItem(
+        editItem(
                 employeeId,
                 date,
                 itemId,
-                OperationContext.USER,
                 (day, item) -> {
                     domainService.deleteItem(day, itemId);
                     return null;
@@ -212,6 +372,37 @@ public class TimesheetApplicationService extends BaseTimesheetService {
         );
     }
 
+    /**
+     * Con il write coalescing attivo le modifiche item allo stesso giorno che
+     * arrivano entro la finestra vengono salvate in un'unica transazione.
+     * Ogni richiesta riceve comunque il proprio errore (stessa mappatura di
+     * executeSafely) e, in caso di successo, il giorno è già in cache.
+     *
+     * I metodi item girano senza la transazione di classe: con il coalescing
+     * l'attesa della finestra o dell'esito non deve tenere una connessione
+     * del pool, altrimenti con tante modifiche concorrenti i leader restano
+     * senza connessione per batchTransaction. Il percorso diretto apre la
+     * propria transazione con itemTransaction.
+     */
+    private TimesheetDayProjection editItem(
+            Long employeeId,
+            LocalDate date,
+            Long itemId,
+            BiFunction<TimesheetDay, TimesheetItem, TimesheetItem> operation,
+            String opName
+    ) {
+        if (!writeCoalescer.isEnabled()) {
+            return itemTransaction.execute(status ->
+                    executeOnTimesheetItem(employeeId, date, itemId, OperationContext.USER, operation, opName));
+        }
+        ItemEdit edit = new ItemEdit(itemId, OperationContext.USER, operation, opName);
+        return executeSafely(opName, () -> writeCoalescer.submit(DayKey.of(employeeId, date), edit, batch -> {
+            batchTransaction.executeWithoutResult(status -> executeOnTimesheetItemBatch(employeeId, date, batch));
+            // Solo dopo il commit: i follower rispondono a modifiche già persistite
+            batch.forEach(WriteCoalescer.Pending::publish);
+        }));
+    }
+
     // ============================================================
     // METODI ASSENZE
     // ============================================================
@@ -226,9 +417,9 @@ public class TimesheetApplicationService extends BaseTimesheetService {
     }
 
     /**
-     * Imposta assenze per un range di date in modo atomico e con cache
-     * consistency. Usa un approccio pessimistico: lock -> invalidate all ->
-     * modify -> save all -> cache all.
+     * Imposta assenze per un range di date in modo atomico. Giorni esistenti
+     * vengono sovrascritti (items eliminati), quelli mancanti creati: tutto
+     * con un DELETE e un upsert set-based, senza caricare entità.
      */
     @Transactional
     public List<TimesheetDayProjection> setAbsences(
@@ -238,72 +429,203 @@ public class TimesheetApplicationService extends BaseTimesheetService {
             AbsenceType absenceType
     ) {
         return executeSafely("setAbsences", () -> {
-            // Validazione input
-            if (startDate == null || endDate == null) {
-                throw new TimesheetValidationException("startDate o endDate non possono essere null");
+            Employee employee = getEmployeeOrThrow(employeeId);
+            domainService.validateAbsences(List.of(employee), startDate, endDate, absenceType);
+
+            applyAbsences(List.of(employee), startDate, endDate, absenceType);
+
+            // Proiezioni costruite direttamente: ogni giorno è un'assenza senza items
+            String employeeName = employee.getName();
+            return startDate.datesUntil(endDate.plusDays(1))
+                    .map(date -> new TimesheetDayProjection(date, employeeName, null, absenceType.toString(), List.of()))
+                    .toList();
+        });
+    }
+
+    /**
+     * Imposta la stessa assenza su un range di date per più dipendenti (es.
+     * chiusura aziendale). Restituisce solo un riepilogo.
+     */
+    @Transactional
+    public BulkAbsenceProjection setAbsencesBulk(
+            List<Long> employeeIds,
+            LocalDate startDate,
+            LocalDate endDate,
+            AbsenceType absenceType
+    ) {
+        return executeSafely("setAbsencesBulk", () -> {
+            if (employeeIds == null || employeeIds.isEmpty()) {
+                throw new TimesheetValidationException("Lista dipendenti vuota");
             }
-            if (startDate.isAfter(endDate)) {
-                throw new TimesheetValidationException("startDate deve precedere endDate");
+            Set<Long> requested = new LinkedHashSet<>(employeeIds);
+            List<Employee> employees = employeeRepository.findAllById(requested);
+            if (employees.size() != requested.size()) {
+                employees.forEach(e -> requested.remove(e.getId()));
+                throw new ResourceNotFoundException("Dipendenti non trovati (ID: " + requested + ")");
             }
+            domainService.validateAbsences(employees, startDate, endDate, absenceType);
 
-            Employee employee = getEmployeeOrThrow(employeeId);
+            return applyAbsences(employees, startDate, endDate, absenceType);
+        });
+    }
 
-            // CRITICAL: Acquisisce un lock globale per tutto il range
-            String lockKey = employeeId + "_range_" + startDate + "_" + endDate;
-            return withLock(lockKey, () -> {
-                log.debug("Lock acquisito per batch absence: employeeId={}, range={} to {}",
-                        employeeId, startDate, endDate);
-
-                // Step 1: Invalida proattivamente tutto il range
-                List<LocalDate> affectedDates = new ArrayList<>();
-                LocalDate current = startDate;
-                while (!current.isAfter(endDate)) {
-                    cacheManager.invalidateDay(employeeId, current);
-                    affectedDates.add(current);
-                    current = current.plusDays(1);
-                }
-                log.debug("Invalidate {} cache entries per batch", affectedDates.size());
+    /**
+     * Pattern: lock di tutti i giorni (ordinati) -> invalidate giorni ->
+     * delete items + upsert giorni a blocchi di dipendenti -> invalidate
+     * range.
+     */
+    private BulkAbsenceProjection applyAbsences(
+            List<Employee> employees,
+            LocalDate startDate,
+            LocalDate endDate,
+            AbsenceType absenceType
+    ) {
+        List<Long> employeeIds = employees.stream().map(Employee::getId).toList();
 
-                // Step 2: Esegue la modifica batch (può creare nuovi record)
-                List<TimesheetDay> days = domainService.setAbsences(employee, startDate, endDate, absenceType);
+        return lockManager.withRangeLock(employeeIds, startDate, endDate, () -> {
+            log.debug("Lock acquisito per batch absence: {} dipendenti, range={} to {}",
+                    employeeIds.size(), startDate, endDate);
 
-                // Step 3: Salva tutti i giorni in una singola transazione
-                List<TimesheetDay> savedDays = timesheetDayRepository.saveAll(days);
-                log.info("Salvati {} giorni di assenza per employeeId={}", savedDays.size(), employeeId);
+            // Step 1: Invalida i giorni del range, una operazione per dipendente
+            for (Long employeeId : employeeIds) {
+                cacheManager.invalidateDays(employeeId, startDate, endDate);
+            }
 
-                // Step 4: Ripopola la cache per tutti i giorni salvati
-                int cacheErrors = 0;
-                for (TimesheetDay day : savedDays) {
-                    try {
-                        cacheManager.putDay(employeeId, day.getDate(), day);
-                    } catch (Exception e) {
-                        cacheErrors++;
-                        log.error("Errore caching day dopo batch save: employeeId={}, date={}: {}", employeeId, day.getDate(), e.getMessage());
-                    }
-                }
+            // Step 2: Una DELETE degli items e un upsert dei giorni per blocco
+            int deletedItems = 0;
+            int upsertedDays = 0;
+            for (int from = 0; from < employeeIds.size(); from += ABSENCE_BATCH_EMPLOYEES) {
+                List<Long> chunk = employeeIds.subList(from, Math.min(from + ABSENCE_BATCH_EMPLOYEES, employeeIds.size()));
+                deletedItems += timesheetDayRepository.deleteItemsByEmployeesAndDateBetween(chunk, startDate, endDate);
+                upsertedDays += timesheetDayRepository.upsertAbsences(chunk, startDate, endDate, absenceType.name());
+            }
+            log.info("Assenza {} impostata su {} giorni ({} items rimossi) per {} dipendenti",
+                    absenceType, upsertedDays, deletedItems, employeeIds.size());
 
-                if (cacheErrors > 0) {
-                    log.warn("Batch save completato ma {} giorni non sono stati cachati", cacheErrors);
+            // I giorni di assenza non hanno items: il ricalcolo rimuove le ore dal rollup
+            if (deletedItems > 0) {
+                for (Long employeeId : employeeIds) {
+                    rollupService.refresh(employeeId, startDate, endDate);
                 }
+            }
 
-                // Step 5: Invalida range cache che intersecano questo periodo
+            // Step 3: Invalida range cache che intersecano questo periodo (anche quelli tutti interni)
+            for (Long employeeId : employeeIds) {
                 try {
-                    cacheManager.invalidateRangeCachesContaining(employeeId, startDate);
-                    cacheManager.invalidateRangeCachesContaining(employeeId, endDate);
-
-                    // Invalida anche eventuali range intermedi per essere sicuri
-                    if (startDate.plusMonths(1).isBefore(endDate)) {
-                        LocalDate midPoint = startDate.plusDays(
-                                startDate.until(endDate).getDays() / 2
-                        );
-                        cacheManager.invalidateRangeCachesContaining(employeeId, midPoint);
-                    }
+                    cacheManager.invalidateRangesOverlapping(employeeId, startDate, endDate);
                 } catch (Exception e) {
                     log.warn("Errore durante invalidazione range cache post-batch: {}", e.getMessage());
                 }
+            }
 
-                return savedDays.stream().map(TimesheetDayProjection::fromEntity).toList();
-            });
+            return new BulkAbsenceProjection(
+                    employeeIds.size(), startDate, endDate, absenceType.toString(), upsertedDays, deletedItems);
         });
     }
+
+    // ============================================================
+    // WARM-UP CACHE
+    // ============================================================
+    /**
+     * Popola la day cache e le pagine di range del periodo per tutti i
+     * dipendenti, a batch keyset ordinati per (dipendente, data): i giorni di
+     * un dipendente arrivano contigui, e le sue pagine si costruiscono quando
+     * la lettura passa al dipendente successivo. Le pagine sono quelle della
+     * richiesta di default (pagine da 20 ordinate per data). Le entry già in
+     * cache non vengono sovrascritte; stop viene controllato a ogni batch.
+     *
+     * Senza transazione: ogni batch usa la propria, e il persistence context
+     * non cresce con il numero di giorni letti.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public WarmUpResult warmUpCache(LocalDate start, LocalDate end, int batchSize, int maxRangePages, BooleanSupplier stop) {
+        Pageable batch = PageRequest.of(0, batchSize);
+        Long afterEmployeeId = -1L;
+        LocalDate afterDate = start.minusDays(1);
+        Long currentEmployeeId = null;
+        List<TimesheetDayProjection> currentDays = new ArrayList<>();
+        int days = 0;
+        int rangePages = 0;
+        int batches = 0;
+        // Vero solo se la lettura arriva in fondo; uno stop lascia il risultato parziale
+        boolean completed = false;
+
+        while (!stop.getAsBoolean()) {
+            List<Long> ids = timesheetDayRepository.findIdsByDateBetweenAfter(start, end, afterEmployeeId, afterDate, batch);
+            if (ids.isEmpty()) {
+                completed = true;
+                break;
+            }
+            batches++;
+            Map<Long, TimesheetDay> byId = timesheetDayRepository.findAllWithItemsByIdIn(ids).stream()
+                    .collect(Collectors.toMap(TimesheetDay::getId, Function.identity()));
+            for (Long id : ids) {
+                TimesheetDay day = byId.get(id);
+                if (day == null) {
+                    // Cancellato tra le due query: il cursore riparte dall'ultimo letto
+                    continue;
+                }
+                Long employeeId = day.getEmployee().getId();
+                if (!employeeId.equals(currentEmployeeId)) {
+                    rangePages += warmUpRangePages(currentEmployeeId, currentDays, start, end, maxRangePages - rangePages);
+                    currentEmployeeId = employeeId;
+                    currentDays = new ArrayList<>();
+                }
+                TimesheetDayProjection view = TimesheetDayProjection.fromEntity(day);
+                currentDays.add(view);
+                if (cacheManager.putDayIfAbsent(employeeId, day.getDate(), view)) {
+                    days++;
+                }
+                afterEmployeeId = employeeId;
+                afterDate = day.getDate();
+            }
+            if (ids.size() < batchSize) {
+                completed = true;
+                break;
+            }
+        }
+
+        if (completed) {
+            rangePages += warmUpRangePages(currentEmployeeId, currentDays, start, end, maxRangePages - rangePages);
+        }
+        return new WarmUpResult(days, rangePages, batches, completed);
+    }
+
+    // Pagine di default del periodo per un dipendente: i giorni sono già ordinati per data
+    private int warmUpRangePages(Long employeeId, List<TimesheetDayProjection> days, LocalDate start, LocalDate end, int limit) {
+        if (employeeId == null || days.isEmpty()) {
+            return 0;
+        }
+        int inserted = 0;
+        for (int page = 0; inserted < limit; page++) {
+            Pageable pageable = PageableUtils.createSafePageable(page, null, "date", null);
+            int from = (int) pageable.getOffset();
+            if (from >= days.size()) {
+                break;
+            }
+            List<TimesheetDayProjection> content = days.subList(from, Math.min(from + pageable.getPageSize(), days.size()));
+            Page<TimesheetDayProjection> value = new PageImpl<>(List.copyOf(content), pageable, days.size());
+            Supplier<Page<TimesheetDayProjection>> reloader = pagedLoader(employeeId, pageable, rangeIdQuery(employeeId, start, end));
+            if (cacheManager.putRangeIfAbsent(employeeId, start, end, pageable, value, reloader)) {
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    public record WarmUpResult(
+            int days,
+            int rangePages,
+            int batches,
+            boolean completed
+            ) {
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "WarmUpResult[days=%d, rangePages=%d, batches=%d, completed=%s]",
+                    days, rangePages, batches, completed
+            );
+        }
+    }
 }
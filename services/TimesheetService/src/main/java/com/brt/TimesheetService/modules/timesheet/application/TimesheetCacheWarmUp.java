@@ -0,0 +1,84 @@
+package com.brt.TimesheetService.modules.timesheet.application;
+
+import java.time.YearMonth;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.brt.TimesheetService.modules.timesheet.application.TimesheetApplicationService.WarmUpResult;
+
+/**
+ * Warm-up delle cache timesheet all'avvio: carica i giorni del mese corrente
+ * di tutti i dipendenti, così l'ondata di accessi dopo un deploy non arriva
+ * tutta sul database.
+ *
+ * Il listener è sincrono: Spring Boot pubblica ReadinessState.ACCEPTING_TRAFFIC
+ * solo dopo che i listener di ApplicationReadyEvent sono tornati, quindi la
+ * replica risulta pronta a warm-up finito o allo scadere del timeout. Allo
+ * scadere il warm-up si ferma al batch successivo e la cache resta parziale.
+ */
+@Component
+public class TimesheetCacheWarmUp {
+
+    private static final Logger log = LoggerFactory.getLogger(TimesheetCacheWarmUp.class);
+
+    private final TimesheetApplicationService timesheetApplicationService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxRangePages;
+    private final long timeoutMillis;
+
+    public TimesheetCacheWarmUp(
+            TimesheetApplicationService timesheetApplicationService,
+            @Value("${timesheet.cache.warm-up.enabled:false}") boolean enabled,
+            @Value("${timesheet.cache.warm-up.batch-size:1000}") int batchSize,
+            @Value("${timesheet.cache.warm-up.max-range-pages:400}") int maxRangePages,
+            @Value("${timesheet.cache.warm-up.timeout-ms:60000}") long timeoutMillis
+    ) {
+        this.timesheetApplicationService = timesheetApplicationService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxRangePages = maxRangePages;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        YearMonth month = YearMonth.now();
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<WarmUpResult> result = new AtomicReference<>();
+        long start = System.currentTimeMillis();
+
+        // Thread dedicato: il timeout resta dell'avvio anche se una query si blocca
+        Thread worker = Thread.ofPlatform().name("cache-warm-up").daemon(true).start(() -> {
+            try {
+                result.set(timesheetApplicationService.warmUpCache(
+                        month.atDay(1), month.atEndOfMonth(), batchSize, maxRangePages, stop::get));
+            } catch (RuntimeException e) {
+                log.warn("Warm-up cache fallito: {}", e.getMessage());
+            }
+        });
+        try {
+            worker.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            stop.set(true);
+            log.warn("Warm-up cache {} non terminato entro {} ms: prosegue l'avvio con cache parziale", month, timeoutMillis);
+            return;
+        }
+        if (result.get() != null) {
+            log.info("Warm-up cache {} in {} ms: {}", month, System.currentTimeMillis() - start, result.get());
+        }
+    }
+}
@@ -23,8 +23,11 @@ import java.util.Map;
 
 import org.springframework.stereotype.Component;
 
+import com.brt.TimesheetService.modules.timesheet.domain.AbsenceType;
 import com.brt.TimesheetService.modules.timesheet.domain.TimesheetDay;
+import com.brt.TimesheetService.modules.timesheet.domain.TimesheetStatus;
 import com.brt.TimesheetService.modules.user.domain.Employee;
+import com.brt.TimesheetService.shared.projection.TimesheetDayProjection;
 
 @Component
 public class TimesheetValidator {
@@ -63,6 +66,25 @@ public class TimesheetValidator {
         rules.forEach(r -> r.validate(day, currentUser));
     }
 
+    /**
+     * Valida una lettura servita dal read model. Le regole lavorano su
+     * entity: ricevono un TimesheetDay detached ricostruito dalla projection,
+     * mai persistito. Sul percorso di lettura l'utente è il dipendente stesso.
+     */
+    public void validateRules(TimesheetDayProjection view, Long employeeId, OperationContext context) {
+        Employee employee = Employee.builder()
+                .id(employeeId)
+                .name(view.employeeName())
+                .build();
+        TimesheetDay day = TimesheetDay.builder()
+                .employee(employee)
+                .date(view.date())
+                .status(view.status() != null ? TimesheetStatus.valueOf(view.status()) : null)
+                .absenceType(AbsenceType.valueOf(view.absence()))
+                .build();
+        validateRules(day, context, employee);
+    }
+
     /**
      * Metodo di utilità per interpretare i parametri di filtro delle date.
      * Restituisce un array di due LocalDate: [startDate, endDate].
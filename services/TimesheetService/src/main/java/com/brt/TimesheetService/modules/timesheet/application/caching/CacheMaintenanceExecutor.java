@@ -0,0 +1,139 @@
+package com.brt.TimesheetService.modules.timesheet.application.caching;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Executor dedicato ai lavori fire-and-forget della cache (invalidazione range,
+ * pubblicazione invalidazioni, refresh-ahead). I retry delle scritture fallite
+ * hanno il proprio scheduler in CacheRetryQueue.
+ *
+ * Sostituisce il ForkJoinPool comune: pool e coda sono limitati e i thread
+ * hanno nome "cache-maint-N". Con spring.threads.virtual.enabled=true i worker
+ * sono virtual thread, altrimenti platform thread daemon. A coda piena il task
+ * viene eseguito dal chiamante (l'invalidazione non può essere persa) e la
+ * rejection viene contata.
+ *
+ * Caller-runs vale per tutti i task: a coda piena anche i reload del
+ * refresh-ahead e la pubblicazione delle invalidazioni alle altre repliche
+ * girano in modo sincrono sul thread della richiesta. Ogni caso incrementa
+ * timesheet.cache.maintenance.rejected; coda e thread attivi sono esposti
+ * come gauge.
+ */
+@Component
+public class CacheMaintenanceExecutor implements Executor {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheMaintenanceExecutor.class);
+
+    private final ThreadPoolExecutor pool;
+    private final int queueCapacity;
+    private final boolean virtualThreads;
+    private final Counter rejected;
+
+    public CacheMaintenanceExecutor(
+            @Value("${timesheet.cache.maintenance.pool-size:2}") int poolSize,
+            @Value("${timesheet.cache.maintenance.queue-capacity:1000}") int queueCapacity,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            MeterRegistry meterRegistry
+    ) {
+        this.queueCapacity = queueCapacity;
+        this.virtualThreads = virtualThreads;
+        this.rejected = Counter.builder("timesheet.cache.maintenance.rejected")
+                .description("Task eseguiti nel thread chiamante a coda piena")
+                .register(meterRegistry);
+
+        ThreadFactory factory = virtualThreads
+                ? Thread.ofVirtual().name("cache-maint-", 0).factory()
+                : Thread.ofPlatform().name("cache-maint-", 0).daemon(true).factory();
+
+        RejectedExecutionHandler callerRuns = (task, executor) -> {
+            rejected.increment();
+            log.warn("Coda cache-maint piena ({} task): esecuzione sincrona nel thread chiamante", queueCapacity);
+            if (!executor.isShutdown()) {
+                task.run();
+            }
+        };
+
+        this.pool = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                factory,
+                callerRuns);
+
+        Gauge.builder("timesheet.cache.maintenance.queue.size", pool, p -> p.getQueue().size())
+                .description("Task in coda sull'executor cache-maint")
+                .register(meterRegistry);
+        Gauge.builder("timesheet.cache.maintenance.active", pool, ThreadPoolExecutor::getActiveCount)
+                .description("Thread cache-maint attivi")
+                .register(meterRegistry);
+
+        log.info("Executor cache-maint avviato: pool={}, coda={}, virtualThreads={}",
+                poolSize, queueCapacity, virtualThreads);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        pool.execute(task);
+    }
+
+    public ExecutorStats getStats() {
+        return new ExecutorStats(
+                pool.getPoolSize(),
+                pool.getActiveCount(),
+                pool.getQueue().size(),
+                queueCapacity,
+                pool.getCompletedTaskCount(),
+                (long) rejected.count(),
+                virtualThreads
+        );
+    }
+
+    public record ExecutorStats(
+            int poolSize,
+            int activeThreads,
+            int queueDepth,
+            int queueCapacity,
+            long completedTasks,
+            long rejectedTasks,
+            boolean virtualThreads
+            ) {
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "ExecutorStats[pool=%d, active=%d, queue=%d/%d, completed=%d, rejected=%d, virtual=%s]",
+                    poolSize, activeThreads, queueDepth, queueCapacity, completedTasks, rejectedTasks, virtualThreads
+            );
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.warn("Executor cache-maint non terminato entro 5s, {} task scartati",
+                        pool.shutdownNow().size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.brt.TimesheetService.modules.timesheet.application.caching;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongPredicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Coda dei retry delle scritture in cache fallite: nessun thread resta in
+ * sleep, i tentativi sono pianificati su uno scheduler dedicato
+ * ("cache-retry") con backoff esponenziale e jitter.
+ *
+ * DEDUPLICA: al più un retry in attesa per chiave. Un nuovo submit sulla
+ * stessa chiave sostituisce l'operazione in attesa (vale solo il valore più
+ * recente) e ne eredita i tentativi già fatti. cancel rimuove il retry di una
+ * chiave invalidata, che altrimenti rimetterebbe in cache un valore vecchio.
+ *
+ * LIMITE: oltre maxPending chiavi in attesa i nuovi retry vengono scartati e
+ * contati; dopo maxAttempts tentativi falliti il retry è un fallimento
+ * permanente (timesheet.cache.failures.permanent, su cui si basa l'alert).
+ */
+@Component
+public class CacheRetryQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheRetryQueue.class);
+
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final ConcurrentMap<Long, Retry> pending = new ConcurrentHashMap<>();
+    private final int maxPending;
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    // Metriche
+    private final Counter scheduled;
+    private final Counter deduplicated;
+    private final Counter dropped;
+    private final Counter succeeded;
+    private final Counter permanentFailures;
+
+    public CacheRetryQueue(
+            MeterRegistry meterRegistry,
+            @Value("${timesheet.cache.retry.max-pending:1000}") int maxPending,
+            @Value("${timesheet.cache.retry.max-attempts:5}") int maxAttempts,
+            @Value("${timesheet.cache.retry.base-delay-ms:100}") long baseDelayMillis,
+            @Value("${timesheet.cache.retry.max-delay-ms:5000}") long maxDelayMillis
+    ) {
+        this.maxPending = maxPending;
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.scheduler = new ScheduledThreadPoolExecutor(1,
+                Thread.ofPlatform().name("cache-retry").daemon(true).factory());
+        // I task di chiavi cancellate non restano nella coda dello scheduler
+        this.scheduler.setRemoveOnCancelPolicy(true);
+
+        this.scheduled = Counter.builder("timesheet.cache.retry.scheduled")
+                .description("Retry di scrittura in cache accodati")
+                .register(meterRegistry);
+        this.deduplicated = Counter.builder("timesheet.cache.retry.deduplicated")
+                .description("Retry sostituiti da un valore più recente per la stessa chiave")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("timesheet.cache.retry.dropped")
+                .description("Retry scartati a coda piena")
+                .register(meterRegistry);
+        this.succeeded = Counter.builder("timesheet.cache.retry.succeeded")
+                .description("Retry di scrittura in cache riusciti")
+                .register(meterRegistry);
+        this.permanentFailures = Counter.builder("timesheet.cache.failures.permanent")
+                .description("Scritture in cache fallite anche dopo tutti i retry")
+                .register(meterRegistry);
+        Gauge.builder("timesheet.cache.retry.pending", pending, ConcurrentMap::size)
+                .description("Chiavi con un retry in attesa")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Accoda il retry di un'operazione per la chiave. Restituisce false se
+     * il retry è stato scartato perché la coda è piena.
+     */
+    public boolean submit(long key, String name, Runnable operation) {
+        boolean[] created = new boolean[1];
+        Retry retry = pending.compute(key, (k, current) -> {
+            if (current != null) {
+                deduplicated.increment();
+                return new Retry(name, operation, current.attempt);
+            }
+            if (pending.size() >= maxPending) {
+                return null;
+            }
+            created[0] = true;
+            return new Retry(name, operation, 1);
+        });
+        if (retry == null) {
+            dropped.increment();
+            log.warn("Coda retry cache piena ({} chiavi): scartato {}", maxPending, name);
+            return false;
+        }
+        if (created[0]) {
+            scheduled.increment();
+            schedule(key, retry.attempt);
+        }
+        return true;
+    }
+
+    /**
+     * Annulla il retry in attesa per la chiave, se presente.
+     */
+    public void cancel(long key) {
+        pending.remove(key);
+    }
+
+    /**
+     * Annulla i retry in attesa delle chiavi che soddisfano il filtro.
+     */
+    public void cancelIf(LongPredicate filter) {
+        pending.keySet().removeIf(filter::test);
+    }
+
+    public void clear() {
+        pending.clear();
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    // ============================================================
+    // ESECUZIONE
+    // ============================================================
+    private void schedule(long key, int attempt) {
+        scheduler.schedule(() -> fire(key), delayMillis(attempt), TimeUnit.MILLISECONDS);
+    }
+
+    // Backoff esponenziale con jitter: metà del ritardo fissa, metà casuale
+    private long delayMillis(int attempt) {
+        long delay = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    // Eseguito solo dal thread dello scheduler: i tentativi di una chiave sono sequenziali
+    private void fire(long key) {
+        Retry retry = pending.get(key);
+        if (retry == null) {
+            // Annullato da un'invalidazione
+            return;
+        }
+        try {
+            retry.operation.run();
+        } catch (RuntimeException e) {
+            if (retry.attempt >= maxAttempts) {
+                if (pending.remove(key, retry)) {
+                    permanentFailures.increment();
+                    log.error("CACHE FAILURE PERMANENTE: {} dopo {} tentativi - "
+                            + "RICHIESTA INTERVENTO MANUALE O MONITORING: {}", retry.name, retry.attempt, e.getMessage());
+                    return;
+                }
+            } else {
+                log.warn("Retry {}/{} fallito per {}: {}", retry.attempt, maxAttempts, retry.name, e.getMessage());
+                pending.computeIfPresent(key, (k, current) -> current == retry
+                        ? new Retry(retry.name, retry.operation, retry.attempt + 1)
+                        : current);
+            }
+            reschedule(key);
+            return;
+        }
+        if (pending.remove(key, retry)) {
+            succeeded.increment();
+            log.info("Retry cache SUCCESSO per {} (tentativo {})", retry.name, retry.attempt);
+            return;
+        }
+        // Durante l'esecuzione è arrivato un valore più recente: va scritto anche quello
+        reschedule(key);
+    }
+
+    private void reschedule(long key) {
+        Retry next = pending.get(key);
+        if (next != null) {
+            schedule(key, next.attempt);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        int discarded = pending.size();
+        scheduler.shutdownNow();
+        pending.clear();
+        if (discarded > 0) {
+            log.warn("Coda retry cache chiusa con {} retry in attesa", discarded);
+        }
+    }
+
+    // Identità per riferimento: remove(key, retry) non deve confondere due submit uguali
+    private static final class Retry {
+
+        private final String name;
+        private final Runnable operation;
+        private final int attempt;
+
+        private Retry(String name, Runnable operation, int attempt) {
+            this.name = name;
+            this.operation = operation;
+            this.attempt = attempt;
+        }
+    }
+}
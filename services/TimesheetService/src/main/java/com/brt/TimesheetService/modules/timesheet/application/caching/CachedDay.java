@@ -0,0 +1,112 @@
+package com.brt.TimesheetService.modules.timesheet.application.caching;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+
+import com.brt.TimesheetService.modules.timesheet.domain.AbsenceType;
+import com.brt.TimesheetService.modules.timesheet.domain.TimesheetStatus;
+import com.brt.TimesheetService.shared.projection.TimesheetDayProjection;
+import com.brt.TimesheetService.shared.projection.TimesheetItemProjection;
+
+/**
+ * Valore compatto e immutabile della day cache: data come epochDay, status e
+ * assenza come ordinali, item in array paralleli con le ore in centesimi.
+ *
+ * Codici commessa e nomi dipendente sono internati: ogni stringa distinta è
+ * in memoria una sola volta, qualunque sia il numero di giorni in cache. Gli
+ * array non escono mai dalla classe; verso l'esterno si espone solo la
+ * projection ricostruita.
+ */
+final class CachedDay {
+
+    private static final byte NO_STATUS = -1;
+    private static final TimesheetStatus[] STATUSES = TimesheetStatus.values();
+    private static final AbsenceType[] ABSENCES = AbsenceType.values();
+
+    // Stima in byte usata dal weigher: header e campi del giorno, poi per item
+    // id + centesimi + due riferimenti (la stringa della descrizione a parte)
+    private static final int BASE_WEIGHT = 64;
+    private static final int ITEM_WEIGHT = 24;
+
+    private final int epochDay;
+    private final byte status;
+    private final byte absence;
+    private final String employeeName;
+    private final long[] itemIds;
+    private final int[] hoursHundredths;
+    private final String[] commessaCodes;
+    private final String[] descriptions;
+
+    private CachedDay(int epochDay, byte status, byte absence, String employeeName,
+            long[] itemIds, int[] hoursHundredths, String[] commessaCodes, String[] descriptions) {
+        this.epochDay = epochDay;
+        this.status = status;
+        this.absence = absence;
+        this.employeeName = employeeName;
+        this.itemIds = itemIds;
+        this.hoursHundredths = hoursHundredths;
+        this.commessaCodes = commessaCodes;
+        this.descriptions = descriptions;
+    }
+
+    static CachedDay from(TimesheetDayProjection view) {
+        List<TimesheetItemProjection> items = view.items();
+        int n = items.size();
+        long[] itemIds = new long[n];
+        int[] hours = new int[n];
+        String[] codes = new String[n];
+        String[] descriptions = new String[n];
+        for (int i = 0; i < n; i++) {
+            TimesheetItemProjection item = items.get(i);
+            itemIds[i] = item.id() != null ? item.id() : 0L;
+            // la colonna è numeric(5,2): i centesimi sono esatti
+            hours[i] = item.hours().setScale(2, RoundingMode.HALF_UP).unscaledValue().intValueExact();
+            codes[i] = item.commessaCode() != null ? item.commessaCode().intern() : null;
+            descriptions[i] = item.description();
+        }
+        return new CachedDay(
+                (int) view.date().toEpochDay(),
+                view.status() != null ? (byte) TimesheetStatus.valueOf(view.status()).ordinal() : NO_STATUS,
+                (byte) AbsenceType.valueOf(view.absence()).ordinal(),
+                view.employeeName() != null ? view.employeeName().intern() : null,
+                itemIds,
+                hours,
+                codes,
+                descriptions
+        );
+    }
+
+    TimesheetDayProjection toProjection() {
+        TimesheetItemProjection[] items = new TimesheetItemProjection[itemIds.length];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = new TimesheetItemProjection(
+                    itemIds[i] != 0L ? itemIds[i] : null,
+                    descriptions[i],
+                    BigDecimal.valueOf(hoursHundredths[i], 2),
+                    commessaCodes[i]
+            );
+        }
+        return new TimesheetDayProjection(
+                LocalDate.ofEpochDay(epochDay),
+                employeeName,
+                status != NO_STATUS ? STATUSES[status].name() : null,
+                ABSENCES[absence].toString(),
+                List.of(items)
+        );
+    }
+
+    /**
+     * Peso approssimato in byte per il maximumWeight della day cache.
+     */
+    int weight() {
+        int weight = BASE_WEIGHT + ITEM_WEIGHT * itemIds.length;
+        for (String description : descriptions) {
+            if (description != null) {
+                weight += 40 + description.length();
+            }
+        }
+        return weight;
+    }
+}
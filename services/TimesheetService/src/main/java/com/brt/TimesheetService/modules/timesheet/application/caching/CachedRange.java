@@ -0,0 +1,15 @@
+package com.brt.TimesheetService.modules.timesheet.application.caching;
+
+import java.util.function.Supplier;
+
+import org.springframework.data.domain.Page;
+
+import com.brt.TimesheetService.shared.projection.TimesheetDayProjection;
+
+/**
+ * Valore della range cache: la pagina e, se il chiamante lo fornisce, come
+ * ricaricarla per il refresh-ahead (null = nessun refresh, la entry scade).
+ */
+record CachedRange(Page<TimesheetDayProjection> page, Supplier<Page<TimesheetDayProjection>> reloader) {
+
+}
@@ -0,0 +1,57 @@
+package com.brt.TimesheetService.modules.timesheet.application.caching;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.brt.TimesheetService.shared.util.DayKey;
+
+/**
+ * Indice secondario della day cache: per ogni dipendente le chiavi in cache
+ * con il valore indicizzato.
+ *
+ * Ogni modifica passa da un compute sulla mappa esterna, quindi un add non
+ * può finire in una mappa già staccata da removeEmployee. La rimozione è
+ * condizionata al valore: l'eviction di un valore vecchio non toglie la
+ * chiave se nel frattempo è stato indicizzato quello nuovo.
+ *
+ * Invariante (come per RangeIndex): l'indice può contenere chiavi non più in
+ * cache ma non deve mai perdere chiavi ancora in cache.
+ */
+final class DayKeyIndex {
+
+    private final ConcurrentMap<Long, Map<Long, CachedDay>> byEmployee = new ConcurrentHashMap<>();
+
+    void add(long key, CachedDay value) {
+        byEmployee.compute(DayKey.employeeId(key), (id, days) -> {
+            Map<Long, CachedDay> result = days != null ? days : new HashMap<>();
+            result.put(key, value);
+            return result;
+        });
+    }
+
+    void remove(long key, CachedDay value) {
+        byEmployee.computeIfPresent(DayKey.employeeId(key), (id, days) -> {
+            days.remove(key, value);
+            return days.isEmpty() ? null : days;
+        });
+    }
+
+    /**
+     * Stacca l'indice del dipendente e ne restituisce le chiavi.
+     */
+    Set<Long> removeEmployee(long employeeId) {
+        Map<Long, CachedDay> days = byEmployee.remove(employeeId);
+        return days != null ? days.keySet() : Set.of();
+    }
+
+    int employeeCount() {
+        return byEmployee.size();
+    }
+
+    void clear() {
+        byEmployee.clear();
+    }
+}
@@ -0,0 +1,244 @@
+package com.brt.TimesheetService.modules.timesheet.application.caching;
+
+import java.util.Comparator;
+import java.util.function.Consumer;
+
+/**
+ * Interval tree immutabile su intervalli chiusi di giorni (epochDay).
+ *
+ * Implementato come AVL persistente (path-copying) ordinato per (start, end,
+ * valore) e aumentato con il massimo estremo destro di ogni sottoalbero. Ogni
+ * modifica restituisce un nuovo albero che condivide i nodi non toccati: i
+ * lettori non prendono lock e vedono sempre una versione consistente.
+ *
+ * Le query (stabbing e overlap) visitano solo i sottoalberi il cui maxEnd
+ * raggiunge l'inizio dell'intervallo cercato e si fermano appena gli start ne
+ * superano la fine: il costo è O(log n + k), con k intervalli restituiti, non
+ * dipende dal totale indicizzato.
+ */
+public final class IntervalTree<T> {
+
+    private final Node<T> root;
+    private final Comparator<? super T> order;
+
+    private IntervalTree(Node<T> root, Comparator<? super T> order) {
+        this.root = root;
+        this.order = order;
+    }
+
+    /**
+     * Albero vuoto. Il comparator ordina i valori con stesso intervallo e deve
+     * essere coerente con equals.
+     */
+    public static <T> IntervalTree<T> empty(Comparator<? super T> order) {
+        return new IntervalTree<>(null, order);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public int size() {
+        return root == null ? 0 : root.size;
+    }
+
+    // Altezza della radice, usata dai test per verificare il bilanciamento
+    int height() {
+        return height(root);
+    }
+
+    /**
+     * Inserisce un intervallo. Idempotente: se il valore è già presente con lo
+     * stesso intervallo restituisce lo stesso albero.
+     */
+    public IntervalTree<T> insert(int start, int end, T value) {
+        Node<T> newRoot = insert(root, start, end, value);
+        return newRoot == root ? this : new IntervalTree<>(newRoot, order);
+    }
+
+    /**
+     * Rimuove un intervallo. Se assente restituisce lo stesso albero.
+     */
+    public IntervalTree<T> remove(int start, int end, T value) {
+        Node<T> newRoot = remove(root, start, end, value);
+        return newRoot == root ? this : new IntervalTree<>(newRoot, order);
+    }
+
+    /**
+     * Visita tutti i valori il cui intervallo contiene il giorno indicato.
+     */
+    public void stab(int day, Consumer<? super T> visitor) {
+        overlapping(root, day, day, visitor);
+    }
+
+    /**
+     * Visita tutti i valori il cui intervallo interseca [from, to] (estremi
+     * inclusi).
+     */
+    public void overlapping(int from, int to, Consumer<? super T> visitor) {
+        overlapping(root, from, to, visitor);
+    }
+
+    /**
+     * Visita tutti i valori in ordine di intervallo.
+     */
+    public void forEach(Consumer<? super T> visitor) {
+        forEach(root, visitor);
+    }
+
+    // ============================================================
+    // QUERY
+    // ============================================================
+    private static <T> void overlapping(Node<T> node, int from, int to, Consumer<? super T> visitor) {
+        while (node != null && node.maxEnd >= from) {
+            overlapping(node.left, from, to, visitor);
+            if (node.start > to) {
+                // Tutto il sottoalbero destro inizia dopo la fine dell'intervallo cercato
+                return;
+            }
+            if (node.end >= from) {
+                visitor.accept(node.value);
+            }
+            node = node.right;
+        }
+    }
+
+    private static <T> void forEach(Node<T> node, Consumer<? super T> visitor) {
+        while (node != null) {
+            forEach(node.left, visitor);
+            visitor.accept(node.value);
+            node = node.right;
+        }
+    }
+
+    // ============================================================
+    // MODIFICHE (path-copying)
+    // ============================================================
+    private int compare(int start, int end, T value, Node<T> node) {
+        int cmp = Integer.compare(start, node.start);
+        if (cmp == 0) {
+            cmp = Integer.compare(end, node.end);
+        }
+        if (cmp == 0) {
+            cmp = order.compare(value, node.value);
+        }
+        return cmp;
+    }
+
+    private Node<T> insert(Node<T> node, int start, int end, T value) {
+        if (node == null) {
+            return new Node<>(start, end, value, null, null);
+        }
+        int cmp = compare(start, end, value, node);
+        if (cmp == 0) {
+            return node;
+        }
+        if (cmp < 0) {
+            Node<T> left = insert(node.left, start, end, value);
+            return left == node.left ? node : balance(node.with(left, node.right));
+        }
+        Node<T> right = insert(node.right, start, end, value);
+        return right == node.right ? node : balance(node.with(node.left, right));
+    }
+
+    private Node<T> remove(Node<T> node, int start, int end, T value) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(start, end, value, node);
+        if (cmp < 0) {
+            Node<T> left = remove(node.left, start, end, value);
+            return left == node.left ? node : balance(node.with(left, node.right));
+        }
+        if (cmp > 0) {
+            Node<T> right = remove(node.right, start, end, value);
+            return right == node.right ? node : balance(node.with(node.left, right));
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node<T> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(new Node<>(successor.start, successor.end, successor.value,
+                node.left, removeMin(node.right)));
+    }
+
+    private static <T> Node<T> removeMin(Node<T> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.with(removeMin(node.left), node.right));
+    }
+
+    private static <T> Node<T> balance(Node<T> node) {
+        int factor = height(node.left) - height(node.right);
+        if (factor > 1) {
+            Node<T> left = node.left;
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left);
+            }
+            return rotateRight(node.with(left, node.right));
+        }
+        if (factor < -1) {
+            Node<T> right = node.right;
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right);
+            }
+            return rotateLeft(node.with(node.left, right));
+        }
+        return node;
+    }
+
+    private static <T> Node<T> rotateRight(Node<T> node) {
+        Node<T> pivot = node.left;
+        return pivot.with(pivot.left, node.with(pivot.right, node.right));
+    }
+
+    private static <T> Node<T> rotateLeft(Node<T> node) {
+        Node<T> pivot = node.right;
+        return pivot.with(node.with(node.left, pivot.left), pivot.right);
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static final class Node<T> {
+
+        final int start;
+        final int end;
+        final T value;
+        final Node<T> left;
+        final Node<T> right;
+        final int maxEnd;
+        final int height;
+        final int size;
+
+        Node(int start, int end, T value, Node<T> left, Node<T> right) {
+            this.start = start;
+            this.end = end;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            int max = end;
+            if (left != null && left.maxEnd > max) {
+                max = left.maxEnd;
+            }
+            if (right != null && right.maxEnd > max) {
+                max = right.maxEnd;
+            }
+            this.maxEnd = max;
+            this.height = 1 + Math.max(height(left), height(right));
+            this.size = 1 + (left == null ? 0 : left.size) + (right == null ? 0 : right.size);
+        }
+
+        Node<T> with(Node<T> newLeft, Node<T> newRight) {
+            return new Node<>(start, end, value, newLeft, newRight);
+        }
+    }
+}
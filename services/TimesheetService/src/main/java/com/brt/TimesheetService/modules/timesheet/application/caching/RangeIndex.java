@@ -0,0 +1,129 @@
+package com.brt.TimesheetService.modules.timesheet.application.caching;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Indice dei range cachati, partizionato per dipendente.
+ *
+ * Ogni dipendente ha il proprio {@link IntervalTree} immutabile: le letture
+ * sono lock-free, le scritture sostituiscono l'albero con copy-on-write dentro
+ * un compute della ConcurrentHashMap, quindi contendono solo con altre
+ * scritture sullo stesso dipendente.
+ *
+ * Invariante: l'indice può contenere chiavi non più in cache (rimosse dal
+ * cleanup periodico) ma non deve mai perdere chiavi ancora in cache.
+ */
+public class RangeIndex {
+
+    /**
+     * Ordine tra range dello stesso dipendente con stesso intervallo: deve
+     * distinguere tutti i componenti di RangeKey oltre all'intervallo.
+     */
+    private static final IntervalTree<RangeKey> EMPTY = IntervalTree.empty(
+            Comparator.comparingInt(RangeKey::page)
+                    .thenComparingInt(RangeKey::size)
+                    .thenComparing(RangeKey::sort));
+
+    private final ConcurrentMap<Long, IntervalTree<RangeKey>> byEmployee = new ConcurrentHashMap<>();
+
+    public void add(RangeKey key) {
+        byEmployee.compute(key.employeeId(), (id, tree)
+                -> (tree == null ? EMPTY : tree).insert(startOf(key), endOf(key), key));
+    }
+
+    public void remove(RangeKey key) {
+        byEmployee.computeIfPresent(key.employeeId(), (id, tree) -> {
+            IntervalTree<RangeKey> updated = tree.remove(startOf(key), endOf(key), key);
+            return updated.isEmpty() ? null : updated;
+        });
+    }
+
+    /**
+     * Stabbing query: tutti i range del dipendente che contengono la data.
+     */
+    public Set<RangeKey> findContaining(Long employeeId, LocalDate date) {
+        IntervalTree<RangeKey> tree = byEmployee.get(employeeId);
+        if (tree == null) {
+            return Collections.emptySet();
+        }
+        Set<RangeKey> result = new HashSet<>();
+        tree.stab((int) date.toEpochDay(), result::add);
+        return result;
+    }
+
+    /**
+     * Overlap query: tutti i range del dipendente che intersecano [from, to].
+     */
+    public Set<RangeKey> findOverlapping(Long employeeId, LocalDate from, LocalDate to) {
+        IntervalTree<RangeKey> tree = byEmployee.get(employeeId);
+        if (tree == null) {
+            return Collections.emptySet();
+        }
+        Set<RangeKey> result = new HashSet<>();
+        tree.overlapping((int) from.toEpochDay(), (int) to.toEpochDay(), result::add);
+        return result;
+    }
+
+    /**
+     * Rimuove dall'indice tutti i range del dipendente e li restituisce.
+     */
+    public Set<RangeKey> removeEmployee(Long employeeId) {
+        IntervalTree<RangeKey> tree = byEmployee.remove(employeeId);
+        if (tree == null) {
+            return Collections.emptySet();
+        }
+        Set<RangeKey> result = new HashSet<>();
+        tree.forEach(result::add);
+        return result;
+    }
+
+    /**
+     * Mantiene solo le chiavi che soddisfano il predicato. Il controllo avviene
+     * dentro il compute del dipendente, così un add concorrente non può essere
+     * perso. Restituisce il numero di chiavi rimosse.
+     */
+    public int retainIf(Predicate<RangeKey> keep) {
+        AtomicInteger removed = new AtomicInteger();
+        for (Long employeeId : byEmployee.keySet()) {
+            byEmployee.computeIfPresent(employeeId, (id, tree) -> {
+                IntervalTree<RangeKey> updated = tree;
+                Set<RangeKey> stale = new HashSet<>();
+                tree.forEach(key -> {
+                    if (!keep.test(key)) {
+                        stale.add(key);
+                    }
+                });
+                for (RangeKey key : stale) {
+                    updated = updated.remove(startOf(key), endOf(key), key);
+                }
+                removed.addAndGet(stale.size());
+                return updated.isEmpty() ? null : updated;
+            });
+        }
+        return removed.get();
+    }
+
+    public int employeeCount() {
+        return byEmployee.size();
+    }
+
+    public void clear() {
+        byEmployee.clear();
+    }
+
+    private static int startOf(RangeKey key) {
+        return (int) key.start().toEpochDay();
+    }
+
+    private static int endOf(RangeKey key) {
+        return (int) key.end().toEpochDay();
+    }
+}
@@ -2,10 +2,11 @@ package com.brt.TimesheetService.modules.timesheet.application.caching;
 
 import java.time.LocalDate;
 
-public record RangeKey(Long employeeId, LocalDate start, LocalDate end, int page, int size) {
+// sort fa parte della chiave: in cache ci sono pagine già ordinate
+public record RangeKey(Long employeeId, LocalDate start, LocalDate end, int page, int size, String sort) {
 
     @Override
     public String toString() {
-        return String.format("RangeKey[emp=%d, %s->%s, p%d, s%d]", employeeId, start, end, page, size);
+        return String.format("RangeKey[emp=%d, %s->%s, p%d, s%d, %s]", employeeId, start, end, page, size, sort);
     }
 }
@@ -0,0 +1,243 @@
+package com.brt.TimesheetService.modules.timesheet.application.caching;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Cache dei risultati dei report (pagine e slice già trasformate).
+ *
+ * Chiave = (tipo report, filtri dipendente/commessa, range date, pagina). I
+ * range che terminano prima del mese corrente sono mesi chiusi: scadono dopo
+ * un TTL lungo (closed-ttl-seconds), gli altri dopo il TTL ordinario.
+ *
+ * L'invalidazione è guidata dalle scritture: HoursRollupService, dopo il
+ * commit, comunica dipendente, commesse e giorni toccati e vengono rimosse
+ * solo le entry il cui range contiene quei giorni e i cui filtri li
+ * includono. La scansione è sulle sole chiavi (cache limitata a maxSize).
+ * Le righe riportano anche nome dipendente e codice commessa: le loro
+ * modifiche svuotano la cache (clearAllAfterCommit).
+ *
+ * Le invalidazioni sono locali: sulle altre repliche un mese chiuso resta
+ * al più per closed-ttl-seconds, un periodo aperto per ttl-seconds.
+ */
+@Component
+public class ReportCacheManager {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportCacheManager.class);
+
+    private final Cache<ReportCacheKey, Object> cache;
+    private final LongAdder invalidations = new LongAdder();
+    // Incrementata a ogni invalidazione: un risultato calcolato a cavallo di
+    // un'invalidazione non viene lasciato in cache
+    private final AtomicLong generation = new AtomicLong();
+
+    public ReportCacheManager(
+            @Value("${timesheet.report-cache.ttl-seconds:300}") long ttlSeconds,
+            @Value("${timesheet.report-cache.closed-ttl-seconds:21600}") long closedTtlSeconds,
+            @Value("${timesheet.report-cache.max-size:1000}") long maxSize,
+            MeterRegistry meterRegistry
+    ) {
+        long ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        long closedTtlNanos = TimeUnit.SECONDS.toNanos(closedTtlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<ReportCacheKey, Object>() {
+                    @Override
+                    public long expireAfterCreate(ReportCacheKey key, Object value, long currentTime) {
+                        return isClosedPeriod(key) ? closedTtlNanos : ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(ReportCacheKey key, Object value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(ReportCacheKey key, Object value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "reportCache");
+    }
+
+    // ============================================================
+    // LETTURA
+    // ============================================================
+    /**
+     * Restituisce il risultato in cache o lo calcola con loader. Il loader
+     * gira fuori dal lock della cache: due miss concorrenti sulla stessa
+     * chiave possono calcolarlo entrambi, ma nessuno aspetta una query lenta
+     * di un altro report.
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R get(ReportCacheKey key, Supplier<R> loader) {
+        Object cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return (R) cached;
+        }
+        long observed = generation.get();
+        R result = loader.get();
+        if (result != null) {
+            cache.put(key, result);
+            // Un'invalidazione arrivata durante il calcolo può aver preceduto la put:
+            // il risultato potrebbe essere stato letto prima del commit della scrittura
+            if (generation.get() != observed) {
+                cache.invalidate(key);
+            }
+        }
+        return result;
+    }
+
+    // ============================================================
+    // INVALIDAZIONE
+    // ============================================================
+    /**
+     * Rimuove le entry che includono le ore del dipendente sulle commesse
+     * indicate in [from, to].
+     */
+    public void invalidate(Long employeeId, Collection<String> commessaCodes, LocalDate from, LocalDate to) {
+        if (commessaCodes.isEmpty()) {
+            return;
+        }
+        generation.incrementAndGet();
+        Set<ReportCacheKey> keys = cache.asMap().keySet();
+        int before = keys.size();
+        keys.removeIf(key -> key.overlaps(from, to)
+                && key.includesEmployee(employeeId)
+                && commessaCodes.stream().anyMatch(key::includesCommessa));
+        int removed = Math.max(0, before - keys.size());
+        invalidations.add(removed);
+        if (removed > 0) {
+            log.debug("Report cache: invalidate {} entry per employeeId={}, commesse={}, {} - {}",
+                    removed, employeeId, commessaCodes, from, to);
+        }
+    }
+
+    /**
+     * Rimuove tutte le entry il cui range interseca [from, to] (rebuild del
+     * rollup).
+     */
+    public void invalidateRange(LocalDate from, LocalDate to) {
+        generation.incrementAndGet();
+        Set<ReportCacheKey> keys = cache.asMap().keySet();
+        int before = keys.size();
+        keys.removeIf(key -> key.overlaps(from, to));
+        int removed = Math.max(0, before - keys.size());
+        invalidations.add(removed);
+        log.info("Report cache: invalidate {} entry per il range {} - {}", removed, from, to);
+    }
+
+    public void clearAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+        log.info("Report cache pulita");
+    }
+
+    /**
+     * Svuota la cache dopo il commit della transazione corrente (subito se
+     * non ce n'è una): prima del commit una lettura concorrente rimetterebbe
+     * in cache i dati vecchi. Usato per le modifiche a dipendenti e commesse.
+     */
+    public void clearAllAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            clearAll();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                clearAll();
+            }
+        });
+    }
+
+    // Range interamente prima del mese corrente: i dati cambiano solo con una scrittura
+    private boolean isClosedPeriod(ReportCacheKey key) {
+        return key.endDate().isBefore(YearMonth.now().atDay(1));
+    }
+
+    // ============================================================
+    // STATISTICHE
+    // ============================================================
+    public ReportCacheStats getStats() {
+        CacheStats stats = cache.stats();
+        return new ReportCacheStats(
+                cache.estimatedSize(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.evictionCount(),
+                invalidations.sum()
+        );
+    }
+
+    public record ReportCacheStats(
+            long size,
+            long hits,
+            long misses,
+            double hitRate,
+            long evictions,
+            long invalidations
+            ) {
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "ReportCacheStats[size=%d, hits=%d, misses=%d (%.2f%% hit), evictions=%d, invalidations=%d]",
+                    size, hits, misses, hitRate * 100, evictions, invalidations
+            );
+        }
+    }
+
+    // ============================================================
+    // CHIAVE
+    // ============================================================
+    /**
+     * employeeId e commessaCode null = report su tutti i dipendenti / tutte
+     * le commesse. page descrive la pagina richiesta (offset o cursore).
+     */
+    public record ReportCacheKey(
+            String type,
+            Long employeeId,
+            String commessaCode,
+            LocalDate startDate,
+            LocalDate endDate,
+            String page
+            ) {
+
+        boolean overlaps(LocalDate from, LocalDate to) {
+            return !startDate.isAfter(to) && !endDate.isBefore(from);
+        }
+
+        boolean includesEmployee(Long id) {
+            return employeeId == null || employeeId.equals(id);
+        }
+
+        boolean includesCommessa(String code) {
+            return commessaCode == null || commessaCode.equals(code);
+        }
+    }
+}
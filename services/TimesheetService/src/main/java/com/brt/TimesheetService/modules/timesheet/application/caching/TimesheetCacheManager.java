@@ -2,77 +2,146 @@ package com.brt.TimesheetService.modules.timesheet.application.caching;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
 import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-
-import com.brt.TimesheetService.modules.timesheet.domain.TimesheetDay;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.brt.TimesheetService.modules.timesheet.application.caching.invalidation.CacheInvalidationBus;
+import com.brt.TimesheetService.modules.timesheet.application.caching.invalidation.CacheInvalidationMessage;
+import com.brt.TimesheetService.modules.timesheet.application.caching.invalidation.CacheInvalidationMessage.Type;
+import com.brt.TimesheetService.shared.exception.ResourceNotFoundException;
+import com.brt.TimesheetService.shared.projection.TimesheetDayProjection;
+import com.brt.TimesheetService.shared.util.DayKey;
 import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.RemovalCause;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
 @Component
 public class TimesheetCacheManager {
 
     private static final Logger log = LoggerFactory.getLogger(TimesheetCacheManager.class);
-    private final Cache<String, TimesheetDay> timesheetCache;
-    private final Cache<RangeKey, Page<TimesheetDay>> rangeCache;
-    private final Map<Long, NavigableMap<LocalDate, List<RangeInfo>>> rangeIndex;
-    private final ReadWriteLock indexLock = new ReentrantReadWriteLock();
-
-    public TimesheetCacheManager() {
-        this.rangeIndex = new ConcurrentHashMap<>();
-
-        this.timesheetCache = Caffeine.newBuilder()
+    private final Cache<Long, CachedDay> timesheetCache;
+    private final DayKeyIndex dayIndex = new DayKeyIndex();
+    private final Cache<RangeKey, CachedRange> rangeCache;
+    private final RangeIndex rangeIndex = new RangeIndex();
+    private final CacheMaintenanceExecutor maintenanceExecutor;
+    private final CacheInvalidationBus invalidationBus;
+    private final CacheRetryQueue retryQueue;
+    // Chiave della lista di invalidazioni raccolte nella transazione corrente
+    private final Object pendingBroadcastKey = new Object();
+    // Caricamento di un giorno per il refresh-ahead, registrato dal service (null = refresh disattivo)
+    private volatile BiFunction<Long, LocalDate, TimesheetDayProjection> dayLoader;
+
+    // Metriche
+    private final Counter indexCleanupRemovals;
+    private final Counter invalidationsPublished;
+    private final Counter invalidationsReceived;
+    private final Timer invalidationLag;
+    private final Counter refreshes;
+
+    public TimesheetCacheManager(
+            CacheMaintenanceExecutor maintenanceExecutor,
+            MeterRegistry meterRegistry,
+            @Value("${timesheet.cache.day.max-weight-mb:64}") long dayCacheMaxWeightMb,
+            CacheInvalidationBus invalidationBus,
+            CacheRetryQueue retryQueue,
+            @Value("${timesheet.cache.refresh-ahead.enabled:false}") boolean refreshAhead,
+            @Value("${timesheet.cache.refresh-ahead.day-minutes:20}") long dayRefreshMinutes,
+            @Value("${timesheet.cache.refresh-ahead.range-minutes:10}") long rangeRefreshMinutes
+    ) {
+        this.maintenanceExecutor = maintenanceExecutor;
+        this.invalidationBus = invalidationBus;
+        this.retryQueue = retryQueue;
+        // Limite in memoria, non in numero di entry: un giorno pesa in base ai suoi item
+        Caffeine<Long, CachedDay> dayBuilder = Caffeine.newBuilder()
                 .expireAfterWrite(30, TimeUnit.MINUTES)
-                .maximumSize(1000)
+                .maximumWeight(dayCacheMaxWeightMb * 1024 * 1024)
+                .weigher((Long key, CachedDay value) -> value.weight())
                 .recordStats()
-                .removalListener((key, value, cause) -> {
-                    if (cause != RemovalCause.EXPLICIT) {
-                        log.trace("Cache day auto-rimossa: {} (causa: {})", key, cause);
+                .evictionListener((Long key, CachedDay value, RemovalCause cause) -> {
+                    // Sincrono come per i range: de-indicizza solo il valore rimosso
+                    if (key != null) {
+                        dayIndex.remove(key, value);
+                        log.trace("Cache day auto-rimossa: {} (causa: {})", DayKey.describe(key), cause);
                     }
-                })
-                .build();
+                });
 
-        this.rangeCache = Caffeine.newBuilder()
+        Caffeine<RangeKey, CachedRange> rangeBuilder = Caffeine.newBuilder()
                 .expireAfterWrite(15, TimeUnit.MINUTES)
                 .maximumSize(500)
                 .recordStats()
-                .removalListener((RangeKey key, Page<TimesheetDay> value, RemovalCause cause) -> {
-                    // CRITICAL FIX: Gestione asincrona per evitare deadlock
-                    if (key != null && cause != RemovalCause.EXPLICIT) {
-                        // Usa un thread separato per evitare deadlock con cache lock
-                        CompletableFuture.runAsync(() -> {
-                            try {
-                                safeRemoveFromIndex(key);
-                                log.trace("Cache range auto-rimossa e indicizzata: {} (causa: {})",
-                                        key, cause);
-                            } catch (Exception e) {
-                                log.error("ERRORE CRITICO: impossibile rimuovere dall'indice "
-                                        + "la key {}: {}", key, e.getMessage(), e);
-                            }
-                        });
+                .evictionListener((RangeKey key, CachedRange value, RemovalCause cause) -> {
+                    // Eseguito in modo sincrono dentro l'eviction: un putRange concorrente
+                    // sulla stessa chiave viene serializzato e non può perdere l'indicizzazione.
+                    // L'indice non richiama mai la cache, quindi non ci sono rischi di deadlock.
+                    if (key != null) {
+                        rangeIndex.remove(key);
+                        log.trace("Cache range auto-rimossa e de-indicizzata: {} (causa: {})", key, cause);
                     }
-                })
-                .build();
+                });
+
+        if (refreshAhead) {
+            // Refresh-ahead: dopo refreshAfterWrite la lettura restituisce il valore
+            // corrente e ricarica in background; expireAfterWrite resta il limite massimo
+            this.timesheetCache = dayBuilder
+                    .refreshAfterWrite(dayRefreshMinutes, TimeUnit.MINUTES)
+                    .build(new DayRefresher());
+            this.rangeCache = rangeBuilder
+                    .refreshAfterWrite(rangeRefreshMinutes, TimeUnit.MINUTES)
+                    .build(new RangeRefresher());
+            log.info("Refresh-ahead attivo: day {} min, range {} min (mese corrente e precedente)",
+                    dayRefreshMinutes, rangeRefreshMinutes);
+        } else {
+            this.timesheetCache = dayBuilder.build();
+            this.rangeCache = rangeBuilder.build();
+        }
+
+        CaffeineCacheMetrics.monitor(meterRegistry, timesheetCache, "timesheetCache");
+        CaffeineCacheMetrics.monitor(meterRegistry, rangeCache, "rangeCache");
+        Gauge.builder("timesheet.cache.index.employees", rangeIndex, RangeIndex::employeeCount)
+                .description("Dipendenti con almeno un range indicizzato")
+                .register(meterRegistry);
+        this.indexCleanupRemovals = Counter.builder("timesheet.cache.index.cleanup.removed")
+                .description("Range obsoleti rimossi dall'indice dal cleanup periodico")
+                .register(meterRegistry);
+        this.invalidationsPublished = Counter.builder("timesheet.cache.invalidation.published")
+                .description("Invalidazioni pubblicate alle altre repliche")
+                .register(meterRegistry);
+        this.invalidationsReceived = Counter.builder("timesheet.cache.invalidation.received")
+                .description("Invalidazioni ricevute dalle altre repliche e applicate")
+                .register(meterRegistry);
+        this.invalidationLag = Timer.builder("timesheet.cache.invalidation.lag")
+                .description("Ritardo tra pubblicazione di un'invalidazione e applicazione su questa replica")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.refreshes = Counter.builder("timesheet.cache.refresh")
+                .description("Entry ricaricate in background dal refresh-ahead")
+                .register(meterRegistry);
+
+        // Ultima istruzione: il bus può consegnare messaggi da subito
+        invalidationBus.subscribe(this::applyRemote);
     }
 
     // ============================================================
@@ -82,224 +151,235 @@ public class TimesheetCacheManager {
      * Aggiunge un range all'indice in modo atomico e idempotente.
      */
     public void addToIndex(RangeKey key) {
-        indexLock.writeLock().lock();
-        try {
-            NavigableMap<LocalDate, List<RangeInfo>> employeeRanges
-                    = rangeIndex.computeIfAbsent(key.employeeId(), k -> new TreeMap<>());
-
-            RangeInfo rangeInfo = new RangeInfo(key, key.start(), key.end());
-
-            // Verifica duplicati per evitare memory leak
-            List<RangeInfo> rangesAtStart
-                    = employeeRanges.computeIfAbsent(key.start(), k -> new ArrayList<>());
-
-            if (!rangesAtStart.contains(rangeInfo)) {
-                rangesAtStart.add(rangeInfo);
-                log.trace("Aggiunto range all'indice: {}", rangeInfo);
-            } else {
-                log.trace("Range già presente nell'indice, skip: {}", rangeInfo);
-            }
-        } finally {
-            indexLock.writeLock().unlock();
-        }
+        rangeIndex.add(key);
+        log.trace("Aggiunto range all'indice: {}", key);
     }
 
     public void removeFromIndex(RangeKey key) {
-        indexLock.writeLock().lock();
-        try {
-            NavigableMap<LocalDate, List<RangeInfo>> employeeRanges = rangeIndex.get(key.employeeId());
-            if (employeeRanges == null) {
-                return;
-            }
-
-            List<RangeInfo> ranges = employeeRanges.get(key.start());
-            if (ranges != null) {
-                boolean removed = ranges.removeIf(info -> info.key.equals(key));
-                if (removed) {
-                    log.trace("Rimosso range dall'indice: {}", key);
-                }
-
-                // Cleanup: rimuove liste vuote
-                if (ranges.isEmpty()) {
-                    employeeRanges.remove(key.start());
-                }
-            }
-
-            // Cleanup: rimuove mappe vuote
-            if (employeeRanges.isEmpty()) {
-                rangeIndex.remove(key.employeeId());
-            }
-        } finally {
-            indexLock.writeLock().unlock();
-        }
+        rangeIndex.remove(key);
+        log.trace("Rimosso range dall'indice: {}", key);
     }
 
-    // Metodo pubblico per cleanup manuale (utile per test/manutenzione)
-    public void cleanupEmptyIndexEntries(Long employeeId) {
-        indexLock.writeLock().lock();
-        try {
-            NavigableMap<LocalDate, List<RangeInfo>> employeeRanges = rangeIndex.get(employeeId);
-            if (employeeRanges == null) {
-                return;
-            }
-
-            // Rimuove tutte le liste vuote
-            employeeRanges.entrySet().removeIf(entry -> entry.getValue().isEmpty());
-
-            // Se la mappa è vuota, rimuovila dall'indice principale
-            if (employeeRanges.isEmpty()) {
-                rangeIndex.remove(employeeId);
-            }
-        } finally {
-            indexLock.writeLock().unlock();
+    private Set<RangeKey> findRangesContaining(Long employeeId, LocalDate date) {
+        Set<RangeKey> affectedKeys = rangeIndex.findContaining(employeeId, date);
+        if (!affectedKeys.isEmpty()) {
+            log.debug("Trovati {} range contenenti la data {} per employeeId {}",
+                    affectedKeys.size(), date, employeeId);
         }
+        return affectedKeys;
     }
 
-    private Set<RangeKey> findRangesContaining(Long employeeId, LocalDate date) {
-        indexLock.readLock().lock();
-        try {
-            NavigableMap<LocalDate, List<RangeInfo>> employeeRanges = rangeIndex.get(employeeId);
-            if (employeeRanges == null || employeeRanges.isEmpty()) {
-                return Collections.emptySet();
-            }
-
-            // Trova tutti i range che potrebbero contenere questa data
-            // (tutti quelli che iniziano prima o alla data specificata)
-            NavigableMap<LocalDate, List<RangeInfo>> candidateRanges
-                    = employeeRanges.headMap(date, true);
-
-            Set<RangeKey> affectedKeys = new HashSet<>();
-            for (List<RangeInfo> rangeList : candidateRanges.values()) {
-                for (RangeInfo range : rangeList) {
-                    if (range.containsDate(date)) {
-                        affectedKeys.add(range.key);
-                    }
-                }
-            }
-
-            if (!affectedKeys.isEmpty()) {
-                log.debug("Trovati {} range contenenti la data {} per employeeId {}",
-                        affectedKeys.size(), date, employeeId);
-            }
-
-            return affectedKeys;
-        } finally {
-            indexLock.readLock().unlock();
+    /**
+     * Invalida i range indicati. L'indice viene aggiornato PRIMA della cache:
+     * un putRange concorrente può al più lasciare una chiave superflua
+     * nell'indice, mai una entry in cache non indicizzata.
+     */
+    private void invalidateRanges(Set<RangeKey> keys) {
+        if (keys.isEmpty()) {
+            return;
         }
+        for (RangeKey key : keys) {
+            rangeIndex.remove(key);
+        }
+        rangeCache.invalidateAll(keys);
+        log.trace("Invalidati {} range cache: {}", keys.size(), keys);
     }
 
     // ============================================================
     // METODI PUBBLICI PER CACHE
     // ============================================================
-    public String buildDayKey(Long employeeId, LocalDate date) {
-        return employeeId + "_" + date;
+    public long buildDayKey(Long employeeId, LocalDate date) {
+        return DayKey.of(employeeId, date);
     }
 
-    public RangeKey buildRangeKey(Long employeeId, LocalDate start, LocalDate end, int page, int size) {
-        return new RangeKey(employeeId, start, end, page, size);
+    public RangeKey buildRangeKey(Long employeeId, LocalDate start, LocalDate end, Pageable pageable) {
+        return new RangeKey(employeeId, start, end,
+                pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort().toString());
     }
 
-    public void invalidateDayAndRanges(Long employeeId, LocalDate date) {
-        indexLock.readLock().lock();
-        try {
-            // Prima invalida i range
-            Set<RangeKey> keysToInvalidate = findRangesContaining(employeeId, date);
-            for (RangeKey key : keysToInvalidate) {
-                rangeCache.invalidate(key);
-                log.trace("Invalidato range cache: {}", key);
-            }
+    /**
+     * Rimuove il giorno dalla cache e dall'indice per dipendente nella stessa
+     * operazione atomica sulla chiave.
+     */
+    private void invalidateDayEntry(long key) {
+        // Un retry in attesa riscriverebbe il valore appena invalidato
+        retryQueue.cancel(key);
+        timesheetCache.asMap().computeIfPresent(key, (k, old) -> {
+            dayIndex.remove(k, old);
+            return null;
+        });
+    }
 
-            // Poi invalida il singolo giorno
-            String dayKey = buildDayKey(employeeId, date);
-            timesheetCache.invalidate(dayKey);
-            log.trace("Invalidato day cache: {}", dayKey);
-        } finally {
-            indexLock.readLock().unlock();
-        }
+    public void invalidateDayAndRanges(Long employeeId, LocalDate date) {
+        invalidateDay(employeeId, date);
     }
 
     public void invalidateRangeCachesContaining(Long employeeId, LocalDate date) {
+        dropRangesContaining(employeeId, date);
+        broadcast(CacheInvalidationMessage.of(Type.RANGES, employeeId, date, date));
+    }
+
+    private void dropRangesContaining(Long employeeId, LocalDate date) {
         Set<RangeKey> keysToInvalidate = findRangesContaining(employeeId, date);
         if (!keysToInvalidate.isEmpty()) {
             log.debug("Invalidazione {} range cache per employeeId {} e data {}",
                     keysToInvalidate.size(), employeeId, date);
-            for (RangeKey key : keysToInvalidate) {
-                rangeCache.invalidate(key);
+            invalidateRanges(keysToInvalidate);
+        }
+    }
+
+    /**
+     * Invalida i range che contengono la data sull'executor di manutenzione,
+     * fuori dal critical path della richiesta.
+     */
+    public void invalidateRangeCachesContainingAsync(Long employeeId, LocalDate date, String opName) {
+        maintenanceExecutor.execute(() -> {
+            try {
+                invalidateRangeCachesContaining(employeeId, date);
+                log.trace("[{}] Range cache invalidate per date={}", opName, date);
+            } catch (Exception e) {
+                log.warn("[{}] Fallita invalidazione range cache: {}", opName, e.getMessage());
             }
+        });
+    }
+
+    /**
+     * Invalida tutti i range che intersecano [from, to]: una sola query
+     * sull'indice, O(log n + k), per qualunque scrittura su più giorni.
+     */
+    public void invalidateRangesOverlapping(Long employeeId, LocalDate from, LocalDate to) {
+        dropRangesOverlapping(employeeId, from, to);
+        broadcast(CacheInvalidationMessage.of(Type.RANGES, employeeId, from, to));
+    }
+
+    private void dropRangesOverlapping(Long employeeId, LocalDate from, LocalDate to) {
+        Set<RangeKey> keysToInvalidate = rangeIndex.findOverlapping(employeeId, from, to);
+        if (!keysToInvalidate.isEmpty()) {
+            log.debug("Invalidazione {} range cache per employeeId {} tra {} e {}",
+                    keysToInvalidate.size(), employeeId, from, to);
+            invalidateRanges(keysToInvalidate);
         }
     }
 
+    public void invalidateRangesOverlappingAsync(Long employeeId, LocalDate from, LocalDate to, String opName) {
+        maintenanceExecutor.execute(() -> {
+            try {
+                invalidateRangesOverlapping(employeeId, from, to);
+                log.trace("[{}] Range cache invalidate tra {} e {}", opName, from, to);
+            } catch (Exception e) {
+                log.warn("[{}] Fallita invalidazione range cache: {}", opName, e.getMessage());
+            }
+        });
+    }
+
     // ============================================================
     // API PUBBLICA SEMPLIFICATA
     // ============================================================
     /**
-     * Ottiene un giorno di timesheet se presente in cache
+     * Ottiene la projection di un giorno se presente in cache. La day cache
+     * contiene solo projection immutabili, mai entity gestite.
      */
-    public Optional<TimesheetDay> getDay(Long employeeId, LocalDate date) {
-        String key = buildDayKey(employeeId, date);
-        TimesheetDay result = timesheetCache.getIfPresent(key);
+    public Optional<TimesheetDayProjection> getDay(Long employeeId, LocalDate date) {
+        CachedDay cached = timesheetCache.getIfPresent(buildDayKey(employeeId, date));
+        TimesheetDayProjection result = cached != null ? cached.toProjection() : null;
         if (result != null) {
-            log.trace("Cache HIT per day: {}", key);
+            log.trace("Cache HIT per day: employeeId={}, date={}", employeeId, date);
         } else {
-            log.trace("Cache MISS per day: {}", key);
+            log.trace("Cache MISS per day: employeeId={}, date={}", employeeId, date);
         }
         return Optional.ofNullable(result);
     }
 
-    public TimesheetDay getOrLoadDay(Long employeeId, LocalDate date, Supplier<TimesheetDay> loader) {
-        String key = buildDayKey(employeeId, date);
-        return timesheetCache.get(key, k -> {
-            TimesheetDay day = loader.get();
-            log.trace("Cache MISS e caricata dal DB per day: {}", key);
-            return day;
+    public TimesheetDayProjection getOrLoadDay(Long employeeId, LocalDate date, Supplier<TimesheetDayProjection> loader) {
+        // get e non asMap().computeIfAbsent: solo le letture dalla Cache innescano il refresh-ahead
+        CachedDay cached = timesheetCache.get(buildDayKey(employeeId, date), k -> {
+            TimesheetDayProjection day = loader.get();
+            log.trace("Cache MISS e caricata dal DB per day: employeeId={}, date={}", employeeId, date);
+            if (day == null) {
+                return null;
+            }
+            CachedDay value = CachedDay.from(day);
+            dayIndex.add(k, value);
+            return value;
         });
+        return cached != null ? cached.toProjection() : null;
     }
 
     /**
-     * Invalida un giorno e tutti i range che lo contengono in modo atomico.
+     * Invalida un giorno e tutti i range che lo contengono.
      */
     public void invalidateDay(Long employeeId, LocalDate date) {
-        // Acquisisce entrambi i lock per operazione atomica
-        indexLock.readLock().lock();
-        try {
-            // Step 1: Trova tutti i range da invalidare
-            Set<RangeKey> keysToInvalidate = findRangesContainingUnsafe(employeeId, date);
+        dropDay(employeeId, date);
+        broadcast(CacheInvalidationMessage.of(Type.DAY, employeeId, date, date));
+    }
 
-            // Step 2: Invalida i range
-            for (RangeKey key : keysToInvalidate) {
-                rangeCache.invalidate(key);
-                log.trace("Invalidato range cache: {}", key);
-            }
+    private void dropDay(Long employeeId, LocalDate date) {
+        // Step 1: Invalida i range che contengono la data
+        invalidateRanges(findRangesContaining(employeeId, date));
 
-            // Step 3: Invalida il singolo giorno
-            String dayKey = buildDayKey(employeeId, date);
-            timesheetCache.invalidate(dayKey);
-            log.trace("Invalidato day cache: {}", dayKey);
+        // Step 2: Invalida il singolo giorno
+        invalidateDayEntry(buildDayKey(employeeId, date));
+        log.trace("Invalidato day cache: employeeId={}, date={}", employeeId, date);
+    }
 
-        } finally {
-            indexLock.readLock().unlock();
+    /**
+     * Invalida in un'unica operazione tutti i giorni in [from, to] di un
+     * dipendente. I range cache vanno invalidati a parte dal chiamante.
+     */
+    public void invalidateDays(Long employeeId, LocalDate from, LocalDate to) {
+        dropDays(employeeId, from, to);
+        broadcast(CacheInvalidationMessage.of(Type.DAYS, employeeId, from, to));
+    }
+
+    private void dropDays(Long employeeId, LocalDate from, LocalDate to) {
+        long fromKey = buildDayKey(employeeId, from);
+        long toKey = buildDayKey(employeeId, to);
+        // chiavi contigue: stesso dipendente, epochDay consecutivi
+        for (long key = fromKey; key <= toKey; key++) {
+            invalidateDayEntry(key);
         }
+        log.trace("Invalidati {} day cache per employeeId {} ({} - {})", toKey - fromKey + 1, employeeId, from, to);
     }
 
     /**
      * Inserisce o aggiorna un giorno nella cache
      */
-    public void putDay(Long employeeId, LocalDate date, TimesheetDay day) {
+    public void putDay(Long employeeId, LocalDate date, TimesheetDayProjection day) {
         if (day == null) {
             log.warn("Tentativo di inserire null in cache per employeeId {} e data {}", employeeId, date);
             return;
         }
-        String key = buildDayKey(employeeId, date);
-        timesheetCache.put(key, day);
-        log.trace("Inserito in cache day: {}", key);
+        CachedDay value = CachedDay.from(day);
+        timesheetCache.asMap().compute(buildDayKey(employeeId, date), (k, old) -> {
+            dayIndex.add(k, value);
+            return value;
+        });
+        log.trace("Inserito in cache day: employeeId={}, date={}", employeeId, date);
+    }
+
+    /**
+     * Inserisce un giorno solo se assente: usato dal warm-up, non sovrascrive
+     * un valore già caricato o scritto da una richiesta. Restituisce true se
+     * il giorno è stato inserito.
+     */
+    public boolean putDayIfAbsent(Long employeeId, LocalDate date, TimesheetDayProjection day) {
+        boolean[] inserted = new boolean[1];
+        timesheetCache.asMap().computeIfAbsent(buildDayKey(employeeId, date), k -> {
+            CachedDay value = CachedDay.from(day);
+            dayIndex.add(k, value);
+            inserted[0] = true;
+            return value;
+        });
+        return inserted[0];
     }
 
     /**
      * Ottiene un range se presente in cache
      */
-    public Optional<Page<TimesheetDay>> getRange(Long employeeId, LocalDate start, LocalDate end, int page, int size) {
-        RangeKey key = new RangeKey(employeeId, start, end, page, size);
-        Page<TimesheetDay> result = rangeCache.getIfPresent(key);
+    public Optional<Page<TimesheetDayProjection>> getRange(Long employeeId, LocalDate start, LocalDate end, Pageable pageable) {
+        RangeKey key = buildRangeKey(employeeId, start, end, pageable);
+        CachedRange cached = rangeCache.getIfPresent(key);
+        Page<TimesheetDayProjection> result = cached != null ? cached.page() : null;
         if (result != null) {
             log.trace("Cache HIT per range: {}", key);
         } else {
@@ -311,139 +391,108 @@ public class TimesheetCacheManager {
     /**
      * Inserisce un range nella cache e aggiorna l'indice
      */
-    public void putRange(Long employeeId, LocalDate start, LocalDate end, int page, int size, Page<TimesheetDay> value) {
+    public void putRange(Long employeeId, LocalDate start, LocalDate end, Pageable pageable, Page<TimesheetDayProjection> value) {
+        putRange(employeeId, start, end, pageable, value, null);
+    }
+
+    /**
+     * Come putRange, con il caricamento da usare per il refresh-ahead della
+     * pagina (eseguito fuori dalla richiesta, senza transazione del chiamante).
+     */
+    public void putRange(Long employeeId, LocalDate start, LocalDate end, Pageable pageable,
+            Page<TimesheetDayProjection> value, Supplier<Page<TimesheetDayProjection>> reloader) {
         if (value == null) {
             log.warn("Tentativo di inserire null in range cache per employeeId {}, range {}-{}",
                     employeeId, start, end);
             return;
         }
 
-        RangeKey key = new RangeKey(employeeId, start, end, page, size);
-        rangeCache.put(key, value);
+        RangeKey key = buildRangeKey(employeeId, start, end, pageable);
+        rangeCache.put(key, new CachedRange(value, reloader));
         addToIndex(key);
         log.trace("Inserito in cache range: {}", key);
     }
 
+    /**
+     * Come putDayIfAbsent, per una pagina di range.
+     */
+    public boolean putRangeIfAbsent(Long employeeId, LocalDate start, LocalDate end, Pageable pageable,
+            Page<TimesheetDayProjection> value, Supplier<Page<TimesheetDayProjection>> reloader) {
+        RangeKey key = buildRangeKey(employeeId, start, end, pageable);
+        boolean[] inserted = new boolean[1];
+        rangeCache.asMap().computeIfAbsent(key, k -> {
+            inserted[0] = true;
+            return new CachedRange(value, reloader);
+        });
+        if (inserted[0]) {
+            addToIndex(key);
+        }
+        return inserted[0];
+    }
+
     /**
      * Invalida tutte le cache per un dipendente specifico
      */
     public void invalidateAllForEmployee(Long employeeId) {
-        indexLock.writeLock().lock();
-        try {
-            // Invalida tutti i range per questo dipendente
-            NavigableMap<LocalDate, List<RangeInfo>> employeeRanges = rangeIndex.get(employeeId);
-            if (employeeRanges != null) {
-                Set<RangeKey> keysToInvalidate = new HashSet<>();
-                for (List<RangeInfo> rangeList : employeeRanges.values()) {
-                    for (RangeInfo info : rangeList) {
-                        keysToInvalidate.add(info.key);
-                    }
-                }
-
-                log.debug("Invalidazione totale: {} range per employeeId {}",
-                        keysToInvalidate.size(), employeeId);
-
-                for (RangeKey key : keysToInvalidate) {
-                    rangeCache.invalidate(key);
-                }
+        dropEmployee(employeeId);
+        broadcast(CacheInvalidationMessage.employee(employeeId));
+    }
 
-                // Rimuove l'indice per questo dipendente
-                rangeIndex.remove(employeeId);
-            }
+    private void dropEmployee(Long employeeId) {
+        // Invalida tutti i range per questo dipendente (e rimuove il suo indice)
+        Set<RangeKey> keysToInvalidate = rangeIndex.removeEmployee(employeeId);
+        if (!keysToInvalidate.isEmpty()) {
+            log.debug("Invalidazione totale: {} range per employeeId {}",
+                    keysToInvalidate.size(), employeeId);
+            rangeCache.invalidateAll(keysToInvalidate);
+        }
 
-            // Invalida tutti i day cache per questo dipendente
-            // Nota: Caffeine non supporta invalidazione per prefisso,
-            // quindi dobbiamo fare cleanup manuale se necessario
-            timesheetCache.asMap().keySet().removeIf(key -> key.startsWith(employeeId + "_"));
+        // Invalida tutti i day cache per questo dipendente: solo le sue chiavi,
+        // senza scansionare la cache
+        timesheetCache.invalidateAll(dayIndex.removeEmployee(employeeId));
+        retryQueue.cancelIf(key -> DayKey.employeeId(key) == employeeId);
 
-            log.info("Invalidata tutta la cache per employeeId {}", employeeId);
-        } finally {
-            indexLock.writeLock().unlock();
-        }
+        log.info("Invalidata tutta la cache per employeeId {}", employeeId);
     }
 
     // ============================================================
     // CACHE ERROR HANDLING
     // ============================================================
     /**
-     * Esegue un'operazione cache con retry automatico.
+     * Esegue un'operazione cache con un solo tentativo: i retry non avvengono
+     * sul thread della richiesta ma passano da CacheRetryQueue.
      */
     public <T> CacheOperationResult<T> executeCacheOperation(
             Supplier<T> operation,
             String operationName
     ) {
-        int maxRetries = 2;
-        Exception lastException = null;
-        for (int attempt = 1; attempt <= maxRetries; attempt++) {
-            try {
-                T result = operation.get();
-                if (attempt > 1) {
-                    log.info("Retry {} SUCCESSO per {}", attempt, operationName);
-                }
-                return new CacheOperationResult<>(true, result, null);
-            } catch (Exception e) {
-                lastException = e;
-                log.warn("Tentativo {}/{} fallito per {}: {}", attempt, maxRetries, operationName, e.getMessage());
-                if (attempt < maxRetries) {
-                    try {
-                        Thread.sleep(100L * attempt);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        return new CacheOperationResult<>(false, null, e);
-                    }
-                }
-            }
+        try {
+            return new CacheOperationResult<>(true, operation.get(), null);
+        } catch (Exception e) {
+            log.warn("Operazione cache fallita per {}: {}", operationName, e.getMessage());
+            return new CacheOperationResult<>(false, null, e);
         }
-
-        log.error("Fallimento permanente per {}", operationName, lastException);
-        return new CacheOperationResult<>(false, null, lastException);
     }
 
     /**
      * Popola la cache con gestione errori robusta e retry asincrono.
      */
-    public void safePopulateCache(Long employeeId, LocalDate date, TimesheetDay day) {
+    public void safePopulateCache(Long employeeId, LocalDate date, TimesheetDayProjection day) {
+        String operationName = "putDay[" + employeeId + "," + date + "]";
         CacheOperationResult<Void> result = executeCacheOperation(
                 () -> {
                     putDay(employeeId, date, day);
                     return null;
                 },
-                "putDay[" + employeeId + "," + date + "]"
+                operationName
         );
 
         if (!result.isSuccess()) {
-            // Fallback: schedula retry asincrono
-            scheduleAsyncCacheUpdate(employeeId, date, day);
+            // Fallback: retry in background, deduplicato per giorno (vince l'ultimo valore)
+            retryQueue.submit(buildDayKey(employeeId, date), operationName, () -> putDay(employeeId, date, day));
         }
     }
 
-    /**
-     * Schedula un aggiornamento asincrono della cache per retry successivi.
-     */
-    private void scheduleAsyncCacheUpdate(Long employeeId, LocalDate date, TimesheetDay day) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                Thread.sleep(5000); // Attende 5 secondi
-                putDay(employeeId, date, day);
-                log.info("Retry asincrono cache SUCCESSO per employeeId={}, date={}",
-                        employeeId, date);
-            } catch (InterruptedException e) {
-                log.error("Retry asincrono cache FALLITO per employeeId={}, date={}: {}",
-                        employeeId, date, e.getMessage());
-                recordFailedCacheOperation(employeeId, date);
-            }
-        });
-    }
-
-    /**
-     * Registra operazioni cache fallite per monitoring/alerting.
-     */
-    private void recordFailedCacheOperation(Long employeeId, LocalDate date) {
-        log.error("CACHE FAILURE PERMANENTE: employeeId={}, date={} - "
-                + "RICHIESTA INTERVENTO MANUALE O MONITORING", employeeId, date);
-        // TODO: Integrare con sistema di alerting (email, Slack, Prometheus, etc.)
-    }
-
     /**
      * Restituisce statistiche sulla cache
      */
@@ -453,7 +502,7 @@ public class TimesheetCacheManager {
                 rangeCache.estimatedSize(),
                 timesheetCache.stats().hitRate(),
                 rangeCache.stats().hitRate(),
-                rangeIndex.size()
+                rangeIndex.employeeCount()
         );
     }
 
@@ -478,102 +527,211 @@ public class TimesheetCacheManager {
      * Pulisce completamente tutte le cache (utile per test)
      */
     public void clearAll() {
-        indexLock.writeLock().lock();
-        try {
-            timesheetCache.invalidateAll();
-            rangeCache.invalidateAll();
-            rangeIndex.clear();
-            log.info("Tutte le cache sono state pulite");
-        } finally {
-            indexLock.writeLock().unlock();
-        }
+        dropAll();
+    }
+
+    private void dropAll() {
+        retryQueue.clear();
+        rangeIndex.clear();
+        dayIndex.clear();
+        timesheetCache.invalidateAll();
+        rangeCache.invalidateAll();
+        log.info("Tutte le cache sono state pulite");
     }
 
+    // ============================================================
+    // INVALIDAZIONE TRA REPLICHE
+    // ============================================================
     /**
-     * Rimuove una chiave dall'indice in modo sicuro, con retry e timeout.
+     * Propaga un'invalidazione alle altre repliche. Dentro una transazione i
+     * messaggi vengono raccolti e pubblicati tutti insieme a transazione
+     * conclusa: pubblicarli prima permetterebbe a una replica di ricaricare
+     * lo stato precedente al commit. Anche dopo un rollback vengono
+     * pubblicati, un'invalidazione in più è innocua.
      */
-    private void safeRemoveFromIndex(RangeKey key) {
-        int maxRetries = 3;
-        for (int attempt = 0; attempt < maxRetries; attempt++) {
-            try {
-                // Timeout di 5 secondi per acquisire il lock
-                if (indexLock.writeLock().tryLock(5, TimeUnit.SECONDS)) {
-                    try {
-                        removeFromIndexUnsafe(key);
-                        return; // Successo
-                    } finally {
-                        indexLock.writeLock().unlock();
-                    }
-                } else {
-                    log.warn("Timeout acquisizione lock indice (tentativo {}/{})",
-                            attempt + 1, maxRetries);
+    private void broadcast(CacheInvalidationMessage message) {
+        if (!invalidationBus.isDistributed()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publishAsync(List.of(message));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<CacheInvalidationMessage> pending = (List<CacheInvalidationMessage>) TransactionSynchronizationManager.getResource(pendingBroadcastKey);
+        if (pending == null) {
+            List<CacheInvalidationMessage> batch = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(pendingBroadcastKey, batch);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(pendingBroadcastKey);
+                    publishAsync(batch);
                 }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.error("Interruzione durante rimozione dall'indice: {}", e.getMessage());
-                return;
+            });
+            pending = batch;
+        }
+        pending.add(message);
+    }
+
+    private void publishAsync(List<CacheInvalidationMessage> messages) {
+        maintenanceExecutor.execute(() -> {
+            try {
+                invalidationBus.publish(messages);
+                invalidationsPublished.increment(messages.size());
             } catch (Exception e) {
-                log.error("Errore tentativo {} di rimozione dall'indice: {}",
-                        attempt + 1, e.getMessage());
+                log.warn("Pubblicazione di {} invalidazioni fallita: {}", messages.size(), e.getMessage());
             }
+        });
+    }
+
+    /**
+     * Applica un'invalidazione ricevuta da un'altra replica, solo in locale
+     * (senza ripubblicarla).
+     */
+    private void applyRemote(CacheInvalidationMessage message) {
+        Long employeeId = message.employeeId();
+        switch (message.type()) {
+            case DAY ->
+                dropDay(employeeId, message.from());
+            case DAYS -> {
+                dropDays(employeeId, message.from(), message.to());
+                dropRangesOverlapping(employeeId, message.from(), message.to());
+            }
+            case RANGES ->
+                dropRangesOverlapping(employeeId, message.from(), message.to());
+            case EMPLOYEE ->
+                dropEmployee(employeeId);
+            case ALL ->
+                dropAll();
+        }
+        invalidationsReceived.increment();
+        if (message.publishedAtMillis() > 0) {
+            invalidationLag.record(Math.max(0, System.currentTimeMillis() - message.publishedAtMillis()), TimeUnit.MILLISECONDS);
         }
+        log.trace("Invalidazione remota applicata: {}", message);
+    }
 
-        log.error("FALLIMENTO PERMANENTE: impossibile rimuovere dall'indice la key {} "
-                + "dopo {} tentativi", key, maxRetries);
+    // ============================================================
+    // REFRESH-AHEAD
+    // ============================================================
+    /**
+     * Registra il caricamento di un giorno dal DB usato dal refresh-ahead.
+     */
+    public void registerDayLoader(BiFunction<Long, LocalDate, TimesheetDayProjection> loader) {
+        this.dayLoader = loader;
     }
 
     /**
-     * Rimuove dall'indice senza acquisire lock (chiamata DEVE essere protetta
-     * da lock esterno).
+     * Finestra calda: mese precedente e mese corrente. Fuori finestra una
+     * entry non viene ricaricata ma rimossa al primo refresh.
      */
-    private void removeFromIndexUnsafe(RangeKey key) {
-        NavigableMap<LocalDate, List<RangeInfo>> employeeRanges = rangeIndex.get(key.employeeId());
-        if (employeeRanges == null) {
-            return;
-        }
+    private static boolean isHot(LocalDate from, LocalDate to) {
+        LocalDate today = LocalDate.now();
+        LocalDate windowStart = today.minusMonths(1).withDayOfMonth(1);
+        LocalDate windowEnd = today.withDayOfMonth(today.lengthOfMonth());
+        return !to.isBefore(windowStart) && !from.isAfter(windowEnd);
+    }
 
-        List<RangeInfo> ranges = employeeRanges.get(key.start());
-        if (ranges != null) {
-            boolean removed = ranges.removeIf(info -> info.key.equals(key));
-            if (removed) {
-                log.trace("Rimosso range dall'indice: {}", key);
-            }
+    /**
+     * Loader della day cache. Il reload gira sull'executor di manutenzione e
+     * installa da sé il valore ricaricato, nello stesso compute che aggiorna
+     * l'indice e solo se la entry contiene ancora il valore di partenza: una
+     * entry invalidata o riscritta durante il reload non viene toccata e
+     * l'indice non riceve valori mai entrati in cache. Fuori dalla finestra
+     * calda, o se il giorno non esiste più, la entry viene rimossa.
+     */
+    private final class DayRefresher implements CacheLoader<Long, CachedDay> {
 
-            // Cleanup: rimuove liste vuote
-            if (ranges.isEmpty()) {
-                employeeRanges.remove(key.start());
+        @Override
+        public CachedDay load(Long key) {
+            // Eseguito da Caffeine dentro il compute della chiave
+            CachedDay value = loadDay(key);
+            if (value != null) {
+                dayIndex.add(key, value);
             }
+            return value;
         }
 
-        // Cleanup: rimuove mappe vuote
-        if (employeeRanges.isEmpty()) {
-            rangeIndex.remove(key.employeeId());
+        @Override
+        public CachedDay reload(Long key, CachedDay oldValue) {
+            return install(key, oldValue, reloadDay(key));
         }
-    }
 
-    /**
-     * Trova range contenenti una data SENZA acquisire lock (uso interno).
-     */
-    private Set<RangeKey> findRangesContainingUnsafe(Long employeeId, LocalDate date) {
-        NavigableMap<LocalDate, List<RangeInfo>> employeeRanges = rangeIndex.get(employeeId);
-        if (employeeRanges == null || employeeRanges.isEmpty()) {
-            return Collections.emptySet();
+        @Override
+        public CompletableFuture<? extends CachedDay> asyncReload(Long key, CachedDay oldValue, Executor executor) {
+            // L'install passa sempre dall'executor di Caffeine: con caller-runs il caricamento
+            // può girare dentro il refresh in corso, dove un compute sulla stessa chiave non è ammesso
+            return CompletableFuture.supplyAsync(() -> reloadDay(key), maintenanceExecutor)
+                    .thenApplyAsync(value -> install(key, oldValue, value), executor);
         }
 
-        // Ottimizzazione: cerca solo nei range che iniziano prima o alla data
-        NavigableMap<LocalDate, List<RangeInfo>> candidateRanges
-                = employeeRanges.headMap(date, true);
+        private CachedDay reloadDay(long key) {
+            return isHot(DayKey.date(key), DayKey.date(key)) ? loadDay(key) : null;
+        }
 
-        Set<RangeKey> affectedKeys = new HashSet<>();
-        for (List<RangeInfo> rangeList : candidateRanges.values()) {
-            for (RangeInfo range : rangeList) {
-                if (range.containsDate(date)) {
-                    affectedKeys.add(range.key);
+        /**
+         * Restituisce sempre null: la entry è già stata aggiornata o rimossa
+         * qui, e Caffeine, trovandola diversa da oldValue, scarta il risultato.
+         */
+        private CachedDay install(long key, CachedDay oldValue, CachedDay value) {
+            timesheetCache.asMap().computeIfPresent(key, (k, current) -> {
+                if (current != oldValue) {
+                    return current;
                 }
+                dayIndex.remove(k, current);
+                if (value == null) {
+                    return null;
+                }
+                dayIndex.add(k, value);
+                refreshes.increment();
+                return value;
+            });
+            return null;
+        }
+
+        private CachedDay loadDay(long key) {
+            BiFunction<Long, LocalDate, TimesheetDayProjection> loader = dayLoader;
+            if (loader == null) {
+                return null;
+            }
+            try {
+                TimesheetDayProjection day = loader.apply(DayKey.employeeId(key), DayKey.date(key));
+                return day != null ? CachedDay.from(day) : null;
+            } catch (ResourceNotFoundException e) {
+                // Giorno cancellato nel frattempo: la entry va rimossa, non tenuta stale
+                return null;
             }
         }
+    }
 
-        return affectedKeys;
+    private final class RangeRefresher implements CacheLoader<RangeKey, CachedRange> {
+
+        @Override
+        public CachedRange load(RangeKey key) {
+            // Le pagine vengono solo inserite da putRange, mai caricate per chiave
+            return null;
+        }
+
+        @Override
+        public CachedRange reload(RangeKey key, CachedRange oldValue) {
+            // L'indice non viene toccato: una chiave in più viene rimossa dal cleanup periodico
+            if (oldValue.reloader() == null || !isHot(key.start(), key.end())) {
+                return null;
+            }
+            try {
+                Page<TimesheetDayProjection> page = oldValue.reloader().get();
+                refreshes.increment();
+                return new CachedRange(page, oldValue.reloader());
+            } catch (ResourceNotFoundException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public CompletableFuture<? extends CachedRange> asyncReload(RangeKey key, CachedRange oldValue, Executor executor) {
+            return CompletableFuture.supplyAsync(() -> reload(key, oldValue), maintenanceExecutor);
+        }
     }
 
     /**
@@ -582,44 +740,15 @@ public class TimesheetCacheManager {
      */
     @Scheduled(fixedRate = 3600000) // Ogni ora
     public void cleanupStaleIndexEntries() {
-        indexLock.writeLock().lock();
-        try {
-            int removedEmployees = 0;
-            int removedRanges = 0;
-
-            Iterator<Map.Entry<Long, NavigableMap<LocalDate, List<RangeInfo>>>> empIterator = rangeIndex.entrySet().iterator();
-
-            while (empIterator.hasNext()) {
-                Map.Entry<Long, NavigableMap<LocalDate, List<RangeInfo>>> empEntry = empIterator.next();
-                NavigableMap<LocalDate, List<RangeInfo>> employeeRanges = empEntry.getValue();
-
-                // Rimuove liste vuote
-                Iterator<Map.Entry<LocalDate, List<RangeInfo>>> rangeIterator = employeeRanges.entrySet().iterator();
-
-                while (rangeIterator.hasNext()) {
-                    Map.Entry<LocalDate, List<RangeInfo>> rangeEntry = rangeIterator.next();
-                    List<RangeInfo> rangeList = rangeEntry.getValue();
-                    // Rimuove range non più presenti in cache
-                    rangeList.removeIf(info -> rangeCache.getIfPresent(info.key) == null);
-                    if (rangeList.isEmpty()) {
-                        rangeIterator.remove();
-                        removedRanges++;
-                    }
-                }
-
-                // Rimuove employee senza range
-                if (employeeRanges.isEmpty()) {
-                    empIterator.remove();
-                    removedEmployees++;
-                }
-            }
-
-            if (removedEmployees > 0 || removedRanges > 0) {
-                log.info("Cleanup indice: rimossi {} employees e {} range obsoleti",
-                        removedEmployees, removedRanges);
-            }
-        } finally {
-            indexLock.writeLock().unlock();
+        int before = rangeIndex.employeeCount();
+        // Rimuove range non più presenti in cache (asMap non altera le statistiche)
+        int removedRanges = rangeIndex.retainIf(key -> rangeCache.asMap().containsKey(key));
+        int removedEmployees = Math.max(0, before - rangeIndex.employeeCount());
+        indexCleanupRemovals.increment(removedRanges);
+
+        if (removedEmployees > 0 || removedRanges > 0) {
+            log.info("Cleanup indice: rimossi {} employees e {} range obsoleti",
+                    removedEmployees, removedRanges);
         }
     }
 }
@@ -0,0 +1,34 @@
+package com.brt.TimesheetService.modules.timesheet.application.caching.invalidation;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Canale di broadcast delle invalidazioni tra le repliche del servizio.
+ *
+ * Ogni replica pubblica le invalidazioni della propria cache locale e applica
+ * quelle ricevute dalle altre (le proprie vengono scartate). Il trasporto è
+ * best-effort: una replica che perde la connessione riceve un messaggio ALL
+ * alla riconnessione e svuota la cache.
+ */
+public interface CacheInvalidationBus {
+
+    /**
+     * Pubblica un gruppo di messaggi (tipicamente quelli di una transazione).
+     */
+    void publish(List<CacheInvalidationMessage> messages);
+
+    /**
+     * Registra il listener dei messaggi provenienti dalle altre repliche.
+     * Viene invocato sul thread del bus, mai sul thread della richiesta.
+     */
+    void subscribe(Consumer<CacheInvalidationMessage> listener);
+
+    /**
+     * false se non c'è nessuna replica da avvisare: il cache manager evita
+     * di raccogliere messaggi.
+     */
+    default boolean isDistributed() {
+        return true;
+    }
+}
@@ -0,0 +1,97 @@
+package com.brt.TimesheetService.modules.timesheet.application.caching.invalidation;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Invalidazione da propagare alle altre repliche, in formato binario
+ * compatto: un frame di {@value #FRAME_BYTES} byte per messaggio.
+ *
+ * Frame: tipo (1) | replica di origine (8) | employeeId (8) | from epochDay
+ * (4) | to epochDay (4) | istante di pubblicazione in ms (8).
+ */
+public record CacheInvalidationMessage(
+        Type type,
+        long employeeId,
+        int fromEpochDay,
+        int toEpochDay,
+        long origin,
+        long publishedAtMillis
+        ) {
+
+    public static final int FRAME_BYTES = 33;
+
+    public enum Type {
+        /** Un giorno e i range che lo contengono. */
+        DAY,
+        /** I giorni in [from, to] e i range che li intersecano. */
+        DAYS,
+        /** I range che intersecano [from, to]. */
+        RANGES,
+        /** Tutte le entry di un dipendente. */
+        EMPLOYEE,
+        /** Tutta la cache (es. dopo una riconnessione al bus). */
+        ALL
+    }
+
+    public static CacheInvalidationMessage of(Type type, long employeeId, LocalDate from, LocalDate to) {
+        return new CacheInvalidationMessage(type, employeeId, (int) from.toEpochDay(), (int) to.toEpochDay(), 0L, 0L);
+    }
+
+    public static CacheInvalidationMessage employee(long employeeId) {
+        return new CacheInvalidationMessage(Type.EMPLOYEE, employeeId, 0, 0, 0L, 0L);
+    }
+
+    public static CacheInvalidationMessage all() {
+        return new CacheInvalidationMessage(Type.ALL, 0L, 0, 0, 0L, System.currentTimeMillis());
+    }
+
+    public LocalDate from() {
+        return LocalDate.ofEpochDay(fromEpochDay);
+    }
+
+    public LocalDate to() {
+        return LocalDate.ofEpochDay(toEpochDay);
+    }
+
+    /**
+     * Serializza i messaggi timbrandoli con la replica di origine e l'istante
+     * di pubblicazione.
+     */
+    public static byte[] encode(List<CacheInvalidationMessage> messages, long origin, long publishedAtMillis) {
+        ByteBuffer buffer = ByteBuffer.allocate(messages.size() * FRAME_BYTES);
+        for (CacheInvalidationMessage message : messages) {
+            buffer.put((byte) message.type().ordinal())
+                    .putLong(origin)
+                    .putLong(message.employeeId())
+                    .putInt(message.fromEpochDay())
+                    .putInt(message.toEpochDay())
+                    .putLong(publishedAtMillis);
+        }
+        return buffer.array();
+    }
+
+    public static List<CacheInvalidationMessage> decode(byte[] payload) {
+        if (payload.length % FRAME_BYTES != 0) {
+            throw new IllegalArgumentException("Payload di invalidazione malformato: " + payload.length + " byte");
+        }
+        Type[] types = Type.values();
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        List<CacheInvalidationMessage> messages = new ArrayList<>(payload.length / FRAME_BYTES);
+        while (buffer.hasRemaining()) {
+            int type = buffer.get();
+            if (type < 0 || type >= types.length) {
+                throw new IllegalArgumentException("Tipo di invalidazione sconosciuto: " + type);
+            }
+            long origin = buffer.getLong();
+            long employeeId = buffer.getLong();
+            int from = buffer.getInt();
+            int to = buffer.getInt();
+            long publishedAt = buffer.getLong();
+            messages.add(new CacheInvalidationMessage(types[type], employeeId, from, to, origin, publishedAt));
+        }
+        return messages;
+    }
+}
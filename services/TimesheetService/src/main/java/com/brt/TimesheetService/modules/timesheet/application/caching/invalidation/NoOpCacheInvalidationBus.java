@@ -0,0 +1,30 @@
+package com.brt.TimesheetService.modules.timesheet.application.caching.invalidation;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bus di default per un'istanza singola: nessun messaggio viene pubblicato.
+ */
+@Component
+@ConditionalOnProperty(name = "timesheet.cache.invalidation.bus", havingValue = "none", matchIfMissing = true)
+public class NoOpCacheInvalidationBus implements CacheInvalidationBus {
+
+    @Override
+    public void publish(List<CacheInvalidationMessage> messages) {
+        // nessuna replica da avvisare
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidationMessage> listener) {
+        // nessun messaggio in arrivo
+    }
+
+    @Override
+    public boolean isDistributed() {
+        return false;
+    }
+}
@@ -0,0 +1,181 @@
+package com.brt.TimesheetService.modules.timesheet.application.caching.invalidation;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Bus di invalidazione su PostgreSQL LISTEN/NOTIFY: nessun broker in più,
+ * tutte le repliche condividono già il database.
+ *
+ * Pubblicazione: pg_notify su una connessione del pool, con i frame binari in
+ * Base64 (il payload di NOTIFY è testo, max 8000 byte: i messaggi vengono
+ * spezzati in blocchi). Ricezione: un thread dedicato tiene una connessione
+ * del pool in LISTEN e ne legge le notifiche in polling. Dopo una
+ * riconnessione consegna un messaggio ALL, perché le notifiche arrivate nel
+ * frattempo sono perse.
+ */
+@Component
+@ConditionalOnProperty(name = "timesheet.cache.invalidation.bus", havingValue = "postgres")
+public class PostgresCacheInvalidationBus implements CacheInvalidationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(PostgresCacheInvalidationBus.class);
+
+    private static final String CHANNEL = "timesheet_cache_invalidation";
+    // 180 frame * 33 byte = 5940 byte, ~7920 caratteri in Base64: sotto il limite di 8000
+    private static final int MAX_FRAMES_PER_NOTIFY = 180;
+    private static final long MAX_RECONNECT_BACKOFF_MS = 30_000;
+
+    private final DataSource dataSource;
+    private final int pollMillis;
+    // Identifica questa replica: i propri messaggi vengono ignorati in ricezione
+    private final long origin = ThreadLocalRandom.current().nextLong();
+    private final List<Consumer<CacheInvalidationMessage>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    public PostgresCacheInvalidationBus(
+            DataSource dataSource,
+            @Value("${timesheet.cache.invalidation.poll-ms:500}") int pollMillis
+    ) {
+        this.dataSource = dataSource;
+        this.pollMillis = pollMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        listenerThread = Thread.ofPlatform()
+                .name("cache-invalidation-listener")
+                .daemon(true)
+                .start(this::listenLoop);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+            try {
+                listenerThread.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void publish(List<CacheInvalidationMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            for (int from = 0; from < messages.size(); from += MAX_FRAMES_PER_NOTIFY) {
+                List<CacheInvalidationMessage> chunk = messages.subList(from, Math.min(from + MAX_FRAMES_PER_NOTIFY, messages.size()));
+                statement.setString(1, CHANNEL);
+                statement.setString(2, Base64.getEncoder().encodeToString(
+                        CacheInvalidationMessage.encode(chunk, origin, now)));
+                statement.execute();
+            }
+            log.trace("Pubblicate {} invalidazioni su {}", messages.size(), CHANNEL);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Pubblicazione invalidazioni fallita: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidationMessage> listener) {
+        listeners.add(listener);
+    }
+
+    // ============================================================
+    // RICEZIONE
+    // ============================================================
+    private void listenLoop() {
+        long backoff = 1000;
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                log.info("In ascolto delle invalidazioni su {}", CHANNEL);
+                if (reconnect) {
+                    // Le notifiche durante la disconnessione sono perse: si riparte da cache vuota
+                    dispatch(CacheInvalidationMessage.all());
+                }
+                backoff = 1000;
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(pollMillis);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        receive(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Connessione LISTEN persa, nuovo tentativo tra {} ms: {}", backoff, e.getMessage());
+                reconnect = true;
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_RECONNECT_BACKOFF_MS);
+            }
+        }
+    }
+
+    private void receive(String payload) {
+        List<CacheInvalidationMessage> messages;
+        try {
+            messages = CacheInvalidationMessage.decode(Base64.getDecoder().decode(payload));
+        } catch (IllegalArgumentException e) {
+            log.warn("Notifica di invalidazione scartata: {}", e.getMessage());
+            return;
+        }
+        for (CacheInvalidationMessage message : messages) {
+            if (message.origin() != origin) {
+                dispatch(message);
+            }
+        }
+    }
+
+    private void dispatch(CacheInvalidationMessage message) {
+        for (Consumer<CacheInvalidationMessage> listener : listeners) {
+            try {
+                listener.accept(message);
+            } catch (RuntimeException e) {
+                log.warn("Errore applicando l'invalidazione {}: {}", message.type(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.brt.TimesheetService.modules.timesheet.application.coalescing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.brt.TimesheetService.shared.exception.TimesheetLockTimeoutException;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Coalescing delle scritture per chiave (es. DayKey): le richieste che
+ * arrivano entro la finestra configurata si uniscono al batch aperto per la
+ * stessa chiave e vengono applicate insieme, con una sola transazione.
+ *
+ * FLUSSO: il primo richiedente è il leader. Attende la finestra FUORI da ogni
+ * lock, chiude il batch (nessun altro può più unirsi) e lo applica sul proprio
+ * thread. Gli altri richiedenti aspettano l'esito della propria modifica, che
+ * il BatchApplier pubblica solo dopo il commit: un follower non risponde mai
+ * prima che la sua modifica sia persistita. Un leader senza altre modifiche in
+ * corso sulla stessa chiave non attende la finestra: la modifica isolata non
+ * paga latenza aggiuntiva.
+ *
+ * TIMEOUT: un follower che supera await-timeout-ms riceve un errore, ma la sua
+ * modifica resta nel batch e può essere comunque committata dal leader. Il
+ * chiamante deve rileggere il giorno prima di riprovare.
+ *
+ * Il chiamante non deve tenere una transazione aperta durante submit: l'attesa
+ * terrebbe occupata una connessione del pool e il leader ne chiede un'altra
+ * per applicare il batch.
+ *
+ * Disabilitato di default (timesheet.write-coalescing.enabled=false).
+ */
+@Component
+public class WriteCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteCoalescer.class);
+
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final long awaitTimeoutMillis;
+    private final DistributionSummary batchSizes;
+
+    // Batch aperti per chiave: join e chiusura passano sempre dalla mappa
+    private final ConcurrentMap<Long, Batch<?, ?>> open = new ConcurrentHashMap<>();
+    // Richieste in corso per chiave (in attesa o in applicazione), per riconoscere la modifica isolata
+    private final ConcurrentMap<Long, Integer> active = new ConcurrentHashMap<>();
+
+    public WriteCoalescer(
+            @Value("${timesheet.write-coalescing.enabled:false}") boolean enabled,
+            @Value("${timesheet.write-coalescing.window-ms:20}") long windowMillis,
+            @Value("${timesheet.write-coalescing.max-batch-size:50}") int maxBatchSize,
+            @Value("${timesheet.write-coalescing.await-timeout-ms:30000}") long awaitTimeoutMillis,
+            MeterRegistry meterRegistry
+    ) {
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxBatchSize = maxBatchSize;
+        this.awaitTimeoutMillis = awaitTimeoutMillis;
+        this.batchSizes = DistributionSummary.builder("timesheet.write.coalesced.batch.size")
+                .description("Modifiche applicate per transazione dal coalescer")
+                .register(meterRegistry);
+        if (enabled) {
+            log.info("Write coalescing attivo: finestra {} ms, max {} modifiche per batch", windowMillis, maxBatchSize);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Accoda una modifica al batch aperto per la chiave (o ne apre uno nuovo)
+     * e restituisce il suo esito. Lancia l'eccezione della singola modifica,
+     * oppure quella che ha fatto fallire l'intero batch.
+     */
+    public <E, R> R submit(long key, E edit, BatchApplier<E, R> applier) {
+        active.merge(key, 1, Integer::sum);
+        try {
+            return submitActive(key, edit, applier);
+        } finally {
+            active.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E, R> R submitActive(long key, E edit, BatchApplier<E, R> applier) {
+        Pending<E, R> pending = new Pending<>(edit);
+        List<Batch<E, R>> leading = new ArrayList<>(1);
+
+        open.compute(key, (k, current) -> {
+            Batch<E, R> batch = (Batch<E, R>) current;
+            if (batch == null || batch.pending.size() >= maxBatchSize) {
+                // Batch pieno: resta al suo leader, ne parte uno nuovo
+                batch = new Batch<>();
+                leading.add(batch);
+            }
+            batch.pending.add(pending);
+            return batch;
+        });
+
+        if (leading.isEmpty()) {
+            return pending.await(awaitTimeoutMillis);
+        }
+
+        Batch<E, R> batch = leading.get(0);
+        if (active.getOrDefault(key, 1) > 1) {
+            // Altre modifiche sulla chiave: vale la pena raccoglierne nella finestra
+            LockSupport.parkNanos(windowNanos);
+        }
+        // Chiude il batch: da qui nessun join, la lista è stabile
+        open.remove(key, batch);
+
+        List<Pending<E, R>> closed = batch.pending;
+        batchSizes.record(closed.size());
+        try {
+            applier.apply(closed);
+        } catch (RuntimeException e) {
+            log.warn("Batch di {} modifiche fallito per chiave {}: {}", closed.size(), key, e.getMessage());
+            closed.forEach(p -> p.abort(e));
+            throw e;
+        }
+        return pending.outcome();
+    }
+
+    @FunctionalInterface
+    public interface BatchApplier<E, R> {
+
+        /**
+         * Applica il batch. Ogni modifica va chiusa con succeed o fail e,
+         * dopo il commit, resa visibile ai richiedenti con publish. Un'eccezione
+         * fa fallire tutte le modifiche del batch.
+         */
+        void apply(List<Pending<E, R>> batch);
+    }
+
+    private static final class Batch<E, R> {
+
+        private final List<Pending<E, R>> pending = new ArrayList<>();
+    }
+
+    /**
+     * Una modifica in attesa: l'esito viene registrato dal leader durante
+     * l'applicazione e pubblicato al richiedente solo con publish().
+     */
+    public static final class Pending<E, R> {
+
+        private final E edit;
+        private final CompletableFuture<R> published = new CompletableFuture<>();
+        private R result;
+        private RuntimeException error;
+
+        private Pending(E edit) {
+            this.edit = edit;
+        }
+
+        public E edit() {
+            return edit;
+        }
+
+        public void succeed(R result) {
+            this.result = result;
+        }
+
+        public void fail(RuntimeException error) {
+            this.error = error;
+        }
+
+        public boolean failed() {
+            return error != null;
+        }
+
+        public void publish() {
+            if (error != null) {
+                published.completeExceptionally(error);
+            } else {
+                published.complete(result);
+            }
+        }
+
+        private void abort(RuntimeException cause) {
+            published.completeExceptionally(cause);
+        }
+
+        // Esito per il leader, che applica il batch sul proprio thread
+        private R outcome() {
+            if (error != null) {
+                throw error;
+            }
+            return result;
+        }
+
+        private R await(long timeoutMillis) {
+            try {
+                return published.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (TimeoutException e) {
+                // La modifica resta nel batch del leader: può essere stata salvata comunque
+                throw new TimesheetLockTimeoutException(
+                        "Modifica non confermata entro " + timeoutMillis
+                        + " ms: potrebbe essere stata salvata, rileggere il giorno prima di riprovare");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TimesheetLockTimeoutException("Attesa della modifica interrotta", e);
+            }
+        }
+    }
+}
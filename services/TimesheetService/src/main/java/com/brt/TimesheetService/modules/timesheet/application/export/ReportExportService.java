@@ -0,0 +1,174 @@
+package com.brt.TimesheetService.modules.timesheet.application.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.brt.TimesheetService.modules.timesheet.application.validator.TimesheetValidator;
+import com.brt.TimesheetService.modules.timesheet.infrastructure.HoursRollupDailyRepository;
+import com.brt.TimesheetService.shared.projection.DailyHoursReportProjection;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Export del report giornaliero ore in streaming (NDJSON o CSV).
+ *
+ * Le righe arrivano da uno Stream JPA forward-only sul rollup giornaliero e
+ * vengono scritte una alla volta sull'output: la memoria usata non dipende
+ * dall'ampiezza del range. Lo stream resta aperto per tutta la scrittura,
+ * quindi exportDailyHours tiene la propria transazione read-only e va
+ * chiamato dal thread che scrive la risposta (StreamingResponseBody).
+ */
+@Service
+public class ReportExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportExportService.class);
+
+    private static final String CSV_HEADER = "date,employeeId,employeeName,commessaId,commessaCode,totalHours";
+
+    private final HoursRollupDailyRepository dailyRollup;
+    private final TimesheetValidator validator;
+    private final ObjectMapper objectMapper;
+
+    public ReportExportService(
+            HoursRollupDailyRepository dailyRollup,
+            TimesheetValidator validator,
+            ObjectMapper objectMapper
+    ) {
+        this.dailyRollup = dailyRollup;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+    }
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format from(String value) {
+            if (value == null || value.isBlank()) {
+                return NDJSON;
+            }
+            try {
+                return Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Formato export non supportato: " + value + " (ndjson, csv)");
+            }
+        }
+    }
+
+    /**
+     * Scrive sull'output tutte le righe del report giornaliero nel range,
+     * filtrate per commessa se commessaCode non è null. Restituisce il
+     * numero di righe scritte.
+     */
+    @Transactional(readOnly = true)
+    public long exportDailyHours(String commessaCode, LocalDate startDate, LocalDate endDate, Format format, OutputStream out) {
+        LocalDate[] range = validator.parseDateRange(startDate, endDate);
+        long start = System.currentTimeMillis();
+
+        long rows;
+        try (Stream<DailyHoursReportProjection> stream = dailyRollup.streamDailyHours(commessaCode, range[0], range[1])) {
+            rows = switch (format) {
+                case NDJSON ->
+                    writeNdjson(stream.iterator(), out);
+                case CSV ->
+                    writeCsv(stream.iterator(), out);
+            };
+        } catch (IOException e) {
+            // tipicamente il client ha chiuso la connessione a metà download
+            throw new UncheckedIOException("Export interrotto: " + e.getMessage(), e);
+        }
+
+        log.info("[exportDailyHours] {} righe {} per {}..{} (commessa={}) in {} ms",
+                rows, format, range[0], range[1], commessaCode, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    // ============================================================
+    // SERIALIZZAZIONE
+    // ============================================================
+    private long writeNdjson(Iterator<DailyHoursReportProjection> rows, OutputStream out) throws IOException {
+        long count = 0;
+        // la chiusura del generator non deve chiudere lo stream della risposta
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        // niente flush per riga: il buffer del container viene svuotato a blocchi
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        while (rows.hasNext()) {
+            writer.writeValue(generator, rows.next());
+            generator.writeRaw('\n');
+            count++;
+        }
+        generator.close();
+        out.flush();
+        return count;
+    }
+
+    private long writeCsv(Iterator<DailyHoursReportProjection> rows, OutputStream out) throws IOException {
+        long count = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        while (rows.hasNext()) {
+            DailyHoursReportProjection row = rows.next();
+            writer.write(String.valueOf(row.date()));
+            writer.write(',');
+            writer.write(String.valueOf(row.employeeId()));
+            writer.write(',');
+            writer.write(csvField(row.employeeName()));
+            writer.write(',');
+            writer.write(String.valueOf(row.commessaId()));
+            writer.write(',');
+            writer.write(csvField(row.commessaCode()));
+            writer.write(',');
+            writer.write(row.totalHours() == null ? "" : row.totalHours().toPlainString());
+            writer.write('\n');
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    // RFC 4180: virgolette solo se il campo contiene separatori, virgolette o a capo
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
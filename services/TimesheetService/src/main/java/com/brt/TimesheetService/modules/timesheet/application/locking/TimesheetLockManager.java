@@ -0,0 +1,243 @@
+package com.brt.TimesheetService.modules.timesheet.application.locking;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.brt.TimesheetService.shared.exception.TimesheetLockTimeoutException;
+import com.brt.TimesheetService.shared.util.DayKey;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Lock per giorno di timesheet, chiave (employeeId, epochDay) impacchettata in
+ * un long ({@link DayKey}).
+ *
+ * Ogni chiave ha un ReentrantLock con reference counting: l'entry viene creata
+ * al primo richiedente e rimossa solo quando nessun thread la sta più tenendo
+ * o aspettando, quindi due thread non possono mai ottenere monitor diversi per
+ * la stessa chiave. ReentrantLock non pinna i carrier dei virtual thread.
+ *
+ * Attesa e durata di possesso sono pubblicate come istogrammi
+ * (timesheet.lock.wait / timesheet.lock.hold); getStats resta per l'admin.
+ */
+@Component
+public class TimesheetLockManager {
+
+    private static final Logger log = LoggerFactory.getLogger(TimesheetLockManager.class);
+
+    private final ConcurrentMap<Long, LockEntry> locks = new ConcurrentHashMap<>();
+    private final long timeoutMillis;
+
+    // Metriche
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalHoldNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxHoldNanos = new LongAccumulator(Math::max, 0);
+    private final Timer waitTimer;
+    private final Timer holdTimer;
+
+    public TimesheetLockManager(
+            @Value("${timesheet.locking.timeout-ms:10000}") long timeoutMillis,
+            MeterRegistry meterRegistry
+    ) {
+        this.timeoutMillis = timeoutMillis;
+        this.waitTimer = Timer.builder("timesheet.lock.wait")
+                .description("Attesa per acquisire il lock di un giorno (solo acquisizioni riuscite)")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.holdTimer = Timer.builder("timesheet.lock.hold")
+                .description("Tempo di possesso del lock di un giorno")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        FunctionCounter.builder("timesheet.lock.timeouts", timeouts, LongAdder::sum)
+                .description("Acquisizioni andate in timeout")
+                .register(meterRegistry);
+        Gauge.builder("timesheet.lock.active", locks, ConcurrentMap::size)
+                .description("Chiavi con almeno un thread che tiene o aspetta il lock")
+                .register(meterRegistry);
+    }
+
+    // ============================================================
+    // API PUBBLICA
+    // ============================================================
+    /**
+     * Esegue l'operazione tenendo il lock del giorno indicato.
+     */
+    public <R> R withLock(long employeeId, LocalDate date, Supplier<R> action) {
+        return withLock(employeeId, (int) date.toEpochDay(), action);
+    }
+
+    public <R> R withLock(long employeeId, int epochDay, Supplier<R> action) {
+        long key = DayKey.of(employeeId, epochDay);
+        LockEntry entry = acquire(key);
+        long holdStart = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            release(key, entry, holdStart);
+        }
+    }
+
+    /**
+     * Esegue l'operazione tenendo i lock di tutti i giorni in [from, to].
+     * I lock vengono acquisiti in ordine crescente di data, quindi due
+     * operazioni su range sovrapposti non possono andare in deadlock.
+     */
+    public <R> R withRangeLock(long employeeId, LocalDate from, LocalDate to, Supplier<R> action) {
+        return withRangeLock(List.of(employeeId), from, to, action);
+    }
+
+    /**
+     * Come {@link #withRangeLock(long, LocalDate, LocalDate, Supplier)} per più
+     * dipendenti: le chiavi vengono ordinate (dipendente, giorno) e acquisite
+     * in quell'ordine. Se un lock va in timeout quelli già presi vengono
+     * rilasciati prima di propagare l'eccezione.
+     */
+    public <R> R withRangeLock(Collection<Long> employeeIds, LocalDate from, LocalDate to, Supplier<R> action) {
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        if (fromDay > toDay || employeeIds.isEmpty()) {
+            return action.get();
+        }
+
+        long[] keys = employeeIds.stream()
+                .mapToLong(Long::longValue)
+                .distinct()
+                .sorted()
+                .flatMap(id -> LongStream.rangeClosed(fromDay, toDay).map(day -> DayKey.of(id, (int) day)))
+                .toArray();
+
+        LockEntry[] entries = new LockEntry[keys.length];
+        int held = 0;
+        long holdStart = 0;
+        try {
+            for (; held < keys.length; held++) {
+                entries[held] = acquire(keys[held]);
+            }
+            holdStart = System.nanoTime();
+            return action.get();
+        } finally {
+            for (int i = held - 1; i >= 0; i--) {
+                release(keys[i], entries[i], holdStart == 0 ? System.nanoTime() : holdStart);
+            }
+        }
+    }
+
+    public LockStats getStats() {
+        long count = acquisitions.sum();
+        return new LockStats(
+                count,
+                timeouts.sum(),
+                locks.size(),
+                count == 0 ? 0 : toMillis(totalWaitNanos.sum()) / count,
+                toMillis(maxWaitNanos.get()),
+                count == 0 ? 0 : toMillis(totalHoldNanos.sum()) / count,
+                toMillis(maxHoldNanos.get())
+        );
+    }
+
+    public record LockStats(
+            long acquisitions,
+            long timeouts,
+            int activeKeys,
+            double avgWaitMillis,
+            double maxWaitMillis,
+            double avgHoldMillis,
+            double maxHoldMillis
+            ) {
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "LockStats[acquired=%d, timeouts=%d, active=%d, wait avg=%.2fms max=%.2fms, hold avg=%.2fms max=%.2fms]",
+                    acquisitions, timeouts, activeKeys, avgWaitMillis, maxWaitMillis, avgHoldMillis, maxHoldMillis
+            );
+        }
+    }
+
+    // ============================================================
+    // ACQUISIZIONE / RILASCIO
+    // ============================================================
+    private LockEntry acquire(long key) {
+        // Il refcount viene incrementato PRIMA di aspettare il lock: l'entry
+        // non può essere rimossa finché questo thread la sta aspettando
+        LockEntry entry = locks.compute(key, (k, existing) -> {
+            LockEntry e = existing != null ? existing : new LockEntry();
+            e.refs++;
+            return e;
+        });
+
+        long waitStart = System.nanoTime();
+        boolean acquired = false;
+        try {
+            acquired = entry.lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unreference(key);
+            throw new TimesheetLockTimeoutException("Attesa del lock interrotta per " + DayKey.describe(key), e);
+        }
+
+        long waited = System.nanoTime() - waitStart;
+        if (!acquired) {
+            unreference(key);
+            timeouts.increment();
+            log.warn("Timeout acquisizione lock {} dopo {} ms", DayKey.describe(key), timeoutMillis);
+            throw new TimesheetLockTimeoutException(
+                    "Operazione concorrente in corso su " + DayKey.describe(key) + ", riprovare");
+        }
+
+        acquisitions.increment();
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulate(waited);
+        waitTimer.record(waited, TimeUnit.NANOSECONDS);
+        log.trace("Lock acquisito: {} (attesa {} ns)", DayKey.describe(key), waited);
+        return entry;
+    }
+
+    private void release(long key, LockEntry entry, long holdStart) {
+        long held = System.nanoTime() - holdStart;
+        totalHoldNanos.add(held);
+        maxHoldNanos.accumulate(held);
+        holdTimer.record(held, TimeUnit.NANOSECONDS);
+        entry.lock.unlock();
+        unreference(key);
+        log.trace("Lock rilasciato: {}", DayKey.describe(key));
+    }
+
+    private void unreference(long key) {
+        locks.computeIfPresent(key, (k, e) -> --e.refs == 0 ? null : e);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Lock + numero di thread che lo tengono o lo aspettano. refs è
+     * modificato solo dentro compute della mappa.
+     */
+    private static final class LockEntry {
+
+        final ReentrantLock lock = new ReentrantLock();
+        int refs;
+    }
+}
@@ -0,0 +1,185 @@
+package com.brt.TimesheetService.modules.timesheet.application.rollup;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.brt.TimesheetService.modules.timesheet.application.caching.ReportCacheManager;
+import com.brt.TimesheetService.modules.timesheet.infrastructure.HoursRollupDailyRepository;
+import com.brt.TimesheetService.modules.timesheet.infrastructure.HoursRollupMonthlyRepository;
+
+/**
+ * Manutenzione delle tabelle di rollup ore (giornaliero e mensile).
+ *
+ * WRITE PATH: dopo ogni modifica il rollup del dipendente viene ricalcolato
+ * dalla sorgente per i soli giorni toccati, poi i mesi che li contengono dal
+ * rollup giornaliero. Il ricalcolo è idempotente e gira nella transazione del
+ * chiamante; un advisory lock per (dipendente, mese) serializza fino al commit
+ * le scritture concorrenti sullo stesso mese, così ogni ricalcolo vede i dati
+ * già committati dagli altri.
+ *
+ * BACKFILL: rebuild ricostruisce tutto un intervallo di mesi in modo
+ * set-based (endpoint admin o cron opzionale).
+ *
+ * Dopo il commit le entry della ReportCacheManager che includono i giorni e
+ * le commesse ricalcolati vengono invalidate.
+ */
+@Service
+public class HoursRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(HoursRollupService.class);
+
+    private final HoursRollupDailyRepository dailyRepository;
+    private final HoursRollupMonthlyRepository monthlyRepository;
+    private final ReportCacheManager reportCache;
+    private final int scheduledRebuildMonths;
+
+    public HoursRollupService(
+            HoursRollupDailyRepository dailyRepository,
+            HoursRollupMonthlyRepository monthlyRepository,
+            ReportCacheManager reportCache,
+            @Value("${timesheet.rollup.scheduled-rebuild-months:3}") int scheduledRebuildMonths
+    ) {
+        this.dailyRepository = dailyRepository;
+        this.monthlyRepository = monthlyRepository;
+        this.reportCache = reportCache;
+        this.scheduledRebuildMonths = scheduledRebuildMonths;
+    }
+
+    // ============================================================
+    // WRITE PATH
+    // ============================================================
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void refreshDay(Long employeeId, LocalDate date) {
+        refresh(employeeId, date, date);
+    }
+
+    /**
+     * Ricalcola il rollup di un dipendente per i giorni in [from, to] e per i
+     * mesi che li contengono.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void refresh(Long employeeId, LocalDate from, LocalDate to) {
+        YearMonth firstMonth = YearMonth.from(from);
+        YearMonth lastMonth = YearMonth.from(to);
+
+        // Lock dei mesi in ordine crescente: nessun deadlock tra range sovrapposti
+        for (YearMonth month = firstMonth; !month.isAfter(lastMonth); month = month.plusMonths(1)) {
+            dailyRepository.lockEmployeeMonth(lockKey(employeeId, month));
+        }
+
+        // Commesse toccate (prima e dopo la scrittura) per l'invalidazione della report cache
+        List<String> touchedCommesse = dailyRepository.findTouchedCommessaCodes(employeeId, from, to);
+
+        dailyRepository.deleteForEmployee(employeeId, from, to);
+        int dailyRows = dailyRepository.insertForEmployee(employeeId, from, to);
+
+        LocalDate startMonth = firstMonth.atDay(1);
+        LocalDate endMonth = lastMonth.atDay(1);
+        monthlyRepository.deleteForEmployee(employeeId, startMonth, endMonth);
+        int monthlyRows = monthlyRepository.insertForEmployee(employeeId, startMonth, endMonth);
+
+        log.trace("Rollup aggiornato per employeeId={} ({} - {}): {} righe giornaliere, {} mensili",
+                employeeId, from, to, dailyRows, monthlyRows);
+
+        if (!touchedCommesse.isEmpty()) {
+            afterCommit(() -> reportCache.invalidate(employeeId, touchedCommesse, from, to));
+        }
+    }
+
+    // ============================================================
+    // BACKFILL
+    // ============================================================
+    /**
+     * Ricostruisce il rollup per tutti i dipendenti sui mesi che contengono
+     * [from, to]. Blocca le scritture sulle tabelle di rollup fino al commit.
+     */
+    @Transactional
+    public RebuildResult rebuild(LocalDate from, LocalDate to) {
+        LocalDate startMonth = YearMonth.from(from).atDay(1);
+        LocalDate endMonth = YearMonth.from(to).atDay(1);
+        LocalDate endDay = YearMonth.from(to).atEndOfMonth();
+        long start = System.currentTimeMillis();
+
+        dailyRepository.lockForRebuild();
+        dailyRepository.deleteAll(startMonth, endDay);
+        int dailyRows = dailyRepository.insertAll(startMonth, endDay);
+        monthlyRepository.deleteAll(startMonth, endMonth);
+        int monthlyRows = monthlyRepository.insertAll(startMonth, endMonth);
+
+        RebuildResult result = new RebuildResult(startMonth, endDay, dailyRows, monthlyRows,
+                System.currentTimeMillis() - start);
+        log.info("Rollup ricostruito: {}", result);
+        afterCommit(() -> reportCache.invalidateRange(startMonth, endDay));
+        return result;
+    }
+
+    /**
+     * Riconciliazione periodica degli ultimi mesi. Disabilitata di default
+     * (cron "-"), abilitare con timesheet.rollup.rebuild-cron.
+     */
+    @Scheduled(cron = "${timesheet.rollup.rebuild-cron:-}")
+    @Transactional
+    public void scheduledRebuild() {
+        LocalDate today = LocalDate.now();
+        rebuild(today.minusMonths(scheduledRebuildMonths - 1L), today);
+    }
+
+    public record RebuildResult(
+            LocalDate startDate,
+            LocalDate endDate,
+            int dailyRows,
+            int monthlyRows,
+            long durationMillis
+            ) {
+
+    }
+
+    // ============================================================
+    // SCELTA DELLA GRANULARITÀ
+    // ============================================================
+    /**
+     * True se [from, to] copre mesi interi e può essere servito dal rollup
+     * mensile.
+     */
+    public static boolean isMonthAligned(LocalDate from, LocalDate to) {
+        return from.getDayOfMonth() == 1 && to.equals(YearMonth.from(to).atEndOfMonth());
+    }
+
+    /**
+     * La report cache va invalidata solo a commit avvenuto: prima una lettura
+     * concorrente rivedrebbe i dati vecchi e li rimetterebbe in cache.
+     */
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Chiave bigint dell'advisory lock: id dipendente nei bit alti, mese nei
+     * 16 bit bassi (monthKey resta sotto 2^16 fino all'anno 5461). Univoca per
+     * id fino a 2^47; oltre, una collisione serializza solo due scritture
+     * indipendenti.
+     */
+    private static long lockKey(Long employeeId, YearMonth month) {
+        return (employeeId << 16) | monthKey(month);
+    }
+
+    private static int monthKey(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+}
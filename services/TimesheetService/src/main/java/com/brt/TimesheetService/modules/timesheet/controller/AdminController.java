@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -13,8 +14,12 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.brt.TimesheetService.modules.timesheet.application.TimesheetApplicationService;
+import com.brt.TimesheetService.modules.timesheet.application.caching.ReportCacheManager;
+import com.brt.TimesheetService.modules.timesheet.application.rollup.HoursRollupService;
 import com.brt.TimesheetService.modules.timesheet.domain.AbsenceType;
+import com.brt.TimesheetService.shared.dto.BulkAbsenceDTO;
 import com.brt.TimesheetService.shared.dto.TimesheetDayDTO;
+import com.brt.TimesheetService.shared.projection.BulkAbsenceProjection;
 import com.brt.TimesheetService.shared.projection.TimesheetDayProjection;
 
 @RestController
@@ -22,9 +27,17 @@ import com.brt.TimesheetService.shared.projection.TimesheetDayProjection;
 public class AdminController {
 
     private final TimesheetApplicationService timesheetApplicationService;
+    private final HoursRollupService hoursRollupService;
+    private final ReportCacheManager reportCacheManager;
 
-    public AdminController(TimesheetApplicationService timesheetApplicationService) {
+    public AdminController(
+            TimesheetApplicationService timesheetApplicationService,
+            HoursRollupService hoursRollupService,
+            ReportCacheManager reportCacheManager
+    ) {
         this.timesheetApplicationService = timesheetApplicationService;
+        this.hoursRollupService = hoursRollupService;
+        this.reportCacheManager = reportCacheManager;
     }
 
     /**
@@ -43,6 +56,22 @@ public class AdminController {
         return ResponseEntity.status(200).body(created);
     }
 
+    /**
+     * Imposta la stessa assenza su un range di giorni per più dipendenti
+     * Esempio request body: {"employeeIds": [1, 2], "absenceTypeStr":
+     * "VACATION"}
+     */
+    @PostMapping("/timesheets/absence/bulk")
+    public ResponseEntity<BulkAbsenceProjection> setAbsencesBulk(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestBody BulkAbsenceDTO dto
+    ) {
+        BulkAbsenceProjection result = timesheetApplicationService.setAbsencesBulk(
+                dto.getEmployeeIds(), startDate, endDate, dto.getAbsenceTypeEnum());
+        return ResponseEntity.status(200).body(result);
+    }
+
     /**
      * Imposta assenza/malattia su un giorno specifico Esempio request body:
      * "SICK" oppure "VACATION"
@@ -70,4 +99,26 @@ public class AdminController {
         return ResponseEntity.status(201).body(saved);
     }
 
+    /**
+     * Ricostruisce il rollup ore (backfill) per i mesi che contengono il range
+     */
+    @PostMapping("/reports/rollup/rebuild")
+    public ResponseEntity<HoursRollupService.RebuildResult> rebuildHoursRollup(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+    ) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("startDate deve precedere endDate");
+        }
+        return ResponseEntity.ok(hoursRollupService.rebuild(startDate, endDate));
+    }
+
+    /**
+     * Statistiche della report cache (hit/miss, dimensione, invalidazioni)
+     */
+    @GetMapping("/reports/cache/stats")
+    public ResponseEntity<ReportCacheManager.ReportCacheStats> getReportCacheStats() {
+        return ResponseEntity.ok(reportCacheManager.getStats());
+    }
+
 }
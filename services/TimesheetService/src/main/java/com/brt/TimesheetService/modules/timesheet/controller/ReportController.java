@@ -4,36 +4,49 @@ import java.time.LocalDate;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.brt.TimesheetService.modules.timesheet.application.ReportService;
+import com.brt.TimesheetService.modules.timesheet.application.export.ReportExportService;
 import com.brt.TimesheetService.shared.dto.CommessaHoursDTO;
 import com.brt.TimesheetService.shared.projection.DailyHoursReportProjection;
 import com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection;
 import com.brt.TimesheetService.shared.projection.EmployeeTotalHoursProjection;
+import com.brt.TimesheetService.shared.util.KeysetCursor;
 import com.brt.TimesheetService.shared.util.PageableUtils;
 
+/**
+ * Report ore. Tutti gli endpoint accettano il parametro "after": se presente
+ * (anche vuoto) la risposta è paginata per cursore (keyset) invece che per
+ * page/offset, senza totali e con il link "next" costruito dal cursore.
+ */
 @RestController
 @RequestMapping("/reports")
 public class ReportController {
 
     private final ReportService reportService;
+    private final ReportExportService reportExportService;
 
-    public ReportController(ReportService reportService) {
+    public ReportController(ReportService reportService, ReportExportService reportExportService) {
         this.reportService = reportService;
+        this.reportExportService = reportExportService;
     }
 
     // ================================================
     // Report ore del dipendenti per commessa configurabile per commessa e periodo
     // ================================================
     @GetMapping("/employee/{employeeId}/hours")
-    public ResponseEntity<Page<EmployeeCommessaHoursProjection>> getEmployeeHours(
+    public ResponseEntity<Slice<EmployeeCommessaHoursProjection>> getEmployeeHours(
             @PathVariable Long employeeId,
             @RequestParam(required = false) String commessaCode,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
@@ -41,7 +54,8 @@ public class ReportController {
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
             @RequestParam(required = false) String sortBy,
-            @RequestParam(required = false) String direction
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) String after
     ) {
         if (startDate == null) {
             startDate = LocalDate.of(2000, 1, 1);
@@ -49,6 +63,13 @@ public class ReportController {
         if (endDate == null) {
             endDate = LocalDate.now();
         }
+        if (PageableUtils.isKeyset(after)) {
+            KeysetCursor cursor = KeysetCursor.decode(after);
+            int limit = PageableUtils.safeSize(size);
+            return ResponseEntity.ok(commessaCode != null && !commessaCode.isEmpty()
+                    ? reportService.getEmployeeHoursForCommessa(employeeId, commessaCode, startDate, endDate, cursor, limit)
+                    : reportService.getEmployeeHoursAllCommesse(employeeId, startDate, endDate, cursor, limit));
+        }
         Pageable pageable = PageableUtils.createSafePageable(page, size, sortBy, direction);
         Page<EmployeeCommessaHoursProjection> result;
         if (commessaCode != null && !commessaCode.isEmpty()) {
@@ -63,14 +84,15 @@ public class ReportController {
     // Report giornaliero per commessa (tutti i dipendenti) configurabile per commessa e periodo
     // ================================================
     @GetMapping("/daily-hours/commesse")
-    public ResponseEntity<Page<DailyHoursReportProjection>> getDailyHoursCommesse(
+    public ResponseEntity<Slice<DailyHoursReportProjection>> getDailyHoursCommesse(
             @RequestParam(required = false) String commessaCode,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
             @RequestParam(required = false) String sortBy,
-            @RequestParam(required = false) String direction
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) String after
     ) {
         if (startDate == null) {
             startDate = LocalDate.of(2000, 1, 1);
@@ -78,6 +100,13 @@ public class ReportController {
         if (endDate == null) {
             endDate = LocalDate.now();
         }
+        if (PageableUtils.isKeyset(after)) {
+            KeysetCursor cursor = KeysetCursor.decode(after);
+            int limit = PageableUtils.safeSize(size);
+            return ResponseEntity.ok(commessaCode != null && !commessaCode.isEmpty()
+                    ? reportService.getReportForSingleCommessa(commessaCode, startDate, endDate, cursor, limit)
+                    : reportService.getReportForAllCommessa(startDate, endDate, cursor, limit));
+        }
         Pageable pageable = PageableUtils.createSafePageable(page, size, sortBy, direction);
         Page<DailyHoursReportProjection> result;
         if (commessaCode != null && !commessaCode.isEmpty()) {
@@ -88,17 +117,40 @@ public class ReportController {
         return ResponseEntity.ok(result);
     }
 
+    // ================================================
+    // Export completo del report giornaliero (NDJSON o CSV) in streaming
+    // ================================================
+    @GetMapping("/daily-hours/commesse/export")
+    public ResponseEntity<StreamingResponseBody> exportDailyHoursCommesse(
+            @RequestParam(required = false) String commessaCode,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String format
+    ) {
+        ReportExportService.Format exportFormat = ReportExportService.Format.from(format);
+        String code = commessaCode != null && !commessaCode.isEmpty() ? commessaCode : null;
+        StreamingResponseBody body = out -> reportExportService.exportDailyHours(code, startDate, endDate, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"daily-hours." + exportFormat.extension() + "\"")
+                .body(body);
+    }
+
     // ================================================
     // Report totale ore per commessa per dipendente
     // ================================================
+    // all=true restituisce tutte le commesse del periodo in un'unica risposta
     @GetMapping("/commessa/TotalHours")
-    public ResponseEntity<Page<CommessaHoursDTO>> getTotalHoursByCommessaForEmployee(
+    public ResponseEntity<Slice<CommessaHoursDTO>> getTotalHoursByCommessaForEmployee(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
             @RequestParam(required = false) String sortBy,
-            @RequestParam(required = false) String direction
+            @RequestParam(required = false) String direction,
+            @RequestParam(defaultValue = "false") boolean all,
+            @RequestParam(required = false) String after
     ) {
         if (startDate == null) {
             startDate = LocalDate.of(2000, 1, 1);
@@ -106,7 +158,13 @@ public class ReportController {
         if (endDate == null) {
             endDate = LocalDate.now();
         }
-        Pageable pageable = PageableUtils.createSafePageable(page, size, sortBy, direction);
+        if (!all && PageableUtils.isKeyset(after)) {
+            return ResponseEntity.ok(reportService.getTotalHoursByCommessa(
+                    startDate, endDate, KeysetCursor.decode(after), PageableUtils.safeSize(size)));
+        }
+        Pageable pageable = all
+                ? PageableUtils.createUnpaged(sortBy, direction)
+                : PageableUtils.createSafePageable(page, size, sortBy, direction);
         Page<CommessaHoursDTO> result = reportService.getTotalHoursByCommessa(startDate, endDate, pageable);
         return ResponseEntity.ok(result);
     }
@@ -115,13 +173,14 @@ public class ReportController {
     // Report ore totali per dipendente
     // ================================================
     @GetMapping("/employee/hours/total")
-    public ResponseEntity<Page<EmployeeTotalHoursProjection>> getTotalHoursByEmployee(
+    public ResponseEntity<Slice<EmployeeTotalHoursProjection>> getTotalHoursByEmployee(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
             @RequestParam(required = false) String sortBy,
-            @RequestParam(required = false) String direction
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) String after
     ) {
         Pageable pageable = PageableUtils.createSafePageable(page, size, sortBy, direction);
         if (startDate == null) {
@@ -130,20 +189,25 @@ public class ReportController {
         if (endDate == null) {
             endDate = LocalDate.now();
         }
+        if (PageableUtils.isKeyset(after)) {
+            return ResponseEntity.ok(reportService.getTotalHoursByEmployee(
+                    startDate, endDate, KeysetCursor.decode(after), PageableUtils.safeSize(size)));
+        }
         Page<EmployeeTotalHoursProjection> result = reportService.getTotalHoursByEmployee(startDate, endDate, pageable);
         return ResponseEntity.ok(result);
     }
 
     // Report ore totali per dipendente su una singola commessa
     @GetMapping("/commessa/{commessaCode}/employees/hours")
-    public ResponseEntity<Page<EmployeeCommessaHoursProjection>> getTotalHoursPerEmployeeForCommessa(
+    public ResponseEntity<Slice<EmployeeCommessaHoursProjection>> getTotalHoursPerEmployeeForCommessa(
             @PathVariable String commessaCode,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
             @RequestParam(required = false) String sortBy,
-            @RequestParam(required = false) String direction
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) String after
     ) {
         if (startDate == null) {
             startDate = LocalDate.of(2000, 1, 1);
@@ -151,6 +215,10 @@ public class ReportController {
         if (endDate == null) {
             endDate = LocalDate.now();
         }
+        if (PageableUtils.isKeyset(after)) {
+            return ResponseEntity.ok(reportService.getTotalHoursPerEmployeeForCommessa(
+                    commessaCode, startDate, endDate, KeysetCursor.decode(after), PageableUtils.safeSize(size)));
+        }
         Pageable pageable = PageableUtils.createSafePageable(page, size, sortBy, direction);
         Page<EmployeeCommessaHoursProjection> result = reportService.getTotalHoursPerEmployeeForCommessa(commessaCode, startDate, endDate, pageable);
         return ResponseEntity.ok(result);
@@ -1,9 +1,11 @@
 package com.brt.TimesheetService.modules.timesheet.controller;
 
 import java.time.LocalDate;
+import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -20,6 +22,8 @@ import com.brt.TimesheetService.modules.timesheet.application.TimesheetApplicati
 import com.brt.TimesheetService.shared.dto.TimesheetDayDTO;
 import com.brt.TimesheetService.shared.dto.TimesheetItemDTO;
 import com.brt.TimesheetService.shared.projection.TimesheetDayProjection;
+import com.brt.TimesheetService.shared.projection.TimesheetDaySaveResult;
+import com.brt.TimesheetService.shared.util.KeysetCursor;
 import com.brt.TimesheetService.shared.util.PageableUtils;
 
 @RestController
@@ -33,15 +37,21 @@ public class TimesheetController {
     }
 
     @GetMapping
-    public ResponseEntity<Page<TimesheetDayProjection>> getTimesheets(
+    // "after" attiva la paginazione keyset (vuoto = prima pagina): page e sort vengono ignorati
+    public ResponseEntity<Slice<TimesheetDayProjection>> getTimesheets(
             @PathVariable Long employeeId,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
             @RequestParam(required = false) String sortBy,
-            @RequestParam(required = false) String direction
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) String after
     ) {
+        if (PageableUtils.isKeyset(after)) {
+            return ResponseEntity.ok(timesheetApplicationService.getTimesheets(
+                    employeeId, startDate, endDate, KeysetCursor.decode(after), PageableUtils.safeSize(size)));
+        }
         Pageable pageable = PageableUtils.createSafePageable(page, size, sortBy, direction);
         Page<TimesheetDayProjection> projections = timesheetApplicationService.getTimesheets(employeeId, startDate, endDate, pageable);
         return ResponseEntity.ok(projections);
@@ -67,6 +77,15 @@ public class TimesheetController {
         return ResponseEntity.status(201).body(saved);
     }
 
+    // Salvataggio di più giorni (griglia settimanale/mensile) in una transazione: esito per giorno
+    @PostMapping("/bulk")
+    public ResponseEntity<List<TimesheetDaySaveResult>> saveTimesheets(
+            @PathVariable Long employeeId,
+            @RequestBody List<TimesheetDayDTO> dtos
+    ) {
+        return ResponseEntity.ok(timesheetApplicationService.saveTimesheetsUser(employeeId, dtos));
+    }
+
     @DeleteMapping("/{date}")
     public ResponseEntity<Void> deleteTimesheet(
             @PathVariable Long employeeId,
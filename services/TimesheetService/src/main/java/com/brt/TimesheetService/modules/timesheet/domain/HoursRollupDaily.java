@@ -0,0 +1,40 @@
+package com.brt.TimesheetService.modules.timesheet.domain;
+
+import java.math.BigDecimal;
+
+import org.hibernate.annotations.Immutable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Ore pre-aggregate per (dipendente, commessa, giorno).
+ *
+ * Mantenuta dal write path tramite HoursRollupService (ricalcolo del giorno
+ * modificato), mai scritta via JPA: l'entità serve solo alle query report.
+ */
+@Entity
+@Immutable
+@Table(
+        name = "hours_rollup_daily",
+        indexes = {
+            @Index(name = "idx_rollup_daily_date", columnList = "date"),
+            @Index(name = "idx_rollup_daily_commessa_date", columnList = "commessa_id, date")
+        },
+        schema = "public"
+)
+@Getter
+@NoArgsConstructor
+public class HoursRollupDaily {
+
+    @EmbeddedId
+    private HoursRollupDailyId id;
+
+    @Column(nullable = false, precision = 9, scale = 2)
+    private BigDecimal hours;
+}
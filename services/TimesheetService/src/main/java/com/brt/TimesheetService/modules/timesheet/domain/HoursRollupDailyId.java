@@ -0,0 +1,28 @@
+package com.brt.TimesheetService.modules.timesheet.domain;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Embeddable
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class HoursRollupDailyId implements Serializable {
+
+    @Column(name = "employee_id", nullable = false)
+    private Long employeeId;
+
+    @Column(name = "commessa_id", nullable = false)
+    private Long commessaId;
+
+    @Column(nullable = false)
+    private LocalDate date;
+}
@@ -0,0 +1,38 @@
+package com.brt.TimesheetService.modules.timesheet.domain;
+
+import java.math.BigDecimal;
+
+import org.hibernate.annotations.Immutable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Ore pre-aggregate per (dipendente, commessa, mese), ricalcolate da
+ * {@link HoursRollupDaily}. Usata dai report su range allineati al mese.
+ */
+@Entity
+@Immutable
+@Table(
+        name = "hours_rollup_monthly",
+        indexes = {
+            @Index(name = "idx_rollup_monthly_month", columnList = "month"),
+            @Index(name = "idx_rollup_monthly_commessa_month", columnList = "commessa_id, month")
+        },
+        schema = "public"
+)
+@Getter
+@NoArgsConstructor
+public class HoursRollupMonthly {
+
+    @EmbeddedId
+    private HoursRollupMonthlyId id;
+
+    @Column(nullable = false, precision = 11, scale = 2)
+    private BigDecimal hours;
+}
@@ -0,0 +1,58 @@
+package com.brt.TimesheetService.modules.timesheet.domain.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.brt.TimesheetService.modules.timesheet.domain.TimesheetItem;
+import com.brt.TimesheetService.shared.dto.TimesheetItemDTO;
+
+/**
+ * Indice degli item di un giorno per codice commessa, usato dal merge DTO ->
+ * entity al posto della scansione della lista per ogni item del DTO.
+ *
+ * Per ogni codice vale il PRIMO item della lista con quella commessa, come
+ * nella ricerca lineare: gli item creati durante il merge vengono indicizzati
+ * solo se il codice non c'è già.
+ */
+final class DayItemIndex {
+
+    private final Map<String, TimesheetItem> byCommessa;
+
+    private DayItemIndex(int expectedSize) {
+        this.byCommessa = new HashMap<>(Math.max(16, expectedSize * 2));
+    }
+
+    static DayItemIndex of(List<TimesheetItem> items) {
+        DayItemIndex index = new DayItemIndex(items.size());
+        items.forEach(index::add);
+        return index;
+    }
+
+    TimesheetItem findByCommessa(String commessaCode) {
+        return commessaCode == null ? null : byCommessa.get(commessaCode);
+    }
+
+    void add(TimesheetItem item) {
+        if (item.getCommessa() != null && item.getCommessa().getCode() != null) {
+            byCommessa.putIfAbsent(item.getCommessa().getCode(), item);
+        }
+    }
+
+    /**
+     * Rimuove dalla lista gli item il cui id non compare tra gli id (non
+     * null) dei DTO: una passata sui DTO e una sulla lista.
+     */
+    static void retainByDtoIds(List<TimesheetItem> items, Collection<TimesheetItemDTO> dtos) {
+        Set<Long> ids = new HashSet<>();
+        for (TimesheetItemDTO dto : dtos) {
+            if (dto != null && dto.getId() != null) {
+                ids.add(dto.getId());
+            }
+        }
+        items.removeIf(existing -> existing.getId() == null || !ids.contains(existing.getId()));
+    }
+}
@@ -2,18 +2,21 @@ package com.brt.TimesheetService.modules.timesheet.domain.service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import com.brt.TimesheetService.modules.commessa.application.CommessaResolver;
 import com.brt.TimesheetService.modules.commessa.domain.Commessa;
-import com.brt.TimesheetService.modules.commessa.infrastructure.CommessaRepository;
 import com.brt.TimesheetService.modules.timesheet.domain.AbsenceType;
 import com.brt.TimesheetService.modules.timesheet.domain.TimesheetDay;
 import com.brt.TimesheetService.modules.timesheet.domain.TimesheetItem;
@@ -40,10 +43,10 @@ public class TimesheetDomainService {
     private static final BigDecimal ZERO = BigDecimal.ZERO;
     private static final BigDecimal FULL_WORKDAY_HOURS = BigDecimal.valueOf(8);
 
-    private final CommessaRepository commessaRepository;
+    private final CommessaResolver commessaResolver;
 
-    public TimesheetDomainService(CommessaRepository commessaRepository) {
-        this.commessaRepository = commessaRepository;
+    public TimesheetDomainService(CommessaResolver commessaResolver) {
+        this.commessaResolver = commessaResolver;
     }
 
     // =========================
@@ -65,6 +68,14 @@ public class TimesheetDomainService {
      * salvare l'entità e restituirla.
      */
     public TimesheetDay createTimesheet(TimesheetDay day, TimesheetDayDTO dto) {
+        return createTimesheet(day, dto, resolveCommesse(dto));
+    }
+
+    /**
+     * Come createTimesheet, con le commesse già risolte dal caller (es.
+     * salvataggio bulk: una sola risoluzione per tutti i giorni).
+     */
+    public TimesheetDay createTimesheet(TimesheetDay day, TimesheetDayDTO dto, Map<String, Commessa> commesse) {
         Objects.requireNonNull(dto, "TimesheetDayDTO non può essere null");
         logger.info("Creazione timesheet per data {}", dto.getDate());
 
@@ -80,9 +91,10 @@ public class TimesheetDomainService {
             }
 
             if (dto.getItems() != null && !dto.getItems().isEmpty()) {
+                DayItemIndex index = DayItemIndex.of(d.getItems());
                 for (TimesheetItemDTO itemDTO : dto.getItems()) {
                     validateItemDTO(itemDTO);
-                    TimesheetItem item = addItemAction(d, itemDTO);
+                    TimesheetItem item = addItemAction(d, itemDTO, commesse, index);
                     logger.debug("Aggiunto item (temp-id={}) ore {} per commessa {}", item.getId(), safeHours(item.getHours()), safeCommessaCode(item));
                 }
             }
@@ -95,6 +107,13 @@ public class TimesheetDomainService {
      * presenti nel DTO, aggiorna o aggiunge quelli presenti.
      */
     public TimesheetDay updateTimesheet(TimesheetDay existingDay, TimesheetDayDTO dto) {
+        return updateTimesheet(existingDay, dto, resolveCommesse(dto));
+    }
+
+    /**
+     * Come updateTimesheet, con le commesse già risolte dal caller.
+     */
+    public TimesheetDay updateTimesheet(TimesheetDay existingDay, TimesheetDayDTO dto, Map<String, Commessa> commesse) {
         Objects.requireNonNull(dto, "TimesheetDayDTO non può essere null");
         logger.info("Aggiornamento timesheet {} per data {}", existingDay.getId(), dto.getDate());
 
@@ -108,11 +127,12 @@ public class TimesheetDomainService {
                 d.setAbsenceType(AbsenceType.NONE);
                 if (dto.getItems() != null) {
                     // Rimuove items non presenti nel DTO (basato su id se presente)
-                    d.getItems().removeIf(existing -> dto.getItems().stream().noneMatch(i -> i.getId() != null && i.getId().equals(existing.getId())));
-                    // Aggiorna o aggiunge items
+                    DayItemIndex.retainByDtoIds(d.getItems(), dto.getItems());
+                    // Aggiorna o aggiunge items: merge per commessa tramite indice, O(n + m)
+                    DayItemIndex index = DayItemIndex.of(d.getItems());
                     for (TimesheetItemDTO itemDTO : dto.getItems()) {
                         validateItemDTO(itemDTO);
-                        TimesheetItem item = addItemAction(d, itemDTO);
+                        TimesheetItem item = addItemAction(d, itemDTO, commesse, index);
                         logger.debug("Aggiornato/aggiunto item {} ore {} per commessa {}", item.getId(), safeHours(item.getHours()), safeCommessaCode(item));
                     }
                 }
@@ -121,6 +141,29 @@ public class TimesheetDomainService {
         });
     }
 
+    /**
+     * Valida un DTO di giorno senza toccare entity: tipo di assenza, item e
+     * commesse (tra quelle risolte). Usato dal salvataggio bulk per scartare
+     * un giorno prima di modificarlo, così un errore non lascia modifiche
+     * parziali sulle entity gestite della transazione.
+     */
+    public void validateTimesheetDTO(TimesheetDayDTO dto, Map<String, Commessa> commesse) {
+        if (dto == null) {
+            throw new TimesheetValidationException("TimesheetDayDTO non può essere null");
+        }
+        // Lancia IllegalArgumentException se il tipo non esiste
+        dto.getAbsenceTypeEnum();
+        if (dto.getItems() == null) {
+            return;
+        }
+        for (TimesheetItemDTO itemDTO : dto.getItems()) {
+            validateItemDTO(itemDTO);
+            if (!commesse.containsKey(itemDTO.getCommessaCode())) {
+                throw new ResourceNotFoundException("Commessa non trovata: " + itemDTO.getCommessaCode());
+            }
+        }
+    }
+
     /**
      * Segna un giorno come assenza (uso admin). Rimuove items e imposta
      * absenceType.
@@ -138,11 +181,12 @@ public class TimesheetDomainService {
     }
 
     /**
-     * Crea days con assenze tra startDate e endDate inclusi. Non salva: il
-     * caller salva i giorni restituiti.
+     * Valida una richiesta di assenza su un range di date inclusi. La
+     * scrittura è set-based (upsert) ed è fatta dal livello applicativo: i
+     * giorni risultanti hanno items vuoti e status null, come con setAbsence.
      */
-    public List<TimesheetDay> setAbsences(Employee employee, LocalDate startDate, LocalDate endDate, AbsenceType absenceType) {
-        if (employee == null) {
+    public void validateAbsences(Collection<Employee> employees, LocalDate startDate, LocalDate endDate, AbsenceType absenceType) {
+        if (employees == null || employees.isEmpty() || employees.stream().anyMatch(Objects::isNull)) {
             throw new TimesheetValidationException("Employee non può essere null");
         }
         if (startDate == null || endDate == null) {
@@ -154,19 +198,6 @@ public class TimesheetDomainService {
         if (absenceType == null || absenceType == AbsenceType.NONE) {
             throw new TimesheetValidationException("Assenza non valida");
         }
-
-        List<TimesheetDay> createdDays = new ArrayList<>();
-        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-            TimesheetDay day = TimesheetDay.builder()
-                    .employee(employee)
-                    .date(date)
-                    .absenceType(absenceType)
-                    .status(null)
-                    .build();
-            // setAbsence usa withTimesheetRules che aggiorna lo status
-            createdDays.add(setAbsence(day, absenceType));
-        }
-        return Collections.unmodifiableList(createdDays);
     }
 
     // =========================
@@ -178,7 +209,7 @@ public class TimesheetDomainService {
      */
     public TimesheetItem addItem(TimesheetDay day, TimesheetItemDTO dto) {
         validateDayAndDto(day, dto);
-        return withTimesheetRules(day, d -> addItemAction(d, dto));
+        return withTimesheetRules(day, d -> addItemAction(d, dto, resolveCommessa(dto), DayItemIndex.of(d.getItems())));
     }
 
     /**
@@ -187,22 +218,24 @@ public class TimesheetDomainService {
      */
     public TimesheetItem putItem(TimesheetDay day, TimesheetItemDTO dto) {
         validateDayAndDto(day, dto);
-        return withTimesheetRules(day, d -> createItemAction(d, dto));
+        return withTimesheetRules(day, d -> createItemAction(d, dto, resolveCommessa(dto)));
     }
 
-    private TimesheetItem addItemAction(TimesheetDay day, TimesheetItemDTO dto) {
+    private TimesheetItem addItemAction(TimesheetDay day, TimesheetItemDTO dto, Map<String, Commessa> commesse, DayItemIndex index) {
         // tenta di trovare item per commessa (se presente) e unisce ore se necessario
-        TimesheetItem existingItem = findTimesheetItem(day, dto.getCommessaCode());
+        TimesheetItem existingItem = index.findByCommessa(dto.getCommessaCode());
         if (existingItem != null) {
             return mergeItemAction(existingItem, dto);
         } else {
-            return createItemAction(day, dto);
+            TimesheetItem created = createItemAction(day, dto, commesse);
+            index.add(created);
+            return created;
         }
     }
 
-    private TimesheetItem createItemAction(TimesheetDay day, TimesheetItemDTO dto) {
+    private TimesheetItem createItemAction(TimesheetDay day, TimesheetItemDTO dto, Map<String, Commessa> commesse) {
         // mapDTOToEntity può lanciare ResourceNotFoundException se commessa non esiste
-        TimesheetItem item = mapDTOToEntity(dto, day);
+        TimesheetItem item = mapDTOToEntity(dto, day, commesse);
         day.addItem(item);
         return item;
     }
@@ -215,16 +248,6 @@ public class TimesheetDomainService {
         return item;
     }
 
-    private TimesheetItem findTimesheetItem(TimesheetDay day, String commessaCode) {
-        if (commessaCode == null) {
-            return null;
-        }
-        return day.getItems().stream()
-                .filter(i -> i.getCommessa() != null && commessaCode.equals(i.getCommessa().getCode()))
-                .findFirst()
-                .orElse(null);
-    }
-
     /**
      * Rimuove un item con id specifico; se non trovato lancia
      * ResourceNotFoundException.
@@ -264,15 +287,16 @@ public class TimesheetDomainService {
             return;
         }
 
-        double totalHours = day.getItems().stream()
-                .map(i -> safeHours(i.getHours()))
-                .mapToDouble(BigDecimal::doubleValue)
-                .sum();
+        // Somma esatta in BigDecimal: niente arrotondamenti double vicino alla soglia delle 8 ore
+        BigDecimal totalHours = ZERO;
+        for (TimesheetItem item : day.getItems()) {
+            totalHours = totalHours.add(safeHours(item.getHours()));
+        }
 
         TimesheetStatus status;
-        if (totalHours == 0.0) {
+        if (totalHours.signum() == 0) {
             status = TimesheetStatus.EMPTY;
-        } else if (BigDecimal.valueOf(totalHours).compareTo(FULL_WORKDAY_HOURS) < 0) {
+        } else if (totalHours.compareTo(FULL_WORKDAY_HOURS) < 0) {
             status = TimesheetStatus.INCOMPLETE;
         } else {
             status = TimesheetStatus.COMPLETE;
@@ -286,9 +310,9 @@ public class TimesheetDomainService {
      * Map DTO -> Entity: risolve la commessa (o lancia
      * ResourceNotFoundException).
      */
-    private TimesheetItem mapDTOToEntity(TimesheetItemDTO dto, TimesheetDay day) {
+    private TimesheetItem mapDTOToEntity(TimesheetItemDTO dto, TimesheetDay day, Map<String, Commessa> commesse) {
         validateItemDTO(dto);
-        Commessa commessa = commessaRepository.findByCode(dto.getCommessaCode())
+        Commessa commessa = Optional.ofNullable(commesse.get(dto.getCommessaCode()))
                 .orElseThrow(() -> new ResourceNotFoundException("Commessa non trovata: " + dto.getCommessaCode()));
         return TimesheetItem.builder()
                 .description(dto.getDescription())
@@ -298,6 +322,32 @@ public class TimesheetDomainService {
                 .build();
     }
 
+    /**
+     * Tutti i codici commessa del DTO in una sola risoluzione.
+     */
+    private Map<String, Commessa> resolveCommesse(TimesheetDayDTO dto) {
+        return commessaResolver.resolveAll(commessaCodes(List.of(dto)));
+    }
+
+    private Map<String, Commessa> resolveCommessa(TimesheetItemDTO dto) {
+        return dto.getCommessaCode() == null
+                ? Map.of()
+                : commessaResolver.resolveAll(List.of(dto.getCommessaCode()));
+    }
+
+    /**
+     * Codici commessa distinti dei DTO (item e codici null esclusi).
+     */
+    public static Set<String> commessaCodes(Collection<TimesheetDayDTO> dtos) {
+        return dtos.stream()
+                .filter(dto -> dto != null && dto.getItems() != null)
+                .flatMap(dto -> dto.getItems().stream())
+                .filter(Objects::nonNull)
+                .map(TimesheetItemDTO::getCommessaCode)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
     // =========================
     // Validation helpers
     // =========================
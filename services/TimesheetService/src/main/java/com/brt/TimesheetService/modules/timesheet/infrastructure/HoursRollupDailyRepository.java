@@ -0,0 +1,499 @@
+package com.brt.TimesheetService.modules.timesheet.infrastructure;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.brt.TimesheetService.modules.timesheet.domain.HoursRollupDaily;
+import com.brt.TimesheetService.modules.timesheet.domain.HoursRollupDailyId;
+import com.brt.TimesheetService.shared.projection.CommessaEmployeeNameProjection;
+import com.brt.TimesheetService.shared.projection.CommessaHoursProjection;
+import com.brt.TimesheetService.shared.projection.DailyHoursReportProjection;
+import com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection;
+import com.brt.TimesheetService.shared.projection.EmployeeTotalHoursProjection;
+
+import jakarta.persistence.QueryHint;
+
+/**
+ * Rollup giornaliero delle ore. Le query report hanno la stessa forma di
+ * quelle di TimesheetItemRepository ma leggono una riga per (dipendente,
+ * commessa, giorno) senza join su items e days.
+ */
+@Repository
+public interface HoursRollupDailyRepository extends JpaRepository<HoursRollupDaily, HoursRollupDailyId> {
+
+    // ====================================================
+    // QUERIES REPORT (stesse projections di TimesheetItemRepository)
+    // ====================================================
+    // Ore totali per dipendente
+    @Query(
+            value = """
+            SELECT new com.brt.TimesheetService.shared.projection.EmployeeTotalHoursProjection(
+                e.id, e.name, SUM(r.hours)
+            )
+            FROM HoursRollupDaily r
+            JOIN Employee e ON e.id = r.id.employeeId
+            WHERE r.id.date BETWEEN :startDate AND :endDate
+            GROUP BY e.id, e.name
+        """,
+            countQuery = """
+            SELECT COUNT(DISTINCT r.id.employeeId)
+            FROM HoursRollupDaily r
+            WHERE r.id.date BETWEEN :startDate AND :endDate
+        """
+    )
+    Page<EmployeeTotalHoursProjection> aggregateHoursByEmployee(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            Pageable pageable
+    );
+
+    // Ore totali per commessa (employeeNames separato)
+    @Query(
+            value = """
+            SELECT new com.brt.TimesheetService.shared.projection.CommessaHoursProjection(
+                c.id, c.code, SUM(r.hours)
+            )
+            FROM HoursRollupDaily r
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE r.id.date BETWEEN :startDate AND :endDate
+            GROUP BY c.id, c.code
+        """,
+            countQuery = """
+            SELECT COUNT(DISTINCT r.id.commessaId)
+            FROM HoursRollupDaily r
+            WHERE r.id.date BETWEEN :startDate AND :endDate
+        """
+    )
+    Page<CommessaHoursProjection> aggregateHoursByCommessa(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            Pageable pageable
+    );
+
+    // Ore di un dipendente su tutte le commesse
+    @Query(
+            value = """
+            SELECT new com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection(
+                e.id, e.name, c.id, c.code, SUM(r.hours)
+            )
+            FROM HoursRollupDaily r
+            JOIN Employee e ON e.id = r.id.employeeId
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE r.id.employeeId = :employeeId
+            AND r.id.date BETWEEN :startDate AND :endDate
+            GROUP BY e.id, e.name, c.id, c.code
+        """,
+            countQuery = """
+            SELECT COUNT(DISTINCT r.id.commessaId)
+            FROM HoursRollupDaily r
+            WHERE r.id.employeeId = :employeeId
+            AND r.id.date BETWEEN :startDate AND :endDate
+        """
+    )
+    Page<EmployeeCommessaHoursProjection> getHoursByEmployeeAllCommesse(
+            @Param("employeeId") Long employeeId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            Pageable pageable
+    );
+
+    // Ore di un dipendente su una commessa
+    @Query(
+            value = """
+            SELECT new com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection(
+                e.id, e.name, c.id, c.code, SUM(r.hours)
+            )
+            FROM HoursRollupDaily r
+            JOIN Employee e ON e.id = r.id.employeeId
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE r.id.employeeId = :employeeId
+            AND c.code = :commessaCode
+            AND r.id.date BETWEEN :startDate AND :endDate
+            GROUP BY e.id, e.name, c.id, c.code
+        """,
+            countQuery = """
+            SELECT COUNT(DISTINCT r.id.commessaId)
+            FROM HoursRollupDaily r
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE r.id.employeeId = :employeeId
+            AND c.code = :commessaCode
+            AND r.id.date BETWEEN :startDate AND :endDate
+        """
+    )
+    Page<EmployeeCommessaHoursProjection> getHoursByEmployeeAndCommessa(
+            @Param("employeeId") Long employeeId,
+            @Param("commessaCode") String commessaCode,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            Pageable pageable
+    );
+
+    // Ore totali dei dipendenti per una singola commessa
+    @Query(
+            value = """
+            SELECT new com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection(
+                e.id, e.name, c.id, c.code, SUM(r.hours)
+            )
+            FROM HoursRollupDaily r
+            JOIN Employee e ON e.id = r.id.employeeId
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE c.code = :commessaCode
+            AND r.id.date BETWEEN :startDate AND :endDate
+            GROUP BY e.id, e.name, c.id, c.code
+        """,
+            countQuery = """
+            SELECT COUNT(DISTINCT r.id.employeeId)
+            FROM HoursRollupDaily r
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE c.code = :commessaCode
+            AND r.id.date BETWEEN :startDate AND :endDate
+        """
+    )
+    Page<EmployeeCommessaHoursProjection> getTotalHoursPerEmployeeForCommessa(
+            @Param("commessaCode") String commessaCode,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            Pageable pageable
+    );
+
+    // Dipendenti distinti per un blocco di commesse (una query per pagina di report)
+    @Query("""
+        SELECT DISTINCT new com.brt.TimesheetService.shared.projection.CommessaEmployeeNameProjection(
+            r.id.commessaId, e.name
+        )
+        FROM HoursRollupDaily r
+        JOIN Employee e ON e.id = r.id.employeeId
+        WHERE r.id.commessaId IN (:commessaIds) AND r.id.date BETWEEN :startDate AND :endDate
+        ORDER BY e.name
+    """)
+    List<CommessaEmployeeNameProjection> findDistinctEmployeeNamesByCommesse(
+            @Param("commessaIds") Collection<Long> commessaIds,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+
+    // Report giornaliero per tutte le commesse
+    @Query(
+            value = """
+            SELECT new com.brt.TimesheetService.shared.projection.DailyHoursReportProjection(
+                r.id.date, e.id, e.name, c.id, c.code, r.hours
+            )
+            FROM HoursRollupDaily r
+            JOIN Employee e ON e.id = r.id.employeeId
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE r.id.date BETWEEN :startDate AND :endDate
+            ORDER BY c.code, r.id.date, e.name
+        """,
+            countQuery = """
+            SELECT COUNT(r)
+            FROM HoursRollupDaily r
+            WHERE r.id.date BETWEEN :startDate AND :endDate
+        """
+    )
+    Page<DailyHoursReportProjection> aggregateDailyHoursAllCommesseByDate(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            Pageable pageable
+    );
+
+    // Report giornaliero per una sola commessa
+    @Query(
+            value = """
+            SELECT new com.brt.TimesheetService.shared.projection.DailyHoursReportProjection(
+                r.id.date, e.id, e.name, c.id, c.code, r.hours
+            )
+            FROM HoursRollupDaily r
+            JOIN Employee e ON e.id = r.id.employeeId
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE c.code = :commessaCode
+            AND r.id.date BETWEEN :startDate AND :endDate
+            ORDER BY r.id.date, e.name
+        """,
+            countQuery = """
+            SELECT COUNT(r)
+            FROM HoursRollupDaily r
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE c.code = :commessaCode
+            AND r.id.date BETWEEN :startDate AND :endDate
+        """
+    )
+    Page<DailyHoursReportProjection> aggregateDailyHoursByCommessaAndDate(
+            @Param("commessaCode") String commessaCode,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            Pageable pageable
+    );
+
+    // ====================================================
+    // QUERIES REPORT KEYSET (cursore "after", nessun count)
+    // Il Pageable serve solo da limite (pagina 0, size + 1)
+    // ====================================================
+    // Ore totali per dipendente, ordinate per employeeId
+    @Query("""
+            SELECT new com.brt.TimesheetService.shared.projection.EmployeeTotalHoursProjection(
+                e.id, e.name, SUM(r.hours)
+            )
+            FROM HoursRollupDaily r
+            JOIN Employee e ON e.id = r.id.employeeId
+            WHERE r.id.date BETWEEN :startDate AND :endDate
+            AND (:afterId IS NULL OR r.id.employeeId > :afterId)
+            GROUP BY e.id, e.name
+            ORDER BY e.id
+        """)
+    List<EmployeeTotalHoursProjection> aggregateHoursByEmployeeAfter(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("afterId") Long afterId,
+            Pageable limit
+    );
+
+    // Ore totali per commessa, ordinate per commessaId
+    @Query("""
+            SELECT new com.brt.TimesheetService.shared.projection.CommessaHoursProjection(
+                c.id, c.code, SUM(r.hours)
+            )
+            FROM HoursRollupDaily r
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE r.id.date BETWEEN :startDate AND :endDate
+            AND (:afterId IS NULL OR r.id.commessaId > :afterId)
+            GROUP BY c.id, c.code
+            ORDER BY c.id
+        """)
+    List<CommessaHoursProjection> aggregateHoursByCommessaAfter(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("afterId") Long afterId,
+            Pageable limit
+    );
+
+    // Ore di un dipendente su tutte le commesse, ordinate per commessaId
+    @Query("""
+            SELECT new com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection(
+                e.id, e.name, c.id, c.code, SUM(r.hours)
+            )
+            FROM HoursRollupDaily r
+            JOIN Employee e ON e.id = r.id.employeeId
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE r.id.employeeId = :employeeId
+            AND r.id.date BETWEEN :startDate AND :endDate
+            AND (:afterId IS NULL OR r.id.commessaId > :afterId)
+            GROUP BY e.id, e.name, c.id, c.code
+            ORDER BY c.id
+        """)
+    List<EmployeeCommessaHoursProjection> getHoursByEmployeeAllCommesseAfter(
+            @Param("employeeId") Long employeeId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("afterId") Long afterId,
+            Pageable limit
+    );
+
+    // Ore di un dipendente su una commessa, ordinate per commessaId
+    @Query("""
+            SELECT new com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection(
+                e.id, e.name, c.id, c.code, SUM(r.hours)
+            )
+            FROM HoursRollupDaily r
+            JOIN Employee e ON e.id = r.id.employeeId
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE r.id.employeeId = :employeeId
+            AND c.code = :commessaCode
+            AND r.id.date BETWEEN :startDate AND :endDate
+            AND (:afterId IS NULL OR r.id.commessaId > :afterId)
+            GROUP BY e.id, e.name, c.id, c.code
+            ORDER BY c.id
+        """)
+    List<EmployeeCommessaHoursProjection> getHoursByEmployeeAndCommessaAfter(
+            @Param("employeeId") Long employeeId,
+            @Param("commessaCode") String commessaCode,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("afterId") Long afterId,
+            Pageable limit
+    );
+
+    // Ore dei dipendenti per una singola commessa, ordinate per employeeId
+    @Query("""
+            SELECT new com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection(
+                e.id, e.name, c.id, c.code, SUM(r.hours)
+            )
+            FROM HoursRollupDaily r
+            JOIN Employee e ON e.id = r.id.employeeId
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE c.code = :commessaCode
+            AND r.id.date BETWEEN :startDate AND :endDate
+            AND (:afterId IS NULL OR r.id.employeeId > :afterId)
+            GROUP BY e.id, e.name, c.id, c.code
+            ORDER BY e.id
+        """)
+    List<EmployeeCommessaHoursProjection> getTotalHoursPerEmployeeForCommessaAfter(
+            @Param("commessaCode") String commessaCode,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("afterId") Long afterId,
+            Pageable limit
+    );
+
+    // Report giornaliero per tutte le commesse, ordinato per (date, employeeId, commessaId)
+    @Query("""
+            SELECT new com.brt.TimesheetService.shared.projection.DailyHoursReportProjection(
+                r.id.date, e.id, e.name, c.id, c.code, r.hours
+            )
+            FROM HoursRollupDaily r
+            JOIN Employee e ON e.id = r.id.employeeId
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE r.id.date BETWEEN :startDate AND :endDate
+            AND (:afterDate IS NULL
+                OR r.id.date > :afterDate
+                OR (r.id.date = :afterDate AND r.id.employeeId > :afterEmployeeId)
+                OR (r.id.date = :afterDate AND r.id.employeeId = :afterEmployeeId AND r.id.commessaId > :afterCommessaId))
+            ORDER BY r.id.date, r.id.employeeId, r.id.commessaId
+        """)
+    List<DailyHoursReportProjection> aggregateDailyHoursAllCommesseByDateAfter(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("afterDate") LocalDate afterDate,
+            @Param("afterEmployeeId") Long afterEmployeeId,
+            @Param("afterCommessaId") Long afterCommessaId,
+            Pageable limit
+    );
+
+    // Report giornaliero per una sola commessa, ordinato per (date, employeeId, commessaId)
+    @Query("""
+            SELECT new com.brt.TimesheetService.shared.projection.DailyHoursReportProjection(
+                r.id.date, e.id, e.name, c.id, c.code, r.hours
+            )
+            FROM HoursRollupDaily r
+            JOIN Employee e ON e.id = r.id.employeeId
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE c.code = :commessaCode
+            AND r.id.date BETWEEN :startDate AND :endDate
+            AND (:afterDate IS NULL
+                OR r.id.date > :afterDate
+                OR (r.id.date = :afterDate AND r.id.employeeId > :afterEmployeeId)
+                OR (r.id.date = :afterDate AND r.id.employeeId = :afterEmployeeId AND r.id.commessaId > :afterCommessaId))
+            ORDER BY r.id.date, r.id.employeeId, r.id.commessaId
+        """)
+    List<DailyHoursReportProjection> aggregateDailyHoursByCommessaAndDateAfter(
+            @Param("commessaCode") String commessaCode,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("afterDate") LocalDate afterDate,
+            @Param("afterEmployeeId") Long afterEmployeeId,
+            @Param("afterCommessaId") Long afterCommessaId,
+            Pageable limit
+    );
+
+    // ====================================================
+    // EXPORT (stream forward-only, da consumare dentro una transazione)
+    // ====================================================
+    // il driver legge 500 righe per round-trip invece di caricare tutto il result set
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("""
+            SELECT new com.brt.TimesheetService.shared.projection.DailyHoursReportProjection(
+                r.id.date, e.id, e.name, c.id, c.code, r.hours
+            )
+            FROM HoursRollupDaily r
+            JOIN Employee e ON e.id = r.id.employeeId
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE r.id.date BETWEEN :startDate AND :endDate
+            AND (:commessaCode IS NULL OR c.code = :commessaCode)
+            ORDER BY r.id.date, r.id.employeeId, r.id.commessaId
+        """)
+    Stream<DailyHoursReportProjection> streamDailyHours(
+            @Param("commessaCode") String commessaCode,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+
+    // ====================================================
+    // MANUTENZIONE (native, chiamate da HoursRollupService)
+    // ====================================================
+    // serializza a livello DB le scritture sullo stesso (dipendente, mese) fino al commit; chiave bigint da HoursRollupService
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(:lockKey)", nativeQuery = true)
+    Integer lockEmployeeMonth(@Param("lockKey") long lockKey);
+
+    // codici delle commesse con ore del dipendente nel range, prima (rollup) o dopo (items) la scrittura
+    @Query(value = """
+            SELECT c.code FROM public.commesse c
+            WHERE c.id IN (
+                SELECT r.commessa_id FROM public.hours_rollup_daily r
+                WHERE r.employee_id = :employeeId
+                AND r.date BETWEEN :startDate AND :endDate
+                UNION
+                SELECT ti.commessa_id FROM public.timesheet_items ti
+                JOIN public.timesheet_days td ON td.id = ti.timesheet_day_id
+                WHERE td.employee_id = :employeeId
+                AND td.date BETWEEN :startDate AND :endDate
+            )
+        """, nativeQuery = true)
+    List<String> findTouchedCommessaCodes(
+            @Param("employeeId") Long employeeId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            DELETE FROM public.hours_rollup_daily
+            WHERE employee_id = :employeeId
+            AND date BETWEEN :startDate AND :endDate
+        """, nativeQuery = true)
+    int deleteForEmployee(
+            @Param("employeeId") Long employeeId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            INSERT INTO public.hours_rollup_daily (employee_id, commessa_id, date, hours)
+            SELECT td.employee_id, ti.commessa_id, td.date, SUM(ti.hours)
+            FROM public.timesheet_items ti
+            JOIN public.timesheet_days td ON td.id = ti.timesheet_day_id
+            WHERE td.employee_id = :employeeId
+            AND td.date BETWEEN :startDate AND :endDate
+            GROUP BY td.employee_id, ti.commessa_id, td.date
+        """, nativeQuery = true)
+    int insertForEmployee(
+            @Param("employeeId") Long employeeId,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+
+    // backfill: blocca le scritture concorrenti sulle tabelle di rollup fino al commit
+    @Modifying(flushAutomatically = true)
+    @Query(value = "LOCK TABLE public.hours_rollup_daily, public.hours_rollup_monthly IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM public.hours_rollup_daily WHERE date BETWEEN :startDate AND :endDate", nativeQuery = true)
+    int deleteAll(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            INSERT INTO public.hours_rollup_daily (employee_id, commessa_id, date, hours)
+            SELECT td.employee_id, ti.commessa_id, td.date, SUM(ti.hours)
+            FROM public.timesheet_items ti
+            JOIN public.timesheet_days td ON td.id = ti.timesheet_day_id
+            WHERE td.date BETWEEN :startDate AND :endDate
+            GROUP BY td.employee_id, ti.commessa_id, td.date
+        """, nativeQuery = true)
+    int insertAll(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+}
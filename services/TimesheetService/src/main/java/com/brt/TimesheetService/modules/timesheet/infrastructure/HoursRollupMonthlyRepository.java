@@ -0,0 +1,333 @@
+package com.brt.TimesheetService.modules.timesheet.infrastructure;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.brt.TimesheetService.modules.timesheet.domain.HoursRollupMonthly;
+import com.brt.TimesheetService.modules.timesheet.domain.HoursRollupMonthlyId;
+import com.brt.TimesheetService.shared.projection.CommessaEmployeeNameProjection;
+import com.brt.TimesheetService.shared.projection.CommessaHoursProjection;
+import com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection;
+import com.brt.TimesheetService.shared.projection.EmployeeTotalHoursProjection;
+
+/**
+ * Rollup mensile delle ore. I parametri startMonth/endMonth sono il primo
+ * giorno del mese: usato solo per range allineati a mesi interi.
+ */
+@Repository
+public interface HoursRollupMonthlyRepository extends JpaRepository<HoursRollupMonthly, HoursRollupMonthlyId> {
+
+    // ====================================================
+    // QUERIES REPORT (stesse projections di TimesheetItemRepository)
+    // ====================================================
+    // Ore totali per dipendente
+    @Query(
+            value = """
+            SELECT new com.brt.TimesheetService.shared.projection.EmployeeTotalHoursProjection(
+                e.id, e.name, SUM(r.hours)
+            )
+            FROM HoursRollupMonthly r
+            JOIN Employee e ON e.id = r.id.employeeId
+            WHERE r.id.month BETWEEN :startMonth AND :endMonth
+            GROUP BY e.id, e.name
+        """,
+            countQuery = """
+            SELECT COUNT(DISTINCT r.id.employeeId)
+            FROM HoursRollupMonthly r
+            WHERE r.id.month BETWEEN :startMonth AND :endMonth
+        """
+    )
+    Page<EmployeeTotalHoursProjection> aggregateHoursByEmployee(
+            @Param("startMonth") LocalDate startMonth,
+            @Param("endMonth") LocalDate endMonth,
+            Pageable pageable
+    );
+
+    // Ore totali per commessa (employeeNames separato)
+    @Query(
+            value = """
+            SELECT new com.brt.TimesheetService.shared.projection.CommessaHoursProjection(
+                c.id, c.code, SUM(r.hours)
+            )
+            FROM HoursRollupMonthly r
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE r.id.month BETWEEN :startMonth AND :endMonth
+            GROUP BY c.id, c.code
+        """,
+            countQuery = """
+            SELECT COUNT(DISTINCT r.id.commessaId)
+            FROM HoursRollupMonthly r
+            WHERE r.id.month BETWEEN :startMonth AND :endMonth
+        """
+    )
+    Page<CommessaHoursProjection> aggregateHoursByCommessa(
+            @Param("startMonth") LocalDate startMonth,
+            @Param("endMonth") LocalDate endMonth,
+            Pageable pageable
+    );
+
+    // Ore di un dipendente su tutte le commesse
+    @Query(
+            value = """
+            SELECT new com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection(
+                e.id, e.name, c.id, c.code, SUM(r.hours)
+            )
+            FROM HoursRollupMonthly r
+            JOIN Employee e ON e.id = r.id.employeeId
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE r.id.employeeId = :employeeId
+            AND r.id.month BETWEEN :startMonth AND :endMonth
+            GROUP BY e.id, e.name, c.id, c.code
+        """,
+            countQuery = """
+            SELECT COUNT(DISTINCT r.id.commessaId)
+            FROM HoursRollupMonthly r
+            WHERE r.id.employeeId = :employeeId
+            AND r.id.month BETWEEN :startMonth AND :endMonth
+        """
+    )
+    Page<EmployeeCommessaHoursProjection> getHoursByEmployeeAllCommesse(
+            @Param("employeeId") Long employeeId,
+            @Param("startMonth") LocalDate startMonth,
+            @Param("endMonth") LocalDate endMonth,
+            Pageable pageable
+    );
+
+    // Ore di un dipendente su una commessa
+    @Query(
+            value = """
+            SELECT new com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection(
+                e.id, e.name, c.id, c.code, SUM(r.hours)
+            )
+            FROM HoursRollupMonthly r
+            JOIN Employee e ON e.id = r.id.employeeId
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE r.id.employeeId = :employeeId
+            AND c.code = :commessaCode
+            AND r.id.month BETWEEN :startMonth AND :endMonth
+            GROUP BY e.id, e.name, c.id, c.code
+        """,
+            countQuery = """
+            SELECT COUNT(DISTINCT r.id.commessaId)
+            FROM HoursRollupMonthly r
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE r.id.employeeId = :employeeId
+            AND c.code = :commessaCode
+            AND r.id.month BETWEEN :startMonth AND :endMonth
+        """
+    )
+    Page<EmployeeCommessaHoursProjection> getHoursByEmployeeAndCommessa(
+            @Param("employeeId") Long employeeId,
+            @Param("commessaCode") String commessaCode,
+            @Param("startMonth") LocalDate startMonth,
+            @Param("endMonth") LocalDate endMonth,
+            Pageable pageable
+    );
+
+    // Ore totali dei dipendenti per una singola commessa
+    @Query(
+            value = """
+            SELECT new com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection(
+                e.id, e.name, c.id, c.code, SUM(r.hours)
+            )
+            FROM HoursRollupMonthly r
+            JOIN Employee e ON e.id = r.id.employeeId
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE c.code = :commessaCode
+            AND r.id.month BETWEEN :startMonth AND :endMonth
+            GROUP BY e.id, e.name, c.id, c.code
+        """,
+            countQuery = """
+            SELECT COUNT(DISTINCT r.id.employeeId)
+            FROM HoursRollupMonthly r
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE c.code = :commessaCode
+            AND r.id.month BETWEEN :startMonth AND :endMonth
+        """
+    )
+    Page<EmployeeCommessaHoursProjection> getTotalHoursPerEmployeeForCommessa(
+            @Param("commessaCode") String commessaCode,
+            @Param("startMonth") LocalDate startMonth,
+            @Param("endMonth") LocalDate endMonth,
+            Pageable pageable
+    );
+
+    // Dipendenti distinti per un blocco di commesse (una query per pagina di report)
+    @Query("""
+        SELECT DISTINCT new com.brt.TimesheetService.shared.projection.CommessaEmployeeNameProjection(
+            r.id.commessaId, e.name
+        )
+        FROM HoursRollupMonthly r
+        JOIN Employee e ON e.id = r.id.employeeId
+        WHERE r.id.commessaId IN (:commessaIds) AND r.id.month BETWEEN :startMonth AND :endMonth
+        ORDER BY e.name
+    """)
+    List<CommessaEmployeeNameProjection> findDistinctEmployeeNamesByCommesse(
+            @Param("commessaIds") Collection<Long> commessaIds,
+            @Param("startMonth") LocalDate startMonth,
+            @Param("endMonth") LocalDate endMonth
+    );
+
+    // ====================================================
+    // QUERIES REPORT KEYSET (cursore "after", nessun count)
+    // Il Pageable serve solo da limite (pagina 0, size + 1)
+    // ====================================================
+    // Ore totali per dipendente, ordinate per employeeId
+    @Query("""
+            SELECT new com.brt.TimesheetService.shared.projection.EmployeeTotalHoursProjection(
+                e.id, e.name, SUM(r.hours)
+            )
+            FROM HoursRollupMonthly r
+            JOIN Employee e ON e.id = r.id.employeeId
+            WHERE r.id.month BETWEEN :startMonth AND :endMonth
+            AND (:afterId IS NULL OR r.id.employeeId > :afterId)
+            GROUP BY e.id, e.name
+            ORDER BY e.id
+        """)
+    List<EmployeeTotalHoursProjection> aggregateHoursByEmployeeAfter(
+            @Param("startMonth") LocalDate startMonth,
+            @Param("endMonth") LocalDate endMonth,
+            @Param("afterId") Long afterId,
+            Pageable limit
+    );
+
+    // Ore totali per commessa, ordinate per commessaId
+    @Query("""
+            SELECT new com.brt.TimesheetService.shared.projection.CommessaHoursProjection(
+                c.id, c.code, SUM(r.hours)
+            )
+            FROM HoursRollupMonthly r
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE r.id.month BETWEEN :startMonth AND :endMonth
+            AND (:afterId IS NULL OR r.id.commessaId > :afterId)
+            GROUP BY c.id, c.code
+            ORDER BY c.id
+        """)
+    List<CommessaHoursProjection> aggregateHoursByCommessaAfter(
+            @Param("startMonth") LocalDate startMonth,
+            @Param("endMonth") LocalDate endMonth,
+            @Param("afterId") Long afterId,
+            Pageable limit
+    );
+
+    // Ore di un dipendente su tutte le commesse, ordinate per commessaId
+    @Query("""
+            SELECT new com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection(
+                e.id, e.name, c.id, c.code, SUM(r.hours)
+            )
+            FROM HoursRollupMonthly r
+            JOIN Employee e ON e.id = r.id.employeeId
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE r.id.employeeId = :employeeId
+            AND r.id.month BETWEEN :startMonth AND :endMonth
+            AND (:afterId IS NULL OR r.id.commessaId > :afterId)
+            GROUP BY e.id, e.name, c.id, c.code
+            ORDER BY c.id
+        """)
+    List<EmployeeCommessaHoursProjection> getHoursByEmployeeAllCommesseAfter(
+            @Param("employeeId") Long employeeId,
+            @Param("startMonth") LocalDate startMonth,
+            @Param("endMonth") LocalDate endMonth,
+            @Param("afterId") Long afterId,
+            Pageable limit
+    );
+
+    // Ore di un dipendente su una commessa, ordinate per commessaId
+    @Query("""
+            SELECT new com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection(
+                e.id, e.name, c.id, c.code, SUM(r.hours)
+            )
+            FROM HoursRollupMonthly r
+            JOIN Employee e ON e.id = r.id.employeeId
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE r.id.employeeId = :employeeId
+            AND c.code = :commessaCode
+            AND r.id.month BETWEEN :startMonth AND :endMonth
+            AND (:afterId IS NULL OR r.id.commessaId > :afterId)
+            GROUP BY e.id, e.name, c.id, c.code
+            ORDER BY c.id
+        """)
+    List<EmployeeCommessaHoursProjection> getHoursByEmployeeAndCommessaAfter(
+            @Param("employeeId") Long employeeId,
+            @Param("commessaCode") String commessaCode,
+            @Param("startMonth") LocalDate startMonth,
+            @Param("endMonth") LocalDate endMonth,
+            @Param("afterId") Long afterId,
+            Pageable limit
+    );
+
+    // Ore dei dipendenti per una singola commessa, ordinate per employeeId
+    @Query("""
+            SELECT new com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection(
+                e.id, e.name, c.id, c.code, SUM(r.hours)
+            )
+            FROM HoursRollupMonthly r
+            JOIN Employee e ON e.id = r.id.employeeId
+            JOIN Commessa c ON c.id = r.id.commessaId
+            WHERE c.code = :commessaCode
+            AND r.id.month BETWEEN :startMonth AND :endMonth
+            AND (:afterId IS NULL OR r.id.employeeId > :afterId)
+            GROUP BY e.id, e.name, c.id, c.code
+            ORDER BY e.id
+        """)
+    List<EmployeeCommessaHoursProjection> getTotalHoursPerEmployeeForCommessaAfter(
+            @Param("commessaCode") String commessaCode,
+            @Param("startMonth") LocalDate startMonth,
+            @Param("endMonth") LocalDate endMonth,
+            @Param("afterId") Long afterId,
+            Pageable limit
+    );
+
+    // ====================================================
+    // MANUTENZIONE (native, ricalcolo dal rollup giornaliero)
+    // ====================================================
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            DELETE FROM public.hours_rollup_monthly
+            WHERE employee_id = :employeeId
+            AND month BETWEEN :startMonth AND :endMonth
+        """, nativeQuery = true)
+    int deleteForEmployee(
+            @Param("employeeId") Long employeeId,
+            @Param("startMonth") LocalDate startMonth,
+            @Param("endMonth") LocalDate endMonth
+    );
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            INSERT INTO public.hours_rollup_monthly (employee_id, commessa_id, month, hours)
+            SELECT employee_id, commessa_id, CAST(date_trunc('month', date) AS date), SUM(hours)
+            FROM public.hours_rollup_daily
+            WHERE employee_id = :employeeId
+            AND date >= :startMonth AND date < CAST(:endMonth AS date) + INTERVAL '1 month'
+            GROUP BY employee_id, commessa_id, CAST(date_trunc('month', date) AS date)
+        """, nativeQuery = true)
+    int insertForEmployee(
+            @Param("employeeId") Long employeeId,
+            @Param("startMonth") LocalDate startMonth,
+            @Param("endMonth") LocalDate endMonth
+    );
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM public.hours_rollup_monthly WHERE month BETWEEN :startMonth AND :endMonth", nativeQuery = true)
+    int deleteAll(@Param("startMonth") LocalDate startMonth, @Param("endMonth") LocalDate endMonth);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            INSERT INTO public.hours_rollup_monthly (employee_id, commessa_id, month, hours)
+            SELECT employee_id, commessa_id, CAST(date_trunc('month', date) AS date), SUM(hours)
+            FROM public.hours_rollup_daily
+            WHERE date >= :startMonth AND date < CAST(:endMonth AS date) + INTERVAL '1 month'
+            GROUP BY employee_id, commessa_id, CAST(date_trunc('month', date) AS date)
+        """, nativeQuery = true)
+    int insertAll(@Param("startMonth") LocalDate startMonth, @Param("endMonth") LocalDate endMonth);
+}
@@ -1,26 +1,162 @@
 package com.brt.TimesheetService.modules.timesheet.infrastructure;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.brt.TimesheetService.modules.timesheet.domain.TimesheetDay;
 import com.brt.TimesheetService.modules.user.domain.Employee;
+import com.brt.TimesheetService.shared.projection.TimesheetDayRowProjection;
 
 public interface TimesheetDayRepository extends JpaRepository<TimesheetDay, Long> {
 
     // recupera il timesheet per un dipendente e un giorno specifico
     Optional<TimesheetDay> findByEmployeeAndDate(Employee employee, LocalDate date);
 
+    // read model di un giorno: day, employee, item e commesse in una query, senza idratare entity
+    @Query("""
+            SELECT new com.brt.TimesheetService.shared.projection.TimesheetDayRowProjection(
+                d.date, e.name, d.status, d.absenceType, i.id, i.description, i.hours, c.code
+            )
+            FROM TimesheetDay d
+            JOIN d.employee e
+            LEFT JOIN d.items i
+            LEFT JOIN i.commessa c
+            WHERE e.id = :employeeId
+            AND d.date = :date
+            ORDER BY i.id
+        """)
+    List<TimesheetDayRowProjection> findDayRows(
+            @Param("employeeId") Long employeeId,
+            @Param("date") LocalDate date
+    );
+
     // tutti i giorni di un dipendente in un mese
     Page<TimesheetDay> findByEmployeeAndDateBetween(Employee employee, LocalDate start, LocalDate end, Pageable pageable);
 
+    // ====================================================
+    // CARICAMENTO RANGE A DUE FASI
+    // ====================================================
+    // fase 1: solo gli id della pagina (il sort del Pageable si applica a d)
+    @Query(value = """
+            SELECT d.id FROM TimesheetDay d
+            WHERE d.employee.id = :employeeId
+            AND d.date BETWEEN :start AND :end
+        """, countQuery = """
+            SELECT COUNT(d) FROM TimesheetDay d
+            WHERE d.employee.id = :employeeId
+            AND d.date BETWEEN :start AND :end
+        """)
+    Page<Long> findIdsByEmployeeAndDateBetween(
+            @Param("employeeId") Long employeeId,
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end,
+            Pageable pageable
+    );
+
+    // fase 1, paginazione keyset: id dei giorni successivi a afterDate (null = prima pagina), nessun count
+    @Query("""
+            SELECT d.id FROM TimesheetDay d
+            WHERE d.employee.id = :employeeId
+            AND d.date BETWEEN :start AND :end
+            AND (:afterDate IS NULL OR d.date > :afterDate)
+            ORDER BY d.date
+        """)
+    List<Long> findIdsByEmployeeAndDateBetweenAfter(
+            @Param("employeeId") Long employeeId,
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end,
+            @Param("afterDate") LocalDate afterDate,
+            Pageable limit
+    );
+
+    // fase 2: giorni della pagina con employee, item e commesse in una sola query
+    @Query("""
+            SELECT DISTINCT d FROM TimesheetDay d
+            JOIN FETCH d.employee
+            LEFT JOIN FETCH d.items i
+            LEFT JOIN FETCH i.commessa
+            WHERE d.id IN :ids
+        """)
+    List<TimesheetDay> findAllWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // salvataggio bulk: i giorni esistenti tra le date richieste, con item e commesse
+    @Query("""
+            SELECT DISTINCT d FROM TimesheetDay d
+            LEFT JOIN FETCH d.items i
+            LEFT JOIN FETCH i.commessa
+            WHERE d.employee = :employee AND d.date IN :dates
+        """)
+    List<TimesheetDay> findAllWithItemsByEmployeeAndDateIn(
+            @Param("employee") Employee employee,
+            @Param("dates") Collection<LocalDate> dates
+    );
+
     // tutti i timesheet di un mese (per aggregazioni)
     List<TimesheetDay> findByDateBetween(LocalDate start, LocalDate end);
 
+    // variante a batch per il warm-up: id ordinati per (dipendente, data), keyset dopo l'ultima coppia letta
+    @Query("""
+            SELECT d.id FROM TimesheetDay d
+            WHERE d.date BETWEEN :start AND :end
+            AND (d.employee.id > :afterEmployeeId
+                OR (d.employee.id = :afterEmployeeId AND d.date > :afterDate))
+            ORDER BY d.employee.id, d.date
+        """)
+    List<Long> findIdsByDateBetweenAfter(
+            @Param("start") LocalDate start,
+            @Param("end") LocalDate end,
+            @Param("afterEmployeeId") Long afterEmployeeId,
+            @Param("afterDate") LocalDate afterDate,
+            Pageable limit
+    );
+
     boolean existsByEmployeeAndDate(Employee employee, LocalDate date);
+
+    // ====================================================
+    // OPERAZIONI BULK ASSENZE (set-based, una sola istruzione per chunk)
+    // ====================================================
+    // elimina in un colpo gli item dei giorni del range che verranno sovrascritti
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+            DELETE FROM public.timesheet_items ti
+            USING public.timesheet_days td
+            WHERE ti.timesheet_day_id = td.id
+            AND td.employee_id IN (:employeeIds)
+            AND td.date BETWEEN :startDate AND :endDate
+        """, nativeQuery = true)
+    int deleteItemsByEmployeesAndDateBetween(
+            @Param("employeeIds") Collection<Long> employeeIds,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+
+    // crea o sovrascrive i giorni del range come assenza (status NULL, come setAbsence)
+    // nextval riserva un intero blocco pooled-lo per riga: gli id restano disgiunti da quelli di Hibernate
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+            INSERT INTO public.timesheet_days (id, employee_id, date, status, absence_type, version)
+            SELECT nextval('public.timesheet_days_seq'), e.id, CAST(d.day AS date), NULL, :absenceType, 0
+            FROM public.employees e
+            CROSS JOIN generate_series(CAST(:startDate AS date), CAST(:endDate AS date), INTERVAL '1 day') AS d(day)
+            WHERE e.id IN (:employeeIds)
+            ON CONFLICT (employee_id, date) DO UPDATE
+            SET absence_type = EXCLUDED.absence_type,
+                status = NULL,
+                version = COALESCE(timesheet_days.version, 0) + 1
+        """, nativeQuery = true)
+    int upsertAbsences(
+            @Param("employeeIds") Collection<Long> employeeIds,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("absenceType") String absenceType
+    );
 }
@@ -1,8 +1,5 @@
 package com.brt.TimesheetService.modules.timesheet.infrastructure;
 
-import java.time.LocalDate;
-import java.util.List;
-
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -13,10 +10,6 @@ import org.springframework.stereotype.Repository;
 
 import com.brt.TimesheetService.modules.timesheet.domain.TimesheetDay;
 import com.brt.TimesheetService.modules.timesheet.domain.TimesheetItem;
-import com.brt.TimesheetService.shared.projection.CommessaHoursProjection;
-import com.brt.TimesheetService.shared.projection.DailyHoursReportProjection;
-import com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection;
-import com.brt.TimesheetService.shared.projection.EmployeeTotalHoursProjection;
 
 @Repository
 public interface TimesheetItemRepository extends JpaRepository<TimesheetItem, Long> {
@@ -34,262 +27,6 @@ public interface TimesheetItemRepository extends JpaRepository<TimesheetItem, Lo
     @Query("DELETE FROM TimesheetItem t WHERE t.id = :itemId")
     int deleteItemById(@Param("itemId") Long itemId);
 
-    // ====================================================
-    // QUERIES REPORT CON PROJECTIONS
-    // ====================================================
-    // Ore totali per dipendente
-    @Query(
-            value = """
-            SELECT new com.brt.TimesheetService.shared.projection.EmployeeTotalHoursProjection(
-                e.id, e.name, SUM(ti.hours)
-            )
-            FROM TimesheetItem ti
-            JOIN ti.timesheetDay td
-            JOIN td.employee e
-            WHERE td.date BETWEEN :startDate AND :endDate
-            GROUP BY e.id, e.name
-        """,
-            countQuery = """
-            SELECT COUNT(DISTINCT e.id)
-            FROM TimesheetItem ti
-            JOIN ti.timesheetDay td
-            JOIN td.employee e
-            WHERE td.date BETWEEN :startDate AND :endDate
-        """
-    )
-    Page<EmployeeTotalHoursProjection> aggregateHoursByEmployee(
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate,
-            Pageable pageable);
-
-    // Ore totali per commessa (employeeNames separato)
-    @Query(
-            value = """
-            SELECT new com.brt.TimesheetService.shared.projection.CommessaHoursProjection(
-                c.id, c.code, SUM(ti.hours)
-            )
-            FROM TimesheetItem ti
-            JOIN ti.commessa c
-            JOIN ti.timesheetDay td
-            WHERE td.date BETWEEN :startDate AND :endDate
-            GROUP BY c.id, c.code
-        """,
-            countQuery = """
-            SELECT COUNT(DISTINCT c.id)
-            FROM TimesheetItem ti
-            JOIN ti.commessa c
-            JOIN ti.timesheetDay td
-            WHERE td.date BETWEEN :startDate AND :endDate
-        """
-    )
-    Page<CommessaHoursProjection> aggregateHoursByCommessa(
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate,
-            Pageable pageable
-    );
-
-    // Totale ore per una singola commessa (per tutti i dipendenti)
-    @Query(
-            value = """
-            SELECT new com.brt.TimesheetService.shared.projection.CommessaHoursProjection(
-                c.id, c.code, SUM(ti.hours)
-            )
-            FROM TimesheetItem ti
-            JOIN ti.commessa c
-            JOIN ti.timesheetDay td
-            WHERE c.code = :commessaCode
-            AND td.date BETWEEN :startDate AND :endDate
-            GROUP BY c.id, c.code
-        """,
-            countQuery = """
-            SELECT COUNT(DISTINCT c.id)
-            FROM TimesheetItem ti
-            JOIN ti.commessa c
-            JOIN ti.timesheetDay td
-            WHERE c.code = :commessaCode
-            AND td.date BETWEEN :startDate AND :endDate
-        """
-    )
-    Page<CommessaHoursProjection> aggregateHoursForSingleCommessa(
-            @Param("commessaCode") String commessaCode,
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate,
-            Pageable pageable
-    );
-
-    // Lista dipendenti distinti per una commessa
-    @Query("""
-        SELECT DISTINCT e.name
-        FROM TimesheetItem ti
-        JOIN ti.timesheetDay td
-        JOIN td.employee e
-        JOIN ti.commessa c
-        WHERE c.id = :commessaId AND td.date BETWEEN :startDate AND :endDate
-    """)
-    List<String> findDistinctEmployeeNamesByCommessaAndDate(
-            @Param("commessaId") Long commessaId,
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate
-    );
-
-    // ====================================================
-    // DAILY HOURS QUERIES
-    // ====================================================
-    // Aggregazione per tutte le commesse con filtro data
-    @Query(
-            value = """
-            SELECT new com.brt.TimesheetService.shared.projection.DailyHoursReportProjection(
-                td.date, e.id, e.name, c.id, c.code, SUM(ti.hours)
-            )
-            FROM TimesheetItem ti
-            JOIN ti.timesheetDay td
-            JOIN td.employee e
-            JOIN ti.commessa c
-            WHERE td.date BETWEEN :startDate AND :endDate
-            GROUP BY c.id, c.code, td.date, e.id, e.name
-            ORDER BY c.code, td.date, e.name
-        """,
-            countQuery = """
-            SELECT COUNT(DISTINCT c.id, td.date, e.id)
-            FROM TimesheetItem ti
-            JOIN ti.timesheetDay td
-            JOIN td.employee e
-            JOIN ti.commessa c
-            WHERE td.date BETWEEN :startDate AND :endDate
-        """
-    )
-    Page<DailyHoursReportProjection> aggregateDailyHoursAllCommesseByDate(
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate,
-            Pageable pageable
-    );
-
-    // Aggregazione per una sola commessa filtrata per codice e date
-    @Query(
-            value = """
-            SELECT new com.brt.TimesheetService.shared.projection.DailyHoursReportProjection(
-                td.date, e.id, e.name, c.id, c.code, SUM(ti.hours)
-            )
-            FROM TimesheetItem ti
-            JOIN ti.timesheetDay td
-            JOIN td.employee e
-            JOIN ti.commessa c
-            WHERE c.code = :commessaCode
-            AND td.date BETWEEN :startDate AND :endDate
-            GROUP BY c.id, c.code, td.date, e.id, e.name
-            ORDER BY td.date, e.name
-        """,
-            countQuery = """
-            SELECT COUNT(DISTINCT c.id, td.date, e.id)
-            FROM TimesheetItem ti
-            JOIN ti.timesheetDay td
-            JOIN td.employee e
-            JOIN ti.commessa c
-            WHERE c.code = :commessaCode
-            AND td.date BETWEEN :startDate AND :endDate
-        """
-    )
-    Page<DailyHoursReportProjection> aggregateDailyHoursByCommessaAndDate(
-            @Param("commessaCode") String commessaCode,
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate,
-            Pageable pageable
-    );
-
-    // Ore di un dipendente su tutte le commesse in un intervallo di date
-    @Query(
-            value = """
-            SELECT new com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection(
-                e.id, e.name, c.id, c.code, SUM(ti.hours)
-            )
-            FROM TimesheetItem ti
-            JOIN ti.timesheetDay td
-            JOIN td.employee e
-            JOIN ti.commessa c
-            WHERE e.id = :employeeId
-            AND td.date BETWEEN :startDate AND :endDate
-            GROUP BY e.id, e.name, c.id, c.code
-        """,
-            countQuery = """
-            SELECT COUNT(DISTINCT e.id, c.id)
-            FROM TimesheetItem ti
-            JOIN ti.timesheetDay td
-            JOIN td.employee e
-            JOIN ti.commessa c
-            WHERE e.id = :employeeId
-            AND td.date BETWEEN :startDate AND :endDate
-        """
-    )
-    Page<EmployeeCommessaHoursProjection> getHoursByEmployeeAllCommesse(
-            @Param("employeeId") Long employeeId,
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate,
-            Pageable pageable
-    );
-
-    // Ore di un dipendente su una commessa in un intervallo di date
-    @Query(
-            value = """
-            SELECT new com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection(
-                e.id, e.name, c.id, c.code, SUM(ti.hours)
-            )
-            FROM TimesheetItem ti
-            JOIN ti.timesheetDay td
-            JOIN td.employee e
-            JOIN ti.commessa c
-            WHERE e.id = :employeeId
-            AND c.code = :commessaCode
-            AND td.date BETWEEN :startDate AND :endDate
-            GROUP BY e.id, e.name, c.id, c.code
-        """,
-            countQuery = """
-            SELECT COUNT(DISTINCT e.id, c.id)
-            FROM TimesheetItem ti
-            JOIN ti.timesheetDay td
-            JOIN td.employee e
-            JOIN ti.commessa c
-            WHERE e.id = :employeeId
-            AND c.code = :commessaCode
-            AND td.date BETWEEN :startDate AND :endDate
-        """
-    )
-    Page<EmployeeCommessaHoursProjection> getHoursByEmployeeAndCommessa(
-            @Param("employeeId") Long employeeId,
-            @Param("commessaCode") String commessaCode,
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate,
-            Pageable pageable
-    );
-
-    // Ore totali dei dipendenti per una singola commessa
-    @Query(
-            value = """
-            SELECT new com.brt.TimesheetService.shared.projection.EmployeeCommessaHoursProjection(
-                e.id, e.name, c.id, c.code, SUM(ti.hours)
-            )
-            FROM TimesheetItem ti
-            JOIN ti.timesheetDay td
-            JOIN td.employee e
-            JOIN ti.commessa c
-            WHERE c.code = :commessaCode
-            AND td.date BETWEEN :startDate AND :endDate
-            GROUP BY e.id, e.name, c.id, c.code
-        """,
-            countQuery = """
-            SELECT COUNT(DISTINCT e.id, c.id)
-            FROM TimesheetItem ti
-            JOIN ti.timesheetDay td
-            JOIN td.employee e
-            JOIN ti.commessa c
-            WHERE c.code = :commessaCode
-            AND td.date BETWEEN :startDate AND :endDate
-        """
-    )
-    Page<EmployeeCommessaHoursProjection> getTotalHoursPerEmployeeForCommessa(
-            @Param("commessaCode") String commessaCode,
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate,
-            Pageable pageable
-    );
-
+    // Le aggregazioni per i report sono servite dalle tabelle di rollup
+    // (HoursRollupDailyRepository / HoursRollupMonthlyRepository)
 }
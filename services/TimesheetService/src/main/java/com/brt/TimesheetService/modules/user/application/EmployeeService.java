@@ -1,5 +1,6 @@
 package com.brt.TimesheetService.modules.user.application;
 
+import com.brt.TimesheetService.modules.timesheet.application.caching.ReportCacheManager;
 import com.brt.TimesheetService.modules.user.domain.Employee;
 import com.brt.TimesheetService.modules.user.infrastructure.EmployeeRepository;
 
@@ -27,9 +28,11 @@ public class EmployeeService {
 
     private static final Logger log = LoggerFactory.getLogger(EmployeeService.class);
     private final EmployeeRepository employeeRepository;
+    private final ReportCacheManager reportCache;
 
-    public EmployeeService(EmployeeRepository employeeRepository) {
+    public EmployeeService(EmployeeRepository employeeRepository, ReportCacheManager reportCache) {
         this.employeeRepository = employeeRepository;
+        this.reportCache = reportCache;
     }
 
     // ============================================================
@@ -105,7 +108,10 @@ public class EmployeeService {
             if (employee == null) {
                 throw new IllegalArgumentException("Employee non può essere null");
             }
-            return employeeRepository.save(employee);
+            Employee saved = employeeRepository.save(employee);
+            // le righe dei report riportano il nome del dipendente
+            reportCache.clearAllAfterCommit();
+            return saved;
         });
     }
 
@@ -120,6 +126,7 @@ public class EmployeeService {
                 throw new ResourceNotFoundException("Employee non trovato (ID: " + id + ")");
             }
             employeeRepository.deleteById(id);
+            reportCache.clearAllAfterCommit();
             log.info("Employee {} eliminato con successo", id);
             return null;
         });
@@ -0,0 +1,35 @@
+package com.brt.TimesheetService.shared.dto;
+
+import java.util.List;
+
+import com.brt.TimesheetService.modules.timesheet.domain.AbsenceType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkAbsenceDTO {
+
+    private List<Long> employeeIds;
+    private String absenceTypeStr;
+
+    // Metodo helper per ottenere l'enum
+    @JsonIgnore
+    public AbsenceType getAbsenceTypeEnum() {
+        if (absenceTypeStr == null || absenceTypeStr.isEmpty()) {
+            return AbsenceType.NONE; // default
+
+        }
+        try {
+            return AbsenceType.valueOf(absenceTypeStr.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Tipo di assenza non valido: " + absenceTypeStr);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.brt.TimesheetService.shared.exception;
+
+/**
+ * Lock su un giorno di timesheet non acquisito entro il timeout: un'altra
+ * operazione sullo stesso giorno è ancora in corso (mappata su 409).
+ */
+public class TimesheetLockTimeoutException extends IllegalStateException {
+
+    public TimesheetLockTimeoutException(String message) {
+        super(message);
+    }
+
+    public TimesheetLockTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -13,11 +13,13 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
-import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
 
+import com.brt.TimesheetService.shared.util.CursorSlice;
+
 import jakarta.servlet.http.HttpServletRequest;
 
 /**
@@ -25,8 +27,14 @@ import jakarta.servlet.http.HttpServletRequest;
  *
  * Trasforma ResponseEntity<Page<?>> in un JSON arricchito con: - metadati
  * (page, size, sort, filters) - link assoluti (self, next, prev)
+ *
+ * Le CursorSlice (paginazione keyset) hanno solo size, hasNext, nextCursor e
+ * i link self/next: next riporta la stessa query con after=nextCursor.
+ * beforeBodyWrite riceve il body già estratto dalla ResponseEntity, quindi la
+ * slice arriva direttamente. Registrato come @ControllerAdvice: un semplice
+ * @Component non viene applicato da Spring MVC.
  */
-@Component
+@ControllerAdvice
 public class PaginationResponseInterceptor implements ResponseBodyAdvice<Object> {
 
     @Autowired(required = false)
@@ -59,6 +67,11 @@ public class PaginationResponseInterceptor implements ResponseBodyAdvice<Object>
             return build(page, req);
         }
 
+        // Paginazione keyset: CursorSlice<?> senza totali
+        if (body instanceof CursorSlice<?> slice) {
+            return buildCursor(slice, req);
+        }
+
         // Se non è una Page, restituisci invariato
         return body;
     }
@@ -95,6 +108,52 @@ public class PaginationResponseInterceptor implements ResponseBodyAdvice<Object>
         return ResponseEntity.status(HttpStatus.OK).body(response);
     }
 
+    public static <T> Map<String, Object> buildCursor(CursorSlice<T> slice, HttpServletRequest request) {
+
+        Map<String, Object> response = new HashMap<>();
+
+        // Contenuto della slice: niente page/totalElements, il client segue "next"
+        response.put("content", slice.getContent());
+        response.put("size", slice.getSize());
+        response.put("hasNext", slice.hasNext());
+        response.put("empty", slice.isEmpty());
+        response.put("nextCursor", slice.getNextCursor());
+        response.put("filters", extractFilters(request));
+
+        Map<String, String> links = new HashMap<>();
+        links.put("self", buildRequestLink(request));
+        if (slice.hasNext()) {
+            links.put("next", buildCursorLink(request, slice.getNextCursor()));
+        }
+        response.put("_links", links);
+
+        return response;
+    }
+
+    private static String buildRequestLink(HttpServletRequest request) {
+        String queryString = request.getQueryString();
+        String baseUrl = request.getRequestURL().toString();
+        return queryString == null || queryString.isEmpty() ? baseUrl : baseUrl + "?" + queryString;
+    }
+
+    // Sostituisce o aggiunge "after" mantenendo gli altri parametri (il cursore è già url-safe)
+    private static String buildCursorLink(HttpServletRequest request, String cursor) {
+        String queryString = request.getQueryString();
+        String baseUrl = request.getRequestURL().toString();
+
+        if (queryString != null && !queryString.isEmpty()) {
+            if (queryString.matches("(^|.*&)after=.*")) {
+                queryString = queryString.replaceAll("(^|&)after=[^&]*", "$1after=" + cursor);
+            } else {
+                queryString += "&after=" + cursor;
+            }
+        } else {
+            queryString = "after=" + cursor;
+        }
+
+        return URI.create(baseUrl + "?" + queryString).toString();
+    }
+
     // Ricostruisce un link assoluto mantenendo i parametri esistenti
     private static String buildPageLink(HttpServletRequest request, int targetPage) {
         String queryString = request.getQueryString();
@@ -120,7 +179,8 @@ public class PaginationResponseInterceptor implements ResponseBodyAdvice<Object>
             return Map.of();
         }
         return request.getParameterMap().entrySet().stream()
-                .filter(e -> !e.getKey().equalsIgnoreCase("page") && !e.getKey().equalsIgnoreCase("size"))
+                .filter(e -> !e.getKey().equalsIgnoreCase("page") && !e.getKey().equalsIgnoreCase("size")
+                && !e.getKey().equalsIgnoreCase("after"))
                 .collect(Collectors.toMap(
                         Map.Entry::getKey,
                         e -> String.join(",", e.getValue())
@@ -0,0 +1,15 @@
+package com.brt.TimesheetService.shared.projection;
+
+import java.time.LocalDate;
+
+// Esito di un'assegnazione assenze su più dipendenti
+public record BulkAbsenceProjection(
+        int employees,
+        LocalDate startDate,
+        LocalDate endDate,
+        String absence,
+        int upsertedDays,
+        int deletedItems
+        ) {
+
+}
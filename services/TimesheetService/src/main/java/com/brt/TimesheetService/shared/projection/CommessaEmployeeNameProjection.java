@@ -0,0 +1,9 @@
+package com.brt.TimesheetService.shared.projection;
+
+// Coppia (commessa, nome dipendente) per il caricamento batch dei nomi
+public record CommessaEmployeeNameProjection(
+        Long commessaId,
+        String employeeName
+        ) {
+
+}
@@ -38,4 +38,22 @@ public record TimesheetDayProjection(
                 day.getItems().stream().map(TimesheetItemProjection::fromEntity).toList()
         );
     }
+
+    /**
+     * Ricostruisce il giorno dalle righe piatte del read model: una riga per
+     * item, oppure una sola riga con item null se il giorno non ha item.
+     */
+    public static TimesheetDayProjection fromRows(List<TimesheetDayRowProjection> rows) {
+        TimesheetDayRowProjection first = rows.get(0);
+        return new TimesheetDayProjection(
+                first.date(),
+                first.employeeName(),
+                first.status() != null ? first.status().name() : null,
+                first.absenceType().toString(),
+                rows.stream()
+                        .filter(r -> r.itemId() != null)
+                        .map(r -> new TimesheetItemProjection(r.itemId(), r.description(), r.hours(), r.commessaCode()))
+                        .toList()
+        );
+    }
 }
@@ -0,0 +1,21 @@
+package com.brt.TimesheetService.shared.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import com.brt.TimesheetService.modules.timesheet.domain.AbsenceType;
+import com.brt.TimesheetService.modules.timesheet.domain.TimesheetStatus;
+
+// Riga piatta del read model di un giorno: dati del giorno ripetuti per ogni item (item null se il giorno è vuoto)
+public record TimesheetDayRowProjection(
+        LocalDate date,
+        String employeeName,
+        TimesheetStatus status,
+        AbsenceType absenceType,
+        Long itemId,
+        String description,
+        BigDecimal hours,
+        String commessaCode
+        ) {
+
+}
@@ -0,0 +1,24 @@
+package com.brt.TimesheetService.shared.projection;
+
+import java.time.LocalDate;
+
+// Esito di un singolo giorno in un salvataggio bulk: day valorizzato se salvato, error se scartato
+public record TimesheetDaySaveResult(
+        LocalDate date,
+        Outcome outcome,
+        TimesheetDayProjection day,
+        String error
+        ) {
+
+    public enum Outcome {
+        CREATED, UPDATED, FAILED
+    }
+
+    public static TimesheetDaySaveResult saved(LocalDate date, boolean created, TimesheetDayProjection day) {
+        return new TimesheetDaySaveResult(date, created ? Outcome.CREATED : Outcome.UPDATED, day, null);
+    }
+
+    public static TimesheetDaySaveResult failed(LocalDate date, String error) {
+        return new TimesheetDaySaveResult(date, Outcome.FAILED, null, error);
+    }
+}
@@ -0,0 +1,42 @@
+package com.brt.TimesheetService.shared.util;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+/**
+ * Slice restituita in paginazione keyset: nessun totale, solo il cursore
+ * della pagina successiva (null sull'ultima pagina).
+ */
+public class CursorSlice<T> extends SliceImpl<T> {
+
+    private final String nextCursor;
+
+    public CursorSlice(List<T> content, int size, String nextCursor) {
+        super(content, PageRequest.of(0, size), nextCursor != null);
+        this.nextCursor = nextCursor;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Costruisce la slice da una query eseguita con limite size + 1: la riga
+     * in più, se presente, dice solo che esiste una pagina successiva e viene
+     * scartata. Il cursore è la chiave dell'ultima riga tenuta.
+     */
+    public static <T, R> CursorSlice<R> fromLookahead(
+            List<T> rows,
+            int size,
+            Function<T, KeysetCursor> keyOf,
+            Function<List<T>, List<R>> transformer
+    ) {
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        String next = hasNext ? keyOf.apply(content.get(content.size() - 1)).encode() : null;
+        return new CursorSlice<>(transformer.apply(content), size, next);
+    }
+}
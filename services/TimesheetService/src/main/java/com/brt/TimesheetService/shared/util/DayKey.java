@@ -0,0 +1,46 @@
+package com.brt.TimesheetService.shared.util;
+
+import java.time.LocalDate;
+
+/**
+ * Chiave (employeeId, giorno) impacchettata in un long: i 20 bit bassi
+ * contengono i giorni dal 0001-01-01 (date dall'anno 1 al 2871, anche prima
+ * del 1970), i restanti l'employeeId. Giorni consecutivi restano chiavi
+ * consecutive.
+ * Usata dalla day cache e dai lock per giorno: nessuna allocazione di
+ * stringhe sul percorso caldo.
+ */
+public final class DayKey {
+
+    private static final int EPOCH_DAY_BITS = 20;
+    private static final int MAX_DAY_OFFSET = (1 << EPOCH_DAY_BITS) - 1;
+    // epochDay del 0001-01-01: l'offset rende non negativo il giorno impacchettato
+    private static final int BASE_EPOCH_DAY = (int) LocalDate.of(1, 1, 1).toEpochDay();
+
+    private DayKey() {
+    }
+
+    public static long of(long employeeId, LocalDate date) {
+        return of(employeeId, (int) date.toEpochDay());
+    }
+
+    public static long of(long employeeId, int epochDay) {
+        int offset = epochDay - BASE_EPOCH_DAY;
+        if (offset < 0 || offset > MAX_DAY_OFFSET) {
+            throw new IllegalArgumentException("Data fuori dal range supportato: " + LocalDate.ofEpochDay(epochDay));
+        }
+        return (employeeId << EPOCH_DAY_BITS) | offset;
+    }
+
+    public static long employeeId(long key) {
+        return key >>> EPOCH_DAY_BITS;
+    }
+
+    public static LocalDate date(long key) {
+        return LocalDate.ofEpochDay((key & MAX_DAY_OFFSET) + BASE_EPOCH_DAY);
+    }
+
+    public static String describe(long key) {
+        return "employeeId=" + employeeId(key) + ", date=" + date(key);
+    }
+}
@@ -0,0 +1,62 @@
+package com.brt.TimesheetService.shared.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posizione dell'ultima riga restituita in paginazione keyset: (date,
+ * employeeId, commessaId). Ogni query usa solo le componenti del proprio
+ * ordinamento, le altre restano null.
+ *
+ * Il token esposto al client è opaco: Base64 url-safe di
+ * "date|employeeId|commessaId" con i campi null vuoti.
+ */
+public record KeysetCursor(LocalDate date, Long employeeId, Long commessaId) {
+
+    private static final String SEPARATOR = "|";
+
+    public static KeysetCursor ofDate(LocalDate date) {
+        return new KeysetCursor(date, null, null);
+    }
+
+    public static KeysetCursor ofEmployee(Long employeeId) {
+        return new KeysetCursor(null, employeeId, null);
+    }
+
+    public static KeysetCursor ofCommessa(Long commessaId) {
+        return new KeysetCursor(null, null, commessaId);
+    }
+
+    public String encode() {
+        String raw = (date == null ? "" : date.toString()) + SEPARATOR
+                + (employeeId == null ? "" : employeeId) + SEPARATOR
+                + (commessaId == null ? "" : commessaId);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica il token ricevuto dal client. Token vuoto = prima pagina
+     * (restituisce null).
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Cursore di paginazione non valido: " + token);
+            }
+            return new KeysetCursor(
+                    parts[0].isEmpty() ? null : LocalDate.parse(parts[0]),
+                    parts[1].isEmpty() ? null : Long.valueOf(parts[1]),
+                    parts[2].isEmpty() ? null : Long.valueOf(parts[2])
+            );
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursore di paginazione non valido: " + token, e);
+        }
+    }
+}
@@ -15,13 +15,27 @@ public final class PageableUtils {
 
     public static Pageable createSafePageable(Integer page, Integer size, String sortBy, String direction) {
         int safePage = (page == null || page < 0) ? DEFAULT_PAGE : page;
-        int safeSize = (size == null || size < 1) ? DEFAULT_SIZE : Math.min(size, MAX_SIZE);
+        return PageRequest.of(safePage, safeSize(size), createSort(sortBy, direction));
+    }
 
-        Sort sort = Sort.unsorted();
-        if (sortBy != null && !sortBy.isEmpty()) {
-            sort = "desc".equalsIgnoreCase(direction) ? Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
-        }
+    public static int safeSize(Integer size) {
+        return (size == null || size < 1) ? DEFAULT_SIZE : Math.min(size, MAX_SIZE);
+    }
+
+    // Paginazione keyset: il parametro "after" (anche vuoto) attiva la modalità cursore
+    public static boolean isKeyset(String after) {
+        return after != null;
+    }
+
+    // Nessun limite di pagina: da usare solo per report con cardinalità limitata
+    public static Pageable createUnpaged(String sortBy, String direction) {
+        return Pageable.unpaged(createSort(sortBy, direction));
+    }
 
-        return PageRequest.of(safePage, safeSize, sort);
+    private static Sort createSort(String sortBy, String direction) {
+        if (sortBy == null || sortBy.isEmpty()) {
+            return Sort.unsorted();
+        }
+        return "desc".equalsIgnoreCase(direction) ? Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
     }
 }
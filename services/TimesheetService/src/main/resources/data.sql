@@ -25,4 +25,21 @@ INSERT INTO public.timesheet_items (id, description, hours, timesheet_day_id, co
 VALUES (2, 'Analisi funzionale 2', 4, 1, 2);
 
 INSERT INTO public.timesheet_items (id, description, hours, timesheet_day_id, commessa_id)
-VALUES (3, 'Analisi funzionale', 6, 2, 1);
\ No newline at end of file
+VALUES (3, 'Analisi funzionale', 6, 2, 1);
+
+-- Allinea le sequence agli id inseriti esplicitamente sopra
+SELECT setval('public.employees_seq', (SELECT MAX(id) FROM public.employees) + 1, false);
+SELECT setval('public.commesse_seq', (SELECT MAX(id) FROM public.commesse) + 1, false);
+SELECT setval('public.timesheet_days_seq', (SELECT MAX(id) FROM public.timesheet_days) + 1, false);
+SELECT setval('public.timesheet_items_seq', (SELECT MAX(id) FROM public.timesheet_items) + 1, false);
+
+-- Popola il rollup ore dei report dai dati di esempio
+INSERT INTO public.hours_rollup_daily (employee_id, commessa_id, date, hours)
+SELECT td.employee_id, ti.commessa_id, td.date, SUM(ti.hours)
+FROM public.timesheet_items ti
+JOIN public.timesheet_days td ON td.id = ti.timesheet_day_id
+GROUP BY td.employee_id, ti.commessa_id, td.date;
+INSERT INTO public.hours_rollup_monthly (employee_id, commessa_id, month, hours)
+SELECT employee_id, commessa_id, CAST(date_trunc('month', date) AS date), SUM(hours)
+FROM public.hours_rollup_daily
+GROUP BY employee_id, commessa_id, CAST(date_trunc('month', date) AS date);
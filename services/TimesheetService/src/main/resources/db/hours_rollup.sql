@@ -0,0 +1,23 @@
+-- Tabelle di rollup ore per i report (prod, ddl-auto: validate).
+-- Dopo la creazione eseguire il backfill con
+--   POST /api/timesheet/admin/reports/rollup/rebuild?startDate=2000-01-01&endDate=<oggi>
+
+CREATE TABLE IF NOT EXISTS public.hours_rollup_daily (
+    employee_id BIGINT NOT NULL,
+    commessa_id BIGINT NOT NULL,
+    date        DATE NOT NULL,
+    hours       NUMERIC(9, 2) NOT NULL,
+    PRIMARY KEY (employee_id, commessa_id, date)
+);
+CREATE INDEX IF NOT EXISTS idx_rollup_daily_date ON public.hours_rollup_daily (date);
+CREATE INDEX IF NOT EXISTS idx_rollup_daily_commessa_date ON public.hours_rollup_daily (commessa_id, date);
+
+CREATE TABLE IF NOT EXISTS public.hours_rollup_monthly (
+    employee_id BIGINT NOT NULL,
+    commessa_id BIGINT NOT NULL,
+    month       DATE NOT NULL,
+    hours       NUMERIC(11, 2) NOT NULL,
+    PRIMARY KEY (employee_id, commessa_id, month)
+);
+CREATE INDEX IF NOT EXISTS idx_rollup_monthly_month ON public.hours_rollup_monthly (month);
+CREATE INDEX IF NOT EXISTS idx_rollup_monthly_commessa_month ON public.hours_rollup_monthly (commessa_id, month);
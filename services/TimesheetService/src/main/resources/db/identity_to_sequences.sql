@@ -0,0 +1,28 @@
+-- Migrazione degli id da IDENTITY a sequence (allocationSize 50, optimizer pooled-lo).
+-- Da eseguire una volta sul db di prod prima del deploy (ddl-auto: validate).
+-- Ogni sequence riparte da MAX(id) + 1: con pooled-lo il valore restituito da
+-- nextval è il primo id del blocco, quindi non ci sono collisioni con i dati esistenti.
+
+BEGIN;
+
+-- Employees
+ALTER TABLE public.employees ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS public.employees_seq INCREMENT BY 50;
+SELECT setval('public.employees_seq', COALESCE((SELECT MAX(id) FROM public.employees), 0) + 1, false);
+
+-- Commesse
+ALTER TABLE public.commesse ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS public.commesse_seq INCREMENT BY 50;
+SELECT setval('public.commesse_seq', COALESCE((SELECT MAX(id) FROM public.commesse), 0) + 1, false);
+
+-- TimesheetDay
+ALTER TABLE public.timesheet_days ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS public.timesheet_days_seq INCREMENT BY 50;
+SELECT setval('public.timesheet_days_seq', COALESCE((SELECT MAX(id) FROM public.timesheet_days), 0) + 1, false);
+
+-- TimesheetItem
+ALTER TABLE public.timesheet_items ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS public.timesheet_items_seq INCREMENT BY 50;
+SELECT setval('public.timesheet_items_seq', COALESCE((SELECT MAX(id) FROM public.timesheet_items), 0) + 1, false);
+
+COMMIT;
@@ -0,0 +1,171 @@
+package com.brt.TimesheetService.modules.timesheet.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.brt.TimesheetService.modules.commessa.domain.Commessa;
+import com.brt.TimesheetService.modules.commessa.infrastructure.CommessaRepository;
+import com.brt.TimesheetService.modules.timesheet.application.caching.TimesheetCacheManager;
+import com.brt.TimesheetService.modules.timesheet.domain.TimesheetDay;
+import com.brt.TimesheetService.modules.timesheet.domain.TimesheetItem;
+import com.brt.TimesheetService.modules.timesheet.infrastructure.TimesheetDayRepository;
+import com.brt.TimesheetService.modules.user.domain.Employee;
+import com.brt.TimesheetService.modules.user.infrastructure.EmployeeRepository;
+import com.brt.TimesheetService.shared.projection.TimesheetDayProjection;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * getTimesheets deve costare un numero fisso di query per pagina (id, count,
+ * fetch-join), qualunque sia il numero di giorni e di item.
+ */
+@SpringBootTest(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.sql.init.mode=never",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class TimesheetRangeQueryCountTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 1, 1);
+    private static final int DAYS = 30;
+    private static final int ITEMS_PER_DAY = 3;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private TimesheetApplicationService timesheetService;
+
+    @Autowired
+    private TimesheetDayRepository dayRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private CommessaRepository commessaRepository;
+
+    @Autowired
+    private TimesheetCacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long employeeId;
+
+    @BeforeEach
+    void setUp() {
+        // un dipendente nuovo per test: i dati dei test precedenti non entrano nel range
+        Employee employee = employeeRepository.save(Employee.builder().name("Mario Rossi").build());
+        employeeId = employee.getId();
+
+        List<Commessa> commesse = new ArrayList<>();
+        for (int c = 0; c < ITEMS_PER_DAY; c++) {
+            commesse.add(Commessa.builder().code("QC-" + employeeId + "-" + c).build());
+        }
+        commesse = commessaRepository.saveAll(commesse);
+
+        List<TimesheetDay> days = new ArrayList<>();
+        for (int d = 0; d < DAYS; d++) {
+            TimesheetDay day = TimesheetDay.builder().employee(employee).date(START.plusDays(d)).build();
+            for (Commessa commessa : commesse) {
+                day.addItem(TimesheetItem.builder()
+                        .commessa(commessa)
+                        .description("lavoro")
+                        .hours(new BigDecimal("2.00"))
+                        .build());
+            }
+            days.add(day);
+        }
+        dayRepository.saveAll(days);
+        cacheManager.clearAll();
+    }
+
+    @Test
+    void firstPageLoadsDaysItemsAndCommesseWithoutNPlusOne() {
+        Statistics stats = statistics();
+
+        Page<TimesheetDayProjection> page = timesheetService.getTimesheets(
+                employeeId, START, START.plusDays(DAYS - 1), PageRequest.of(0, 50));
+
+        assertThat(page.getContent()).hasSize(DAYS);
+        assertThat(page.getContent()).extracting(TimesheetDayProjection::date).isSorted();
+        assertThat(page.getContent()).allSatisfy(day -> {
+            assertThat(day.employeeName()).isEqualTo("Mario Rossi");
+            assertThat(day.items()).hasSize(ITEMS_PER_DAY)
+                    .allSatisfy(item -> assertThat(item.commessaCode()).isNotNull());
+        });
+        // id + fetch-join (count saltato: la prima pagina non è piena)
+        assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void middlePageCostsIdsCountAndFetch() {
+        Statistics stats = statistics();
+
+        Page<TimesheetDayProjection> page = timesheetService.getTimesheets(
+                employeeId, START, START.plusDays(DAYS - 1), PageRequest.of(1, 10));
+
+        assertThat(page.getContent()).hasSize(10);
+        assertThat(page.getContent().get(0).date()).isEqualTo(START.plusDays(10));
+        assertThat(page.getTotalElements()).isEqualTo(DAYS);
+        assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void keysetPageCostsIdsAndFetch() {
+        Statistics stats = statistics();
+
+        Slice<TimesheetDayProjection> slice = timesheetService.getTimesheets(
+                employeeId, START, START.plusDays(DAYS - 1), null, 20);
+
+        assertThat(slice.getContent()).hasSize(20);
+        assertThat(slice.hasNext()).isTrue();
+        assertThat(slice.getContent()).allSatisfy(day -> assertThat(day.items()).hasSize(ITEMS_PER_DAY));
+        assertThat(stats.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void cachedPageIssuesNoQueries() {
+        PageRequest pageable = PageRequest.of(0, 50);
+        timesheetService.getTimesheets(employeeId, START, START.plusDays(DAYS - 1), pageable);
+        Statistics stats = statistics();
+
+        timesheetService.getTimesheets(employeeId, START, START.plusDays(DAYS - 1), pageable);
+
+        assertThat(stats.getPrepareStatementCount()).isZero();
+    }
+
+    private Statistics statistics() {
+        Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        return stats;
+    }
+}
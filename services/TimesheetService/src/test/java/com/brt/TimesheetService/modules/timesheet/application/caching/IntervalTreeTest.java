@@ -0,0 +1,144 @@
+package com.brt.TimesheetService.modules.timesheet.application.caching;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Stabbing e overlap dell'IntervalTree confrontati con una scansione lineare
+ * su intervalli casuali, dopo inserimenti, rimozioni e ribilanciamenti.
+ */
+class IntervalTreeTest {
+
+    private static final int INTERVALS = 2000;
+    private static final int QUERIES = 2000;
+    private static final int DAYS = 3650;
+    private static final int MAX_LENGTH = 120;
+
+    @Test
+    void matchesLinearScanAfterInsertsAndRemoves() {
+        Random random = new Random(42);
+        IntervalTree<Integer> tree = IntervalTree.empty(Comparator.naturalOrder());
+        Map<Integer, int[]> expected = new HashMap<>();
+
+        for (int id = 0; id < INTERVALS; id++) {
+            // Un intervallo su dieci ripete il precedente: stesso (start, end), valore diverso
+            int[] interval = id > 0 && random.nextInt(10) == 0 ? expected.get(id - 1) : randomInterval(random);
+            tree = tree.insert(interval[0], interval[1], id);
+            expected.put(id, interval);
+        }
+        assertMatches(tree, expected, random);
+
+        IntervalTree<Integer> beforeRemoves = tree;
+        Map<Integer, int[]> expectedBeforeRemoves = new HashMap<>(expected);
+        List<Integer> ids = new ArrayList<>(expected.keySet());
+        for (int i = 0; i < INTERVALS / 2; i++) {
+            Integer id = ids.remove(random.nextInt(ids.size()));
+            int[] interval = expected.remove(id);
+            tree = tree.remove(interval[0], interval[1], id);
+        }
+        assertMatches(tree, expected, random);
+        // Path-copying: la versione precedente non viene toccata dalle rimozioni
+        assertMatches(beforeRemoves, expectedBeforeRemoves, random);
+
+        // Inserimenti e rimozioni alternati sull'albero già ridotto
+        for (int id = INTERVALS; id < INTERVALS * 2; id++) {
+            if (random.nextBoolean() && !ids.isEmpty()) {
+                Integer removed = ids.remove(random.nextInt(ids.size()));
+                int[] interval = expected.remove(removed);
+                tree = tree.remove(interval[0], interval[1], removed);
+            } else {
+                int[] interval = randomInterval(random);
+                tree = tree.insert(interval[0], interval[1], id);
+                expected.put(id, interval);
+                ids.add(id);
+            }
+        }
+        assertMatches(tree, expected, random);
+    }
+
+    @Test
+    void staysBalancedOnSortedInserts() {
+        IntervalTree<Integer> tree = IntervalTree.empty(Comparator.naturalOrder());
+        for (int i = 0; i < 4096; i++) {
+            tree = tree.insert(i, i + 10, i);
+            assertThat(tree.height()).isLessThanOrEqualTo(maxAvlHeight(tree.size()));
+        }
+        // Rimozione di tutta la metà sinistra: i ribilanciamenti risalgono dalla radice
+        for (int i = 0; i < 2048; i++) {
+            tree = tree.remove(i, i + 10, i);
+            assertThat(tree.height()).isLessThanOrEqualTo(maxAvlHeight(tree.size()));
+        }
+        assertThat(tree.size()).isEqualTo(2048);
+    }
+
+    @Test
+    void insertAndRemoveAreIdempotent() {
+        IntervalTree<Integer> tree = IntervalTree.<Integer>empty(Comparator.naturalOrder()).insert(10, 20, 1);
+
+        assertThat(tree.insert(10, 20, 1)).isSameAs(tree);
+        assertThat(tree.remove(10, 20, 2)).isSameAs(tree);
+        assertThat(tree.remove(10, 21, 1)).isSameAs(tree);
+        assertThat(tree.remove(10, 20, 1).isEmpty()).isTrue();
+    }
+
+    private static void assertMatches(IntervalTree<Integer> tree, Map<Integer, int[]> expected, Random random) {
+        assertThat(tree.size()).isEqualTo(expected.size());
+        assertThat(tree.height()).isLessThanOrEqualTo(maxAvlHeight(expected.size()));
+
+        Set<Integer> all = new HashSet<>();
+        tree.forEach(all::add);
+        assertThat(all).isEqualTo(expected.keySet());
+
+        for (int q = 0; q < QUERIES; q++) {
+            int day = random.nextInt(DAYS + MAX_LENGTH);
+            assertThat(stab(tree, day)).as("stab %d", day).isEqualTo(bruteForce(expected, day, day));
+
+            int[] range = randomInterval(random);
+            assertThat(overlapping(tree, range[0], range[1]))
+                    .as("overlap [%d, %d]", range[0], range[1])
+                    .isEqualTo(bruteForce(expected, range[0], range[1]));
+        }
+    }
+
+    private static Set<Integer> stab(IntervalTree<Integer> tree, int day) {
+        Set<Integer> result = new HashSet<>();
+        tree.stab(day, result::add);
+        return result;
+    }
+
+    private static Set<Integer> overlapping(IntervalTree<Integer> tree, int from, int to) {
+        Set<Integer> result = new HashSet<>();
+        tree.overlapping(from, to, result::add);
+        return result;
+    }
+
+    private static Set<Integer> bruteForce(Map<Integer, int[]> intervals, int from, int to) {
+        Set<Integer> result = new HashSet<>();
+        intervals.forEach((id, interval) -> {
+            if (interval[0] <= to && interval[1] >= from) {
+                result.add(id);
+            }
+        });
+        return result;
+    }
+
+    private static int[] randomInterval(Random random) {
+        int start = random.nextInt(DAYS);
+        return new int[]{start, start + random.nextInt(MAX_LENGTH)};
+    }
+
+    // Limite superiore dell'altezza di un AVL con n nodi: 1.44 * log2(n + 2)
+    private static int maxAvlHeight(int size) {
+        return (int) Math.floor(1.4405 * Math.log(size + 2) / Math.log(2));
+    }
+}
@@ -0,0 +1,66 @@
+package com.brt.TimesheetService.modules.timesheet.application.caching;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * RangeIndex: partizione per dipendente e chiavi con lo stesso intervallo ma
+ * pagina diversa tenute distinte.
+ */
+class RangeIndexTest {
+
+    private static final LocalDate JAN_1 = LocalDate.of(2025, 1, 1);
+    private static final LocalDate JAN_31 = LocalDate.of(2025, 1, 31);
+
+    private final RangeIndex index = new RangeIndex();
+
+    @Test
+    void findsRangesOfTheEmployeeOnly() {
+        RangeKey january = key(1L, JAN_1, JAN_31, 0);
+        RangeKey secondPage = key(1L, JAN_1, JAN_31, 1);
+        RangeKey february = key(1L, LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 28), 0);
+        RangeKey otherEmployee = key(2L, JAN_1, JAN_31, 0);
+        index.add(january);
+        index.add(secondPage);
+        index.add(february);
+        index.add(otherEmployee);
+
+        assertThat(index.findContaining(1L, LocalDate.of(2025, 1, 15))).containsExactlyInAnyOrder(january, secondPage);
+        assertThat(index.findContaining(1L, JAN_31)).containsExactlyInAnyOrder(january, secondPage);
+        assertThat(index.findOverlapping(1L, JAN_31, LocalDate.of(2025, 2, 1)))
+                .containsExactlyInAnyOrder(january, secondPage, february);
+        assertThat(index.findContaining(3L, JAN_1)).isEmpty();
+    }
+
+    @Test
+    void removeAndRetainDropEmptyEmployees() {
+        RangeKey january = key(1L, JAN_1, JAN_31, 0);
+        RangeKey secondPage = key(1L, JAN_1, JAN_31, 1);
+        index.add(january);
+        index.add(secondPage);
+
+        index.remove(january);
+        assertThat(index.findContaining(1L, JAN_1)).containsExactly(secondPage);
+
+        assertThat(index.retainIf(key -> false)).isEqualTo(1);
+        assertThat(index.employeeCount()).isZero();
+    }
+
+    @Test
+    void removeEmployeeReturnsAllKeys() {
+        RangeKey january = key(1L, JAN_1, JAN_31, 0);
+        RangeKey week = key(1L, JAN_1, LocalDate.of(2025, 1, 7), 0);
+        index.add(january);
+        index.add(week);
+
+        assertThat(index.removeEmployee(1L)).containsExactlyInAnyOrder(january, week);
+        assertThat(index.findContaining(1L, JAN_1)).isEmpty();
+    }
+
+    private static RangeKey key(Long employeeId, LocalDate start, LocalDate end, int page) {
+        return new RangeKey(employeeId, start, end, page, 20, "date: ASC");
+    }
+}
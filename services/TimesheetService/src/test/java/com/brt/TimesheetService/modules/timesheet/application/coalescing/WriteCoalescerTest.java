@@ -0,0 +1,237 @@
+package com.brt.TimesheetService.modules.timesheet.application.coalescing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.brt.TimesheetService.modules.timesheet.application.coalescing.WriteCoalescer.BatchApplier;
+import com.brt.TimesheetService.modules.timesheet.application.coalescing.WriteCoalescer.Pending;
+import com.brt.TimesheetService.shared.exception.TimesheetLockTimeoutException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Percorsi leader/follower del WriteCoalescer con un BatchApplier finto.
+ *
+ * Per avere un leader che attende la finestra serve un'altra richiesta attiva
+ * sulla chiave: holdKey() avvia una modifica isolata che resta ferma dentro
+ * apply finché il test non la rilascia. Le richieste successive trovano
+ * active > 1 e si raccolgono nella finestra del nuovo leader.
+ */
+class WriteCoalescerTest {
+
+    private static final long KEY = 42L;
+    private static final long WINDOW_MS = 1000;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<List<String>> applied = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void loneEditSkipsTheWindow() {
+        WriteCoalescer coalescer = coalescer(10_000, 50, 30_000);
+
+        long start = System.nanoTime();
+        String result = coalescer.submit(KEY, "a", this::applyAll);
+
+        assertThat(result).isEqualTo("A");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5_000);
+        assertThat(applied).containsExactly(List.of("a"));
+    }
+
+    @Test
+    void concurrentEditsShareOneBatch() throws Exception {
+        WriteCoalescer coalescer = coalescer(WINDOW_MS, 50, 30_000);
+        Future<String> hold = holdKey(coalescer);
+
+        Future<String> leader = submitAsync(coalescer, "b");
+        Future<String> first = submitAsync(coalescer, "c");
+        Future<String> second = submitAsync(coalescer, "d");
+
+        assertThat(leader.get(10, TimeUnit.SECONDS)).isEqualTo("B");
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("C");
+        assertThat(second.get(10, TimeUnit.SECONDS)).isEqualTo("D");
+        assertThat(applied).hasSize(1);
+        assertThat(applied.get(0)).containsExactlyInAnyOrder("b", "c", "d");
+
+        release.countDown();
+        assertThat(hold.get(10, TimeUnit.SECONDS)).isEqualTo("HOLD");
+    }
+
+    @Test
+    void fullBatchHandsOverToANewLeader() throws Exception {
+        WriteCoalescer coalescer = coalescer(WINDOW_MS, 2, 30_000);
+        holdKey(coalescer);
+
+        Future<String> leader = submitAsync(coalescer, "b");
+        Future<String> follower = submitAsync(coalescer, "c");
+        settle();
+        assertThat(applied).isEmpty();
+        // Il batch di b è pieno: d apre il proprio e ne diventa leader
+        Future<String> next = submitAsync(coalescer, "d");
+
+        assertThat(leader.get(10, TimeUnit.SECONDS)).isEqualTo("B");
+        assertThat(follower.get(10, TimeUnit.SECONDS)).isEqualTo("C");
+        assertThat(next.get(10, TimeUnit.SECONDS)).isEqualTo("D");
+        assertThat(applied).hasSize(2);
+        assertThat(applied).anySatisfy(batch -> assertThat(batch).containsExactlyInAnyOrder("b", "c"));
+        assertThat(applied).anySatisfy(batch -> assertThat(batch).containsExactly("d"));
+    }
+
+    @Test
+    void followerSeesOutcomeOnlyAfterPublish() throws Exception {
+        WriteCoalescer coalescer = coalescer(WINDOW_MS, 50, 30_000);
+        holdKey(coalescer);
+        CountDownLatch recorded = new CountDownLatch(1);
+        CountDownLatch committed = new CountDownLatch(1);
+        BatchApplier<String, String> applier = batch -> {
+            batch.forEach(p -> p.succeed(p.edit().toUpperCase()));
+            recorded.countDown();
+            await(committed);
+            // Dopo il "commit"
+            batch.forEach(Pending::publish);
+        };
+
+        Future<String> leader = executor.submit(() -> coalescer.submit(KEY, "b", applier));
+        settle();
+        Future<String> follower = executor.submit(() -> coalescer.submit(KEY, "c", applier));
+
+        assertThat(recorded.await(10, TimeUnit.SECONDS)).isTrue();
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertThat(follower.isDone()).isFalse();
+
+        committed.countDown();
+        assertThat(leader.get(10, TimeUnit.SECONDS)).isEqualTo("B");
+        assertThat(follower.get(10, TimeUnit.SECONDS)).isEqualTo("C");
+    }
+
+    @Test
+    void singleFailureStaysWithItsEdit() throws Exception {
+        WriteCoalescer coalescer = coalescer(WINDOW_MS, 50, 30_000);
+        holdKey(coalescer);
+        BatchApplier<String, String> applier = batch -> {
+            for (Pending<String, String> p : batch) {
+                if (p.edit().equals("bad")) {
+                    p.fail(new IllegalArgumentException("bad"));
+                } else {
+                    p.succeed(p.edit().toUpperCase());
+                }
+            }
+            batch.forEach(Pending::publish);
+        };
+
+        Future<String> leader = executor.submit(() -> coalescer.submit(KEY, "b", applier));
+        settle();
+        Future<String> failing = executor.submit(() -> coalescer.submit(KEY, "bad", applier));
+
+        assertThat(leader.get(10, TimeUnit.SECONDS)).isEqualTo("B");
+        assertThatThrownBy(() -> failing.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void batchFailureAbortsEveryEdit() throws Exception {
+        WriteCoalescer coalescer = coalescer(WINDOW_MS, 50, 30_000);
+        holdKey(coalescer);
+        IllegalStateException rollback = new IllegalStateException("rollback");
+        BatchApplier<String, String> applier = batch -> {
+            throw rollback;
+        };
+
+        Future<String> leader = executor.submit(() -> coalescer.submit(KEY, "b", applier));
+        settle();
+        Future<String> follower = executor.submit(() -> coalescer.submit(KEY, "c", applier));
+
+        assertThatThrownBy(() -> leader.get(10, TimeUnit.SECONDS)).hasCause(rollback);
+        assertThatThrownBy(() -> follower.get(10, TimeUnit.SECONDS)).hasCause(rollback);
+    }
+
+    @Test
+    void followerTimesOutWhileLeaderStillCommits() throws Exception {
+        WriteCoalescer coalescer = coalescer(WINDOW_MS, 50, 300);
+        holdKey(coalescer);
+        CountDownLatch committed = new CountDownLatch(1);
+        BatchApplier<String, String> applier = batch -> {
+            await(committed);
+            applyAll(batch);
+        };
+
+        Future<String> leader = executor.submit(() -> coalescer.submit(KEY, "b", applier));
+        settle();
+        Future<String> follower = executor.submit(() -> coalescer.submit(KEY, "c", applier));
+
+        assertThatThrownBy(() -> follower.get(10, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(TimesheetLockTimeoutException.class);
+
+        // La modifica scaduta resta nel batch e viene salvata dal leader
+        committed.countDown();
+        assertThat(leader.get(10, TimeUnit.SECONDS)).isEqualTo("B");
+        assertThat(applied).hasSize(1);
+        assertThat(applied.get(0)).containsExactlyInAnyOrder("b", "c");
+    }
+
+    // ============================================================
+    // SUPPORTO
+    // ============================================================
+    private WriteCoalescer coalescer(long windowMs, int maxBatchSize, long awaitTimeoutMs) {
+        return new WriteCoalescer(true, windowMs, maxBatchSize, awaitTimeoutMs, new SimpleMeterRegistry());
+    }
+
+    // Applier di riferimento: esito = edit in maiuscolo, pubblicato dopo aver registrato il batch
+    private void applyAll(List<Pending<String, String>> batch) {
+        applied.add(batch.stream().map(Pending::edit).toList());
+        batch.forEach(p -> p.succeed(p.edit().toUpperCase()));
+        batch.forEach(Pending::publish);
+    }
+
+    private Future<String> submitAsync(WriteCoalescer coalescer, String edit) {
+        return executor.submit(() -> coalescer.submit(KEY, edit, this::applyAll));
+    }
+
+    // Modifica isolata ferma dentro apply finché release non viene aperto
+    private Future<String> holdKey(WriteCoalescer coalescer) throws InterruptedException {
+        CountDownLatch applying = new CountDownLatch(1);
+        Future<String> hold = executor.submit(() -> coalescer.submit(KEY, "hold", batch -> {
+            applying.countDown();
+            await(release);
+            batch.forEach(p -> p.succeed(p.edit().toUpperCase()));
+            batch.forEach(Pending::publish);
+        }));
+        assertThat(applying.await(10, TimeUnit.SECONDS)).isTrue();
+        return hold;
+    }
+
+    // Lascia al thread appena avviato il tempo di entrare nel batch, ben dentro la finestra
+    private static void settle() throws InterruptedException {
+        TimeUnit.MILLISECONDS.sleep(WINDOW_MS / 4);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("latch non rilasciato");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
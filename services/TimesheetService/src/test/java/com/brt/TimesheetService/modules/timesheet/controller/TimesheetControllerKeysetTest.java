@@ -0,0 +1,76 @@
+package com.brt.TimesheetService.modules.timesheet.controller;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.brt.TimesheetService.modules.timesheet.application.TimesheetApplicationService;
+import com.brt.TimesheetService.shared.Interceptor.PaginationResponseInterceptor;
+import com.brt.TimesheetService.shared.projection.TimesheetDayProjection;
+import com.brt.TimesheetService.shared.util.CursorSlice;
+import com.brt.TimesheetService.shared.util.KeysetCursor;
+
+/**
+ * La risposta keyset passa da PaginationResponseInterceptor: il link next
+ * riporta la stessa query con after=nextCursor, e manca sull'ultima pagina.
+ */
+class TimesheetControllerKeysetTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 1, 10);
+
+    private TimesheetApplicationService timesheetService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        timesheetService = mock(TimesheetApplicationService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new TimesheetController(timesheetService))
+                .setControllerAdvice(new PaginationResponseInterceptor())
+                .build();
+    }
+
+    @Test
+    void keysetPageLinksToNextCursor() throws Exception {
+        String cursor = KeysetCursor.ofDate(DATE).encode();
+        when(timesheetService.getTimesheets(eq(1L), any(), any(), any(), anyInt()))
+                .thenReturn(new CursorSlice<>(List.of(day()), 1, cursor));
+
+        // Parametri nell'URI: i link vengono ricostruiti dalla query string
+        mockMvc.perform(get("/employees/1/timesheets?after=&size=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.nextCursor").value(cursor))
+                .andExpect(jsonPath("$._links.next").value(containsString("after=" + cursor)))
+                .andExpect(jsonPath("$._links.next").value(containsString("size=1")));
+    }
+
+    @Test
+    void lastKeysetPageHasNoNextLink() throws Exception {
+        when(timesheetService.getTimesheets(eq(1L), any(), any(), any(), anyInt()))
+                .thenReturn(new CursorSlice<>(List.of(day()), 20, null));
+
+        mockMvc.perform(get("/employees/1/timesheets?after="))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasNext").value(false))
+                .andExpect(jsonPath("$._links.self").exists())
+                .andExpect(jsonPath("$._links.next").doesNotExist());
+    }
+
+    private static TimesheetDayProjection day() {
+        return new TimesheetDayProjection(DATE, "Mario Rossi", null, null, List.of());
+    }
+}
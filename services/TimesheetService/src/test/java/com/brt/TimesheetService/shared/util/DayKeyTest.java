@@ -0,0 +1,59 @@
+package com.brt.TimesheetService.shared.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Round-trip di DayKey su tutto il range supportato, compresi i giorni prima
+ * del 1970, e chiavi consecutive per giorni consecutivi (invalidateDays
+ * scorre le chiavi di un periodo come intervallo contiguo).
+ */
+class DayKeyTest {
+
+    private static final LocalDate MIN_DATE = LocalDate.of(1, 1, 1);
+    private static final LocalDate MAX_DATE = LocalDate.of(2871, 11, 26);
+
+    @Test
+    void roundTripsAcrossSupportedRange() {
+        long employeeId = 123_456L;
+        for (LocalDate date : new LocalDate[]{
+            MIN_DATE, LocalDate.of(1950, 6, 15), LocalDate.of(1969, 12, 31), LocalDate.of(1970, 1, 1),
+            LocalDate.of(2025, 2, 28), LocalDate.of(2871, 1, 1), MAX_DATE}) {
+            long key = DayKey.of(employeeId, date);
+
+            assertThat(DayKey.employeeId(key)).as("employeeId di %s", date).isEqualTo(employeeId);
+            assertThat(DayKey.date(key)).isEqualTo(date);
+            assertThat(DayKey.of(employeeId, (int) date.toEpochDay())).isEqualTo(key);
+        }
+    }
+
+    @Test
+    void consecutiveDaysHaveConsecutiveKeys() {
+        // Attraversa il passaggio al 1970, dove l'epochDay cambia segno
+        LocalDate date = LocalDate.of(1969, 12, 1);
+        long previous = DayKey.of(7L, date);
+        for (int i = 1; i <= 60; i++) {
+            long key = DayKey.of(7L, date.plusDays(i));
+            assertThat(key).as("giorno %s", date.plusDays(i)).isEqualTo(previous + 1);
+            previous = key;
+        }
+    }
+
+    @Test
+    void employeesDoNotOverlap() {
+        assertThat(DayKey.of(1L, MAX_DATE)).isLessThan(DayKey.of(2L, MIN_DATE));
+        assertThat(DayKey.employeeId(DayKey.of(2L, MIN_DATE))).isEqualTo(2L);
+    }
+
+    @Test
+    void rejectsDatesOutsideRange() {
+        assertThatThrownBy(() -> DayKey.of(1L, MIN_DATE.minusDays(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DayKey.of(1L, MAX_DATE.plusDays(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}